@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.spatial.benchmarks;
+
+import static org.neo4j.configuration.GraphDatabaseSettings.DEFAULT_DATABASE_NAME;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.neo4j.dbms.api.DatabaseManagementService;
+import org.neo4j.gis.spatial.SpatialDatabaseService;
+import org.neo4j.gis.spatial.index.IndexManagerImpl;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.kernel.api.security.SecurityContext;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.spatial.api.layer.EditableLayer;
+import org.neo4j.test.TestDatabaseManagementServiceBuilder;
+import org.neo4j.values.storable.CoordinateReferenceSystem;
+import org.neo4j.values.storable.Values;
+
+/**
+ * An impermanent embedded database shared by the benchmarks, with helpers to create reproducible test data. All
+ * data lies in the area from 10 to 20 degrees longitude and 50 to 60 degrees latitude.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+
+	public static final Label POINT = Label.label("Point");
+	public static final double MIN_X = 10.0;
+	public static final double MIN_Y = 50.0;
+	public static final double WIDTH = 10.0;
+	public static final int BATCH_SIZE = 10000;
+
+	private final DatabaseManagementService databases;
+	private final GraphDatabaseService db;
+	private final GeometryFactory geometryFactory = new GeometryFactory();
+
+	public BenchmarkDatabase() {
+		databases = new TestDatabaseManagementServiceBuilder(Path.of("target", "benchmark-db")).impermanent().build();
+		db = databases.database(DEFAULT_DATABASE_NAME);
+	}
+
+	public GraphDatabaseService db() {
+		return db;
+	}
+
+	public SpatialDatabaseService spatial() {
+		return new SpatialDatabaseService(new IndexManagerImpl((GraphDatabaseAPI) db, SecurityContext.AUTH_DISABLED));
+	}
+
+	/**
+	 * Create nodes with random longitude and latitude properties, and a native point location property, which can
+	 * be indexed by the SimplePoint, NativePoint and point index layer types.
+	 *
+	 * @return the element ids of the new nodes
+	 */
+	public List<String> createPointNodes(int count, long seed) {
+		Random random = new Random(seed);
+		List<String> nodeIds = new ArrayList<>(count);
+		for (int start = 0; start < count; start += BATCH_SIZE) {
+			try (Transaction tx = db.beginTx()) {
+				for (int i = start; i < Math.min(count, start + BATCH_SIZE); i++) {
+					double x = MIN_X + random.nextDouble() * WIDTH;
+					double y = MIN_Y + random.nextDouble() * WIDTH;
+					Node node = tx.createNode(POINT);
+					node.setProperty("longitude", x);
+					node.setProperty("latitude", y);
+					node.setProperty("location", Values.pointValue(CoordinateReferenceSystem.WGS_84, x, y));
+					nodeIds.add(node.getElementId());
+				}
+				tx.commit();
+			}
+		}
+		return nodeIds;
+	}
+
+	/**
+	 * Add geometries created by the given factory to the layer, in batched transactions.
+	 */
+	public void addGeometries(String layerName, int count, GeometryMaker maker, long seed) {
+		SpatialDatabaseService spatial = spatial();
+		Random random = new Random(seed);
+		for (int start = 0; start < count; start += BATCH_SIZE) {
+			try (Transaction tx = db.beginTx()) {
+				EditableLayer layer = (EditableLayer) spatial.getLayer(tx, layerName, false);
+				for (int i = start; i < Math.min(count, start + BATCH_SIZE); i++) {
+					layer.add(tx, maker.make(geometryFactory, random));
+				}
+				layer.finalizeTransaction(tx);
+				tx.commit();
+			}
+		}
+	}
+
+	public interface GeometryMaker {
+
+		Geometry make(GeometryFactory factory, Random random);
+	}
+
+	public static Geometry randomPoint(GeometryFactory factory, Random random) {
+		return factory.createPoint(randomCoordinate(random));
+	}
+
+	/**
+	 * A short line string of five vertices, starting at a random location and wandering no more than a tenth of a
+	 * degree in each step.
+	 */
+	public static Geometry randomLineString(GeometryFactory factory, Random random) {
+		Coordinate[] coordinates = new Coordinate[5];
+		coordinates[0] = randomCoordinate(random);
+		for (int i = 1; i < coordinates.length; i++) {
+			coordinates[i] = new Coordinate(coordinates[i - 1].x + (random.nextDouble() - 0.5) * 0.2,
+					coordinates[i - 1].y + (random.nextDouble() - 0.5) * 0.2);
+		}
+		return factory.createLineString(coordinates);
+	}
+
+	/**
+	 * A star shaped polygon around the middle of the data, with the given number of vertices at random distances of
+	 * 0.8 to 1.2 times the radius from the centre, so that it has many concave edges.
+	 */
+	public static Polygon jaggedPolygon(GeometryFactory factory, double radius, int vertices, long seed) {
+		Random random = new Random(seed);
+		Coordinate centre = center();
+		Coordinate[] shell = new Coordinate[vertices + 1];
+		for (int i = 0; i < vertices; i++) {
+			double angle = 2 * Math.PI * i / vertices;
+			double distance = radius * (0.8 + 0.4 * random.nextDouble());
+			shell[i] = new Coordinate(centre.x + distance * Math.cos(angle), centre.y + distance * Math.sin(angle));
+		}
+		shell[vertices] = shell[0];
+		return factory.createPolygon(shell);
+	}
+
+	private static Coordinate randomCoordinate(Random random) {
+		return new Coordinate(MIN_X + random.nextDouble() * WIDTH, MIN_Y + random.nextDouble() * WIDTH);
+	}
+
+	/**
+	 * A search window in the middle of the data, covering the given fraction of its area.
+	 */
+	public static Envelope searchWindow(double fraction) {
+		double side = WIDTH * Math.sqrt(fraction);
+		double centerX = MIN_X + WIDTH / 2;
+		double centerY = MIN_Y + WIDTH / 2;
+		return new Envelope(centerX - side / 2, centerX + side / 2, centerY - side / 2, centerY + side / 2);
+	}
+
+	public static Coordinate center() {
+		return new Coordinate(MIN_X + WIDTH / 2, MIN_Y + WIDTH / 2);
+	}
+
+	@Override
+	public void close() {
+		databases.shutdown();
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.spatial.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.neo4j.gis.spatial.filter.SearchWithin;
+import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
+import org.neo4j.gis.spatial.pipes.GeoPipeline;
+import org.neo4j.gis.spatial.pipes.processing.OrthodromicDistance;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.spatial.api.layer.Layer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Common GeoPipeline chains over a WKB layer of short line strings. Run with {@code -prof gc} to compare the
+ * allocation of a within search through a GeoPipeline with the index search that {@code spatial.bbox} uses.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GeoPipelineBenchmark {
+
+	private static final String LAYER = "lines";
+
+	@Param({"1000", "10000", "100000"})
+	public int size;
+
+	private BenchmarkDatabase database;
+	private Layer layer;
+	private Envelope window;
+	private Geometry windowGeometry;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		database = new BenchmarkDatabase();
+		try (Transaction tx = database.db().beginTx()) {
+			database.spatial().getOrCreateRegisteredTypeLayer(tx, LAYER, "WKB", null, null, false);
+			tx.commit();
+		}
+		database.addGeometries(LAYER, size, BenchmarkDatabase::randomLineString, 42);
+		try (Transaction tx = database.db().beginTx()) {
+			layer = database.spatial().getLayer(tx, LAYER, true);
+			tx.commit();
+		}
+		window = BenchmarkDatabase.searchWindow(0.01);
+		windowGeometry = layer.getGeometryFactory().toGeometry(window);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		database.close();
+	}
+
+	@Benchmark
+	public long windowSearchCount() {
+		try (Transaction tx = database.db().beginTx()) {
+			return GeoPipeline.startIntersectWindowSearch(tx, layer, window).count();
+		}
+	}
+
+	@Benchmark
+	public void withinSearchLength(Blackhole blackhole) {
+		try (Transaction tx = database.db().beginTx()) {
+			GeoPipeline.startWithinSearch(tx, layer, windowGeometry)
+					.calculateLength()
+					.sort("Length")
+					.forEach(blackhole::consume);
+		}
+	}
+
+	@Benchmark
+	public void nearestNeighbourSortedByDistance(Blackhole blackhole) {
+		try (Transaction tx = database.db().beginTx()) {
+			GeoPipeline.startNearestNeighborLatLonSearch(tx, layer, BenchmarkDatabase.center(), 50.0)
+					.sort(OrthodromicDistance.DISTANCE)
+					.forEach(blackhole::consume);
+		}
+	}
+
+	@Benchmark
+	public void intersectSearchToWkt(Blackhole blackhole) {
+		try (Transaction tx = database.db().beginTx()) {
+			GeoPipeline.startIntersectSearch(tx, layer, windowGeometry)
+					.createWellKnownText()
+					.forEach(blackhole::consume);
+		}
+	}
+
+	@Benchmark
+	public long withinSearchNodesThroughPipeline() {
+		try (Transaction tx = database.db().beginTx()) {
+			return GeoPipeline.startWithinSearch(tx, layer, windowGeometry).stream()
+					.map(GeoPipeFlow::getGeomNode)
+					.count();
+		}
+	}
+
+	@Benchmark
+	public long withinSearchNodesFromIndex() {
+		try (Transaction tx = database.db().beginTx()) {
+			return StreamSupport.stream(
+					layer.getIndex().searchIndex(tx, new SearchWithin(layer, windowGeometry)).spliterator(), false)
+					.count();
+		}
+	}
+}
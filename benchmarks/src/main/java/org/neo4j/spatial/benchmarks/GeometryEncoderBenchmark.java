@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.spatial.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.neo4j.gis.spatial.EditableLayerImpl;
+import org.neo4j.gis.spatial.SpatialDatabaseService;
+import org.neo4j.gis.spatial.encoders.SimpleGraphEncoder;
+import org.neo4j.gis.spatial.encoders.SimplePropertyEncoder;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.spatial.api.encoder.GeometryEncoder;
+import org.neo4j.spatial.api.layer.Layer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding every geometry in a layer with each of the GeometryEncoders. Point encoders decode points, and the
+ * others decode short line strings.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GeometryEncoderBenchmark {
+
+	@Param({"SimplePoint", "NativePoint", "WKT", "WKB", "Compact", "SimpleGraph", "SimpleProperty"})
+	public String encoder;
+
+	@Param({"1000", "10000", "100000"})
+	public int size;
+
+	private BenchmarkDatabase database;
+	private GeometryEncoder geometryEncoder;
+	private List<String> geometryNodes;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		database = new BenchmarkDatabase();
+		SpatialDatabaseService spatial = database.spatial();
+		boolean points = encoder.endsWith("Point");
+		try (Transaction tx = database.db().beginTx()) {
+			switch (encoder) {
+				case "SimpleGraph" -> spatial.getOrCreateLayer(tx, encoder, SimpleGraphEncoder.class,
+						EditableLayerImpl.class, "", false);
+				case "SimpleProperty" -> spatial.getOrCreateLayer(tx, encoder, SimplePropertyEncoder.class,
+						EditableLayerImpl.class, "", false);
+				default -> spatial.getOrCreateRegisteredTypeLayer(tx, encoder, encoder, null, null, false);
+			}
+			tx.commit();
+		}
+		database.addGeometries(encoder, size,
+				points ? BenchmarkDatabase::randomPoint : BenchmarkDatabase::randomLineString, 42);
+		geometryNodes = new ArrayList<>(size);
+		try (Transaction tx = database.db().beginTx()) {
+			Layer layer = spatial.getLayer(tx, encoder, true);
+			geometryEncoder = layer.getGeometryEncoder();
+			for (Node node : layer.getIndex().getAllIndexedNodes(tx)) {
+				geometryNodes.add(node.getElementId());
+			}
+			tx.commit();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		database.close();
+	}
+
+	@Benchmark
+	public void decodeGeometry(Blackhole blackhole) {
+		try (Transaction tx = database.db().beginTx()) {
+			for (String nodeId : geometryNodes) {
+				blackhole.consume(geometryEncoder.decodeGeometry(tx.getNodeByElementId(nodeId)));
+			}
+			tx.commit();
+		}
+	}
+
+	@Benchmark
+	public void decodeEnvelope(Blackhole blackhole) {
+		try (Transaction tx = database.db().beginTx()) {
+			for (String nodeId : geometryNodes) {
+				blackhole.consume(geometryEncoder.decodeEnvelope(tx.getNodeByElementId(nodeId)));
+			}
+			tx.commit();
+		}
+	}
+}
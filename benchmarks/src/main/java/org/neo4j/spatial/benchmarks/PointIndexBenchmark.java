@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.spatial.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.neo4j.gis.spatial.filter.SearchIntersectWindow;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.spatial.api.layer.EditableLayer;
+import org.neo4j.spatial.api.layer.Layer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Window queries on the point indexes backed by Neo4j schema indexes, with the RTree backed SimplePoint layer as
+ * a reference.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PointIndexBenchmark {
+
+	@Param({"Hilbert", "ZOrder", "Geohash", "SimplePoint"})
+	public String layerType;
+
+	@Param({"1000", "10000", "100000"})
+	public int size;
+
+	@Param({"0.0001", "0.01"})
+	public double windowFraction;
+
+	private BenchmarkDatabase database;
+	private Layer layer;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		database = new BenchmarkDatabase();
+		List<String> nodes = database.createPointNodes(size, 42);
+		try (Transaction tx = database.db().beginTx()) {
+			database.spatial().getOrCreateRegisteredTypeLayer(tx, layerType, layerType, null, null, false);
+			tx.commit();
+		}
+		for (int start = 0; start < nodes.size(); start += BenchmarkDatabase.BATCH_SIZE) {
+			List<String> batch = nodes.subList(start, Math.min(nodes.size(), start + BenchmarkDatabase.BATCH_SIZE));
+			try (Transaction tx = database.db().beginTx()) {
+				EditableLayer editableLayer = (EditableLayer) database.spatial().getLayer(tx, layerType, false);
+				editableLayer.addAll(tx, batch.stream().map(tx::getNodeByElementId).collect(Collectors.toList()));
+				editableLayer.finalizeTransaction(tx);
+				tx.commit();
+			}
+		}
+		try (Transaction tx = database.db().beginTx()) {
+			layer = database.spatial().getLayer(tx, layerType, true);
+			tx.commit();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		database.close();
+	}
+
+	@Benchmark
+	public void windowSearch(Blackhole blackhole) {
+		try (Transaction tx = database.db().beginTx()) {
+			layer.getIndex()
+					.search(tx, new SearchIntersectWindow(layer, BenchmarkDatabase.searchWindow(windowFraction)))
+					.forEach(blackhole::consume);
+			tx.commit();
+		}
+	}
+}
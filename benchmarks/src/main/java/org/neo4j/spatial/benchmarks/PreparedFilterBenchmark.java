@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.spatial.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.locationtech.jts.geom.Polygon;
+import org.neo4j.gis.spatial.pipes.GeoPipeline;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.spatial.api.layer.Layer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Filtering a point layer with a polygon of many vertices, comparing the within filter pipe, which prepares the
+ * polygon once, with testing each geometry against the raw polygon.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PreparedFilterBenchmark {
+
+	private static final String LAYER = "points";
+
+	@Param({"1000", "10000"})
+	public int size;
+
+	@Param({"1000", "50000"})
+	public int vertices;
+
+	private BenchmarkDatabase database;
+	private Layer layer;
+	private Polygon polygon;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		database = new BenchmarkDatabase();
+		try (Transaction tx = database.db().beginTx()) {
+			database.spatial().getOrCreateRegisteredTypeLayer(tx, LAYER, "WKB", null, null, false);
+			tx.commit();
+		}
+		database.addGeometries(LAYER, size, BenchmarkDatabase::randomPoint, 42);
+		try (Transaction tx = database.db().beginTx()) {
+			layer = database.spatial().getLayer(tx, LAYER, true);
+			tx.commit();
+		}
+		polygon = BenchmarkDatabase.jaggedPolygon(layer.getGeometryFactory(), BenchmarkDatabase.WIDTH / 4, vertices,
+				42);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		database.close();
+	}
+
+	@Benchmark
+	public long unpreparedWithin() {
+		try (Transaction tx = database.db().beginTx()) {
+			return GeoPipeline.start(tx, layer).stream()
+					.filter(flow -> flow.getGeometry().within(polygon))
+					.count();
+		}
+	}
+
+	@Benchmark
+	public long withinFilter() {
+		try (Transaction tx = database.db().beginTx()) {
+			return GeoPipeline.start(tx, layer).withinFilter(polygon).count();
+		}
+	}
+}
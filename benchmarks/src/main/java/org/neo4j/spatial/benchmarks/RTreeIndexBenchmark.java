@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.spatial.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.neo4j.gis.spatial.filter.SearchIntersectWindow;
+import org.neo4j.gis.spatial.rtree.NullListener;
+import org.neo4j.gis.spatial.rtree.RTreeIndex;
+import org.neo4j.gis.spatial.rtree.STRBulkLoader;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.spatial.api.layer.EditableLayer;
+import org.neo4j.spatial.api.layer.Layer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Insert, bulk insert, window search and removal on a SimplePoint layer backed by the RTreeIndex. The write
+ * benchmarks measure a single run over the whole data set, on a layer and nodes prepared before each iteration.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RTreeIndexBenchmark {
+
+	private static final String LAYER = "rtree";
+
+	@Param({"1000", "10000", "100000"})
+	public int size;
+
+	private BenchmarkDatabase database;
+
+	@Setup(Level.Trial)
+	public void startDatabase() {
+		database = new BenchmarkDatabase();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopDatabase() {
+		database.close();
+	}
+
+	/**
+	 * An empty layer and a fresh set of point nodes, to be indexed by the benchmark.
+	 */
+	@State(Scope.Benchmark)
+	public static class EmptyLayer {
+
+		private BenchmarkDatabase database;
+		private List<String> nodes;
+
+		@Setup(Level.Iteration)
+		public void setup(RTreeIndexBenchmark benchmark) {
+			database = benchmark.database;
+			nodes = database.createPointNodes(benchmark.size, 42);
+			try (Transaction tx = database.db().beginTx()) {
+				database.spatial().getOrCreateRegisteredTypeLayer(tx, LAYER, "SimplePoint", null, null, false);
+				tx.commit();
+			}
+		}
+
+		@TearDown(Level.Iteration)
+		public void tearDown() {
+			deleteLayer(database);
+		}
+	}
+
+	/**
+	 * A layer with all points indexed, to be searched or emptied by the benchmark.
+	 */
+	@State(Scope.Benchmark)
+	public static class PopulatedLayer {
+
+		private BenchmarkDatabase database;
+		private List<String> nodes;
+		private Layer layer;
+
+		@Setup(Level.Iteration)
+		public void setup(RTreeIndexBenchmark benchmark) {
+			database = benchmark.database;
+			nodes = database.createPointNodes(benchmark.size, 42);
+			try (Transaction tx = database.db().beginTx()) {
+				database.spatial().getOrCreateRegisteredTypeLayer(tx, LAYER, "SimplePoint", null, null, false);
+				tx.commit();
+			}
+			insertInBatches(database, nodes);
+			try (Transaction tx = database.db().beginTx()) {
+				layer = database.spatial().getLayer(tx, LAYER, true);
+				tx.commit();
+			}
+		}
+
+		@TearDown(Level.Iteration)
+		public void tearDown() {
+			deleteLayer(database);
+		}
+	}
+
+	private static void insertInBatches(BenchmarkDatabase database, List<String> nodes) {
+		for (int start = 0; start < nodes.size(); start += BenchmarkDatabase.BATCH_SIZE) {
+			List<String> batch = nodes.subList(start, Math.min(nodes.size(), start + BenchmarkDatabase.BATCH_SIZE));
+			try (Transaction tx = database.db().beginTx()) {
+				EditableLayer layer = (EditableLayer) database.spatial().getLayer(tx, LAYER, false);
+				layer.addAll(tx, batch.stream().map(tx::getNodeByElementId).collect(Collectors.toList()));
+				layer.finalizeTransaction(tx);
+				tx.commit();
+			}
+		}
+	}
+
+	private static void deleteLayer(BenchmarkDatabase database) {
+		try (Transaction tx = database.db().beginTx()) {
+			database.spatial().deleteLayer(tx, LAYER, new NullListener());
+			tx.commit();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	public void insert(EmptyLayer state) {
+		for (int start = 0; start < state.nodes.size(); start += BenchmarkDatabase.BATCH_SIZE) {
+			try (Transaction tx = database.db().beginTx()) {
+				EditableLayer layer = (EditableLayer) database.spatial().getLayer(tx, LAYER, false);
+				for (String nodeId : state.nodes.subList(start,
+						Math.min(state.nodes.size(), start + BenchmarkDatabase.BATCH_SIZE))) {
+					layer.add(tx, tx.getNodeByElementId(nodeId));
+				}
+				layer.finalizeTransaction(tx);
+				tx.commit();
+			}
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	public void bulkInsert(EmptyLayer state) {
+		insertInBatches(database, state.nodes);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	public void strBulkLoad(EmptyLayer state) {
+		RTreeIndex index;
+		try (Transaction tx = database.db().beginTx()) {
+			index = (RTreeIndex) database.spatial().getLayer(tx, LAYER, false).getIndex();
+			tx.commit();
+		}
+		new STRBulkLoader(database.db(), index).load(state.nodes);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	public void remove(PopulatedLayer state) {
+		for (int start = 0; start < state.nodes.size(); start += BenchmarkDatabase.BATCH_SIZE) {
+			try (Transaction tx = database.db().beginTx()) {
+				EditableLayer layer = (EditableLayer) database.spatial().getLayer(tx, LAYER, false);
+				for (String nodeId : state.nodes.subList(start,
+						Math.min(state.nodes.size(), start + BenchmarkDatabase.BATCH_SIZE))) {
+					layer.removeFromIndex(tx, nodeId);
+				}
+				layer.finalizeTransaction(tx);
+				tx.commit();
+			}
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	public void windowSearch(PopulatedLayer state, Blackhole blackhole) {
+		try (Transaction tx = database.db().beginTx()) {
+			state.layer.getIndex()
+					.search(tx, new SearchIntersectWindow(state.layer, BenchmarkDatabase.searchWindow(0.01)))
+					.forEach(blackhole::consume);
+			tx.commit();
+		}
+	}
+}
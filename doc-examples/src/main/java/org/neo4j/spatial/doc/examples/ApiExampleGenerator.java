@@ -438,6 +438,45 @@ public class ApiExampleGenerator implements Callable<Integer> {
 						c -> c.setParams(Map.of("wkt", points)))
 				.runCypher("CALL spatial.closest('geom',{lon:15.0, lat:60.0}, 1.0)");
 
+		docExample("spatial.nearest", "Find the k geometries closest to a point")
+				.runCypher("CALL spatial.addWKTLayer('geom', 'wkt')", ExampleCypher::skipResult)
+				.runCypher("CALL spatial.addWKTs('geom',$wkt)",
+						c -> c.skipResult().setParams(Map.of("wkt", List.of(
+								"POINT (15.2 60.1)", "POINT (15.5 60.3)", "LINESTRING (15.0 60.0, 15.0 61.0)"))))
+				.runCypher("CALL spatial.nearest('geom',{lon:15.3, lat:60.1}, 2) YIELD node, distance\n"
+						+ " RETURN node.wkt as wkt, distance");
+
+		docExample("spatial.bboxBatch", "Find geometries in several boxes with one search of the index")
+				.runCypher("CALL spatial.addWKTLayer('geom', 'wkt')", ExampleCypher::skipResult)
+				.runCypher("CALL spatial.addWKTs('geom',$wkt)",
+						c -> c.skipResult().setParams(Map.of("wkt", List.of(
+								"POINT (15.2 60.1)", "POINT (15.5 60.3)", "POINT (25.2 30.1)"))))
+				.runCypher("CALL spatial.bboxBatch('geom', [[{lon:15.0, lat:60.0}, {lon:15.3, lat:60.2}],"
+						+ " {min: {lon:25.0, lat:30.0}, max: {lon:25.5, lat:30.5}}]) YIELD queryIndex, node\n"
+						+ " RETURN queryIndex, node.wkt as wkt");
+
+		docExample("spatial.withinDistanceBatch", "Find geometries near several points with one search of the index")
+				.runCypher("CALL spatial.addWKTLayer('geom', 'wkt')", ExampleCypher::skipResult)
+				.runCypher("CALL spatial.addWKTs('geom',$wkt)",
+						c -> c.skipResult().setParams(Map.of("wkt", List.of(
+								"POINT (15.2 60.1)", "POINT (15.5 60.3)", "POINT (25.2 30.1)"))))
+				.runCypher("CALL spatial.withinDistanceBatch('geom', [{lon:15.3, lat:60.1}, {lon:25.2, lat:30.2}], 20)"
+						+ " YIELD queryIndex, node, distance\n"
+						+ " RETURN queryIndex, node.wkt as wkt, distance");
+
+		docExample("spatial.join", "Find the pairs of geometries from two layers that intersect")
+				.runCypher("CALL spatial.addWKTLayer('zones', 'wkt')", ExampleCypher::skipResult)
+				.runCypher("CALL spatial.addWKTLayer('places', 'wkt')", ExampleCypher::skipResult)
+				.runCypher("CALL spatial.addWKTs('zones',$wkt)",
+						c -> c.skipResult().setParams(Map.of("wkt", List.of(
+								"POLYGON ((15 60, 16 60, 16 61, 15 61, 15 60))",
+								"POLYGON ((20 50, 21 50, 21 51, 20 51, 20 50))"))))
+				.runCypher("CALL spatial.addWKTs('places',$wkt)",
+						c -> c.skipResult().setParams(Map.of("wkt", List.of(
+								"POINT (15.2 60.1)", "POINT (17.5 60.3)", "LINESTRING (20.5 49.5, 20.5 50.5)"))))
+				.runCypher("CALL spatial.join('zones', 'places', 'intersects') YIELD nodeA, nodeB\n"
+						+ " RETURN nodeA.wkt as zone, nodeB.wkt as place");
+
 		docExample("spatial.cql", "Find geometries using CQL")
 				.runCypher("CALL spatial.addWKTLayer('geom','wkt') YIELD node")
 				.runCypher("""
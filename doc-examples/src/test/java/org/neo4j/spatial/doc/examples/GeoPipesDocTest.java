@@ -709,6 +709,9 @@ public class GeoPipesDocTest extends AbstractJavaDocTestBase {
 			fail();
 		} catch (NoSuchElementException ignored) {
 		}
+
+		Geometry cascaded = GeoPipeline.start(tx, intersectionLayer).unionAll(2).next().getGeometry();
+		assertTrue(cascaded.equalsTopo(GeoPipeline.start(tx, intersectionLayer).unionAll().next().getGeometry()));
 	}
 
 	@Test
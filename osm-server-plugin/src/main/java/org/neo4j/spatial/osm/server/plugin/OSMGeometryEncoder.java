@@ -37,6 +37,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import org.locationtech.jts.algorithm.ConvexHull;
 import org.locationtech.jts.geom.Coordinate;
@@ -65,14 +66,15 @@ public class OSMGeometryEncoder extends AbstractGeometryEncoder {
 	private static final String PROPERTY_VERTICES = "vertices";
 	private static final String PROPERTY_LAT = "lat";
 	private static final String PROPERTY_LON = "lon";
-	private static int decodedCount = 0;
-	private static int overrunCount = 0;
+	// decoding runs on several worker threads when re-indexing or searching in parallel
+	private static final AtomicInteger decodedCount = new AtomicInteger();
+	private static final AtomicInteger overrunCount = new AtomicInteger();
 	private static int nodeId = 0;
 	private static int wayId = 0;
 	private static int relationId = 0;
 	private DateFormat dateTimeFormatter;
 	private int vertices;
-	private int vertexMistmaches = 0;
+	private final AtomicInteger vertexMistmaches = new AtomicInteger();
 
 	@Override
 	public List<String> getIdentifiers() {
@@ -349,29 +351,28 @@ public class OSMGeometryEncoder extends AbstractGeometryEncoder {
 
 	private Geometry decodeGeometryFromWay(Node wayNode, int gtype, int vertices, GeometryFactory geomFactory) {
 		ArrayList<Coordinate> coordinates = new ArrayList<>();
-		boolean overrun = false;
+		int overruns = -1;
 		for (Node node : getPointNodesFromWayNode(wayNode)) {
 			if (coordinates.size() >= vertices) {
-				overrun = true;
-				overrunCount++;
+				overruns = overrunCount.incrementAndGet();
 				break;
 			}
 			coordinates.add(
 					new Coordinate((Double) node.getProperty(PROPERTY_LON), (Double) node.getProperty(PROPERTY_LAT)));
 		}
-		decodedCount++;
-		if (overrun) {
+		int decoded = decodedCount.incrementAndGet();
+		if (overruns > 0) {
 			LOGGER.info(
-					"Overran expected number of way nodes: " + wayNode + " (" + overrunCount + "/" + decodedCount
-							+ ")");
+					"Overran expected number of way nodes: " + wayNode + " (" + overruns + "/" + decoded + ")");
 		}
 		if (coordinates.size() != vertices) {
-			if (vertexMistmaches++ < 10) {
+			int mismatches = vertexMistmaches.incrementAndGet();
+			if (mismatches <= 10) {
 				LOGGER.warning(
 						"Mismatching vertices size for " + SpatialDatabaseService.convertGeometryTypeToName(gtype) + ":"
 								+ wayNode + ": " + coordinates.size() + " != " + vertices);
-			} else if (vertexMistmaches % 100 == 0) {
-				LOGGER.warning("Mismatching vertices found " + vertexMistmaches + " times");
+			} else if (mismatches % 100 == 0) {
+				LOGGER.warning("Mismatching vertices found " + mismatches + " times");
 			}
 		}
 		return switch (coordinates.size()) {
@@ -32,14 +32,18 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -47,6 +51,12 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -115,6 +125,7 @@ public class OSMImporter {
 	private SecurityContext securityContext = SecurityContext.AUTH_DISABLED;
 
 	private Charset charset = Charset.defaultCharset();
+	private int workerThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
 
 	private static class TagStats {
 
@@ -250,6 +261,20 @@ public class OSMImporter {
 	}
 
 	public long reIndex(GraphDatabaseService database, int commitInterval, boolean includePoints) {
+		return reIndex(database, commitInterval, includePoints, false);
+	}
+
+	/**
+	 * Rebuild the layer index from the imported ways, or from the changesets when all entities have one.
+	 *
+	 * @param commitInterval the number of ways or changesets to index in each transaction
+	 * @param includePoints  also index the nodes of each way, which only applies when re-indexing from the ways
+	 * @param parallel       find and verify the geometries of each batch of ways or changesets on the worker threads,
+	 *                       and add them to the index with one bulk insertion per batch instead of one insertion
+	 *                       per geometry
+	 * @return the number of ways or changesets that were re-indexed
+	 */
+	public long reIndex(GraphDatabaseService database, int commitInterval, boolean includePoints, boolean parallel) {
 		if (commitInterval < 1) {
 			throw new IllegalArgumentException("commitInterval must be >= 1");
 		}
@@ -282,8 +307,18 @@ public class OSMImporter {
 				.relationships(OSMRelation.FIRST_NODE, Direction.OUTGOING)
 				.relationships(OSMRelation.NEXT, Direction.OUTGOING);
 
-		Transaction tx = beginTx(database);
 		boolean useWays = missingChangesets > 0;
+		if (parallel) {
+			long count = reIndexInParallel(database, layer, dataset, commitInterval, useWays, includePoints, findWays,
+					findNodes);
+			if (LOGGER.isLoggable(Level.FINER)) {
+				long stopTime = System.currentTimeMillis();
+				log("info | Re-indexing elapsed time in seconds: " + (1.0 * (stopTime - startTime) / 1000.0));
+				stats.dumpGeomStats();
+			}
+			return count;
+		}
+		Transaction tx = beginTx(database);
 		int count = 0;
 		try {
 			layer.setExtraPropertyNames(stats.getTagStats("all").getTags(), tx);
@@ -356,6 +391,117 @@ public class OSMImporter {
 		return count;
 	}
 
+	private record GeometryBatch(List<String> geometryNodes, List<Integer> geometryTypes) {
+
+	}
+
+	/**
+	 * Split the ways, or the changesets when not using the ways, into batches of commitInterval, and find their
+	 * verified geometry nodes on the worker threads. The batches are added to the index in order on this thread, with
+	 * a bounded number of batches being read ahead, since the index is not safe for concurrent writes.
+	 */
+	private long reIndexInParallel(GraphDatabaseService database, OSMLayer layer, OSMDataset dataset,
+			int commitInterval, boolean useWays, boolean includePoints, TraversalDescription findWays,
+			TraversalDescription findNodes) {
+		List<String> sources = new ArrayList<>();
+		try (Transaction tx = beginTx(database)) {
+			Iterable<Node> nodes = useWays
+					? findWays.traverse(tx.getNodeByElementId(osm_dataset)).nodes()
+					: dataset.getAllChangesetNodes(tx);
+			for (Node node : nodes) {
+				sources.add(node.getElementId());
+			}
+			layer.setExtraPropertyNames(stats.getTagStats("all").getTags(), tx);
+			tx.commit();
+		}
+		ExecutorService workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+			Thread thread = new Thread(runnable, "OSMImporter-index-" + layerName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		ArrayDeque<CompletableFuture<GeometryBatch>> pending = new ArrayDeque<>();
+		int count = 0;
+		beginProgressMonitor(sources.size());
+		try {
+			for (int start = 0; start < sources.size(); start += commitInterval) {
+				List<String> batch = sources.subList(start, Math.min(sources.size(), start + commitInterval));
+				pending.add(CompletableFuture.supplyAsync(
+						() -> findGeometryNodes(database, layer, batch, useWays, includePoints, findNodes),
+						workers));
+				if (pending.size() > workerThreads) {
+					addGeometryNodes(database, layer, pending.remove().join());
+					count = Math.min(sources.size(), count + commitInterval);
+					updateProgressMonitor(count);
+				}
+			}
+			while (!pending.isEmpty()) {
+				addGeometryNodes(database, layer, pending.remove().join());
+				count = Math.min(sources.size(), count + commitInterval);
+				updateProgressMonitor(count);
+			}
+			try (Transaction tx = beginTx(database)) {
+				layer.finalizeTransaction(tx);
+				tx.commit();
+			}
+		} finally {
+			pending.forEach(future -> future.cancel(true));
+			workers.shutdownNow();
+			endProgressMonitor();
+		}
+		return count;
+	}
+
+	/**
+	 * Runs on a worker thread, with its own read transaction.
+	 */
+	private GeometryBatch findGeometryNodes(GraphDatabaseService database, OSMLayer layer, List<String> sources,
+			boolean useWays, boolean includePoints, TraversalDescription findNodes) {
+		LinkedHashMap<String, Integer> geometryNodes = new LinkedHashMap<>();
+		try (Transaction tx = beginTx(database)) {
+			for (String sourceId : sources) {
+				Node source = tx.getNodeByElementId(sourceId);
+				if (useWays) {
+					addVerifiedGeometryNode(layer, source, geometryNodes);
+					if (includePoints) {
+						for (Node proxy : findNodes.traverse(source).nodes()) {
+							Relationship nodeRel = proxy.getSingleRelationship(OSMRelation.NODE, Direction.OUTGOING);
+							if (nodeRel != null) {
+								addVerifiedGeometryNode(layer, nodeRel.getEndNode(), geometryNodes);
+							}
+						}
+					}
+				} else {
+					try (var relationships = source.getRelationships(Direction.INCOMING, OSMRelation.CHANGESET)) {
+						for (Relationship rel : relationships) {
+							addVerifiedGeometryNode(layer, rel.getStartNode(), geometryNodes);
+						}
+					}
+				}
+			}
+			tx.commit();
+		}
+		return new GeometryBatch(new ArrayList<>(geometryNodes.keySet()), new ArrayList<>(geometryNodes.values()));
+	}
+
+	private static void addVerifiedGeometryNode(OSMLayer layer, Node way, Map<String, Integer> geometryNodes) {
+		Node geomNode = layer.getVerifiedGeometryNode(way);
+		if (geomNode != null) {
+			geometryNodes.putIfAbsent(geomNode.getElementId(), (Integer) geomNode.getProperty(PROP_TYPE, null));
+		}
+	}
+
+	private void addGeometryNodes(GraphDatabaseService database, OSMLayer layer, GeometryBatch batch) {
+		try (Transaction tx = beginTx(database)) {
+			List<Node> geomNodes = new ArrayList<>(batch.geometryNodes().size());
+			for (String geomNodeId : batch.geometryNodes()) {
+				geomNodes.add(tx.getNodeByElementId(geomNodeId));
+			}
+			layer.addGeometryNodes(tx, geomNodes);
+			tx.commit();
+		}
+		batch.geometryTypes().forEach(stats::addGeomStats);
+	}
+
 	private static List<Node> toList(Iterable<Node> iterable) {
 		ArrayList<Node> list = new ArrayList<>();
 		if (iterable != null) {
@@ -432,6 +578,10 @@ public class OSMImporter {
 		final OSMImporter osmImporter;
 		T osm_dataset;
 		long missingChangesets = 0;
+		/**
+		 * The OSM nodes of the current import, with their locations and the element ids of the nodes created.
+		 */
+		OSMNodeStore nodeStore;
 
 		private OSMWriter(StatsManager statsManager, OSMImporter osmImporter) {
 			this.statsManager = statsManager;
@@ -650,8 +800,13 @@ public class OSMImporter {
 			}
 		}
 
+		/**
+		 * Create a new OSM way with a chain of proxy nodes to its OSM nodes. When the parser already computed the
+		 * geometry metadata of the way from the node locations, it is used instead of reading the location
+		 * properties of each node, as long as all the nodes found were also known to the parser.
+		 */
 		protected void createOSMWay(Map<String, Object> wayProperties,
-				ArrayList<Long> wayNodes, LinkedHashMap<String, Object> wayTags) {
+				ArrayList<Long> wayNodes, LinkedHashMap<String, Object> wayTags, WayGeometry wayGeometry) {
 			RoadDirection direction = getRoadDirection(wayTags);
 			String name = (String) wayTags.get("name");
 			int geometry = GTYPE_LINESTRING;
@@ -677,45 +832,62 @@ public class OSMImporter {
 			}
 			prev_way = way;
 			addNodeTags(way, wayTags, "way");
-			Envelope bbox = null;
-			T firstNode = null;
-			T prevNode = null;
-			T prevProxy = null;
-			Map<String, Object> prevProps = null;
-			LinkedHashMap<String, Object> relProps = new LinkedHashMap<>();
+			ArrayList<T> pointNodes = new ArrayList<>(wayNodes.size());
+			int foundNodes = 0;
 			for (long nd_ref : wayNodes) {
-				T pointNode = getOSMNode(nd_ref, changesetNode);
+				T pointNode = getOSMNode(nd_ref);
 				if (pointNode == null) {
 					/*
 					 * This can happen if we import not whole planet, so some referenced
 					 * nodes will be unavailable
 					 */
 					missingNode(nd_ref);
-					continue;
+				} else {
+					foundNodes++;
 				}
-				T proxyNode = createProxyNode();
-				if (firstNode == null) {
-					firstNode = pointNode;
+				pointNodes.add(pointNode);
+			}
+			if (wayGeometry != null && wayGeometry.knownNodes() != foundNodes) {
+				// Some nodes come from an earlier import, so the parser did not know their locations
+				wayGeometry = null;
+			}
+			Envelope bbox = wayGeometry == null ? null : wayGeometry.bbox();
+			Long firstRef = null;
+			long prevRef = 0;
+			T prevProxy = null;
+			double[] prevLocation = null;
+			int segment = 0;
+			LinkedHashMap<String, Object> relProps = new LinkedHashMap<>();
+			for (int i = 0; i < wayNodes.size(); i++) {
+				T pointNode = pointNodes.get(i);
+				if (pointNode == null) {
+					continue;
 				}
-				if (prevNode == pointNode) {
+				long nd_ref = wayNodes.get(i);
+				if (firstRef == null) {
+					firstRef = nd_ref;
+				} else if (nd_ref == prevRef) {
 					continue;
 				}
+				T proxyNode = createProxyNode();
 				createRelationship(proxyNode, pointNode, OSMRelation.NODE, null);
-				Map<String, Object> nodeProps = getNodeProperties(pointNode);
-				double[] location = new double[]{
-						(Double) nodeProps.get("lon"),
-						(Double) nodeProps.get("lat")};
-				if (bbox == null) {
-					bbox = new Envelope(location);
-				} else {
-					bbox.expandToInclude(location);
+				double[] location = null;
+				if (wayGeometry == null) {
+					Map<String, Object> nodeProps = getNodeProperties(pointNode);
+					location = new double[]{(Double) nodeProps.get("lon"), (Double) nodeProps.get("lat")};
+					if (bbox == null) {
+						bbox = new Envelope(location);
+					} else {
+						bbox.expandToInclude(location);
+					}
 				}
 				if (prevProxy == null) {
 					createRelationship(way, proxyNode, OSMRelation.FIRST_NODE);
 				} else {
 					relProps.clear();
-					double[] prevLoc = new double[]{(Double) prevProps.get("lon"), (Double) prevProps.get("lat")};
-					double length = distance(prevLoc[0], prevLoc[1], location[0], location[1]);
+					double length = wayGeometry == null
+							? distance(prevLocation[0], prevLocation[1], location[0], location[1])
+							: wayGeometry.lengths()[segment++];
 					relProps.put("length", length);
 					/*
 					 * We default to bidirectional (and don't store direction in the way node),
@@ -727,11 +899,11 @@ public class OSMImporter {
 						createRelationship(prevProxy, proxyNode, OSMRelation.NEXT, relProps);
 					}
 				}
-				prevNode = pointNode;
+				prevRef = nd_ref;
 				prevProxy = proxyNode;
-				prevProps = nodeProps;
+				prevLocation = location;
 			}
-			if (firstNode != null && prevNode == firstNode) {
+			if (firstRef != null && firstRef == prevRef) {
 				geometry = GTYPE_POLYGON;
 			}
 			if (wayNodes.size() < 2) {
@@ -766,7 +938,7 @@ public class OSMImporter {
 				long member_ref = Long.parseLong(memberProps.get("ref").toString());
 				if (memberType != null) {
 					T member = switch (memberType) {
-						case "node" -> getSingleNode(LABEL_NODE, memberType + "_osm_id", member_ref);
+						case "node" -> getOSMNode(member_ref);
 						case "way" -> getSingleNode(LABEL_WAY, memberType + "_osm_id", member_ref);
 						case "relation" -> getSingleNode(LABEL_RELATION, memberType + "_osm_id", member_ref);
 						default -> null;
@@ -784,14 +956,17 @@ public class OSMImporter {
 								+ memberProps + "]");
 						continue;
 					}
-					Map<String, Object> nodeProps = getNodeProperties(member);
 					if (memberType.equals("node")) {
-						double[] location = new double[]{(Double) nodeProps.get("lon"), (Double) nodeProps.get("lat")};
+						double[] location = new double[2];
+						if (!nodeStore.location(member_ref, location)) {
+							Map<String, Object> nodeProps = getNodeProperties(member);
+							location = new double[]{(Double) nodeProps.get("lon"), (Double) nodeProps.get("lat")};
+						}
 						metaGeom.expandToIncludePoint(location);
 					} else if (memberType.equals("nodes")) {
 						LOGGER.warning("Unexpected 'nodes' member type");
 					} else {
-						updateGeometryMetaDataFromMember(member, metaGeom, nodeProps);
+						updateGeometryMetaDataFromMember(member, metaGeom, getNodeProperties(member));
 					}
 					relProps.clear();
 					String role = (String) memberProps.get("role");
@@ -825,7 +1000,7 @@ public class OSMImporter {
 
 		protected abstract Map<String, Object> getNodeProperties(T member);
 
-		protected abstract T getOSMNode(long osmId, T changesetNode);
+		protected abstract T getOSMNode(long osmId);
 
 		protected abstract void updateGeometryMetaDataFromMember(T member,
 				GeometryMetaData metaGeom, Map<String, Object> nodeProps);
@@ -906,7 +1081,6 @@ public class OSMImporter {
 		private long currentUserId = -1;
 		private WrappedNode currentUserNode;
 		private WrappedNode usersNode;
-		private final HashMap<Long, WrappedNode> changesetNodes = new HashMap<>();
 		private Transaction tx;
 		private int checkCount = 0;
 		private final int txInterval;
@@ -971,11 +1145,10 @@ public class OSMImporter {
 			recoverNode(currentChangesetNode);
 			recoverNode(currentUserNode);
 			recoverNode(usersNode);
-			changesetNodes.forEach((id, node) -> node.refresh(tx));
 		}
 
 		private WrappedNode checkTx(WrappedNode previous) {
-			if (checkCount++ > txInterval || tx == null || checkCount > 10) {
+			if (checkCount++ > txInterval || tx == null) {
 				successTx();
 				beginTx();
 				recoverNode(previous);
@@ -1189,31 +1362,26 @@ public class OSMImporter {
 		}
 
 		@Override
-		protected WrappedNode getOSMNode(long osmId, WrappedNode changesetNode) {
-			if (currentChangesetNode != changesetNode || changesetNodes.isEmpty()) {
-				currentChangesetNode = changesetNode;
-				changesetNodes.clear();
-				if (changesetNode != null) {
-					try (var relationships = changesetNode.getRelationships(Direction.INCOMING,
-							OSMRelation.CHANGESET)) {
-						for (Relationship rel : relationships) {
-							Node node = rel.getStartNode();
-							Long nodeOsmId = (Long) node.getProperty(PROP_NODE_ID, null);
-							if (nodeOsmId != null) {
-								changesetNodes.put(nodeOsmId, WrappedNode.fromNode(node));
-							}
-						}
-					}
-				}
+		void createOSMNode(Map<String, Object> nodeProps) {
+			super.createOSMNode(nodeProps);
+			if (nodeProps.get(PROP_NODE_ID) instanceof Long osmId) {
+				nodeStore.setElementId(osmId, currentNode.getId());
 			}
-			WrappedNode node = changesetNodes.get(osmId);
-			if (node == null) {
-				logNodeFoundFrom("node-index");
-				node = WrappedNode.fromNode(findNodeByLabelProperty(tx, LABEL_NODE, PROP_NODE_ID, osmId));
-			} else {
-				logNodeFoundFrom(PROP_CHANGESET);
+		}
+
+		/**
+		 * Nodes created by this import are found by element id through the node store, and only nodes from earlier
+		 * imports into the same layer need the node index.
+		 */
+		@Override
+		protected WrappedNode getOSMNode(long osmId) {
+			String elementId = nodeStore.elementId(osmId);
+			if (elementId != null) {
+				logNodeFoundFrom("node-store");
+				return WrappedNode.fromNode(tx.getNodeByElementId(elementId));
 			}
-			return node;
+			logNodeFoundFrom("node-index");
+			return WrappedNode.fromNode(findNodeByLabelProperty(tx, LABEL_NODE, PROP_NODE_ID, osmId));
 		}
 
 		@Override
@@ -1405,6 +1573,23 @@ public class OSMImporter {
 		this.charset = charset;
 	}
 
+	/**
+	 * The number of threads computing way geometry metadata while the file is being imported. The XML parsing and
+	 * the database writes each run on their own thread, overlapping with each other and with these workers.
+	 */
+	public void setWorkerThreads(int workerThreads) {
+		if (workerThreads < 1) {
+			throw new IllegalArgumentException("workerThreads must be >= 1");
+		}
+		this.workerThreads = workerThreads;
+	}
+
+	/**
+	 * Import the file in a staged pipeline. A parser thread reads the XML, or PBF for files ending in .pbf, into
+	 * batches of entities, the way geometry metadata of those batches is computed by a pool of workers, and the
+	 * calling thread writes the batches in file order. The writes stay on the calling thread, because the
+	 * transactions are bound to it and each entity is chained to the previous one written.
+	 */
 	private void importFile(OSMWriter<?> osmWriter, String dataset, boolean allPoints, Charset charset)
 			throws IOException, XMLStreamException {
 		log("Importing with osm-writer: " + osmWriter);
@@ -1413,121 +1598,75 @@ public class OSMImporter {
 
 		long startTime = System.currentTimeMillis();
 		long[] times = new long[]{0L, 0L, 0L, 0L};
-		javax.xml.stream.XMLInputFactory factory = javax.xml.stream.XMLInputFactory.newInstance();
-		CountedFileReader reader = new CountedFileReader(dataset, charset);
-		javax.xml.stream.XMLStreamReader parser = factory.createXMLStreamReader(reader);
-		int countXMLTags = 0;
+		boolean pbf = dataset.toLowerCase().endsWith(".pbf");
 		beginProgressMonitor(100);
 		setLogContext(dataset);
-		boolean startedWays = false;
-		boolean startedRelations = false;
-		try {
-			ArrayList<String> currentXMLTags = new ArrayList<>();
-			int depth = 0;
-			Map<String, Object> wayProperties = null;
-			ArrayList<Long> wayNodes = new ArrayList<>();
-			Map<String, Object> relationProperties = null;
-			ArrayList<Map<String, Object>> relationMembers = new ArrayList<>();
-			LinkedHashMap<String, Object> currentNodeTags = new LinkedHashMap<>();
-			while (true) {
-				updateProgressMonitor(reader.getPercentRead());
-				incrLogContext();
-				int event = parser.next();
-				if (event == javax.xml.stream.XMLStreamConstants.END_DOCUMENT) {
-					break;
+		OSMNodeStore nodeStore = new OSMNodeStore();
+		osmWriter.nodeStore = nodeStore;
+		ExecutorService workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+			Thread thread = new Thread(runnable, "OSMImporter-ways-" + layerName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		EntityQueue queue = new EntityQueue(nodeStore, workers);
+		Thread parserThread = new Thread(() -> {
+			try {
+				if (pbf) {
+					readPBF(dataset, queue, workers);
+				} else {
+					parseXML(dataset, charset, queue);
 				}
-				switch (event) {
-					case javax.xml.stream.XMLStreamConstants.START_ELEMENT:
-						currentXMLTags.add(depth, parser.getLocalName());
-						String tagPath = currentXMLTags.toString();
-						if (tagPath.equals("[osm]")) {
-							osmWriter.setDatasetProperties(extractProperties(parser));
-						} else if (tagPath.equals("[osm, bounds]")) {
-							osmWriter.addOSMBBox(extractProperties(PROP_BBOX, parser));
-						} else if (tagPath.equals("[osm, node]")) {
-							/* <node id="269682538" lat="56.0420950" lon="12.9693483" user="sanna" uid="31450" visible="true" version="1" changeset="133823" timestamp="2008-06-11T12:36:28Z"/> */
-							boolean includeNode = true;
-							Map<String, Object> nodeProperties = extractProperties("node", parser);
-							if (filterEnvelope != null) {
-								includeNode = filterEnvelope.contains((Double) nodeProperties.get("lon"),
-										(Double) nodeProperties.get("lat"));
-							}
-							if (includeNode) {
-								osmWriter.createOSMNode(nodeProperties);
-							}
-						} else if (tagPath.equals("[osm, way]")) {
-							/* <way id="27359054" user="spull" uid="61533" visible="true" version="8" changeset="4707351" timestamp="2010-05-15T15:39:57Z"> */
-							if (!startedWays) {
-								startedWays = true;
-								osmWriter.startWays();
-								times[0] = System.currentTimeMillis();
-								osmWriter.optimize();
-								times[1] = System.currentTimeMillis();
-							}
-							wayProperties = extractProperties("way", parser);
-							wayNodes.clear();
-						} else if (tagPath.equals("[osm, way, nd]")) {
-							Map<String, Object> properties = extractProperties(parser);
-							wayNodes.add(Long.parseLong(properties.get("ref").toString()));
-						} else if (tagPath.endsWith("tag]")) {
-							Map<String, Object> properties = extractProperties(parser);
-							currentNodeTags.put(properties.get("k").toString(),
-									properties.get("v").toString());
-						} else if (tagPath.equals("[osm, relation]")) {
-							/* <relation id="77965" user="Grillo" uid="13957" visible="true" version="24" changeset="5465617" timestamp="2010-08-11T19:25:46Z"> */
-							if (!startedRelations) {
-								startedRelations = true;
-								osmWriter.startRelations();
-								times[2] = System.currentTimeMillis();
-								osmWriter.optimize();
-								times[3] = System.currentTimeMillis();
-							}
-							relationProperties = extractProperties("relation", parser);
-							relationMembers.clear();
-						} else if (tagPath.equals("[osm, relation, member]")) {
-							relationMembers.add(extractProperties(parser));
-						}
-						if (startedRelations) {
-							if (countXMLTags < 10) {
-								debug("Starting tag at depth " + depth + ": "
-										+ currentXMLTags.get(depth) + " - "
-										+ currentXMLTags);
-								for (int i = 0; i < parser.getAttributeCount(); i++) {
-									debug("\t" + currentXMLTags + ": "
-											+ parser.getAttributeLocalName(i) + "["
-											+ parser.getAttributeNamespace(i) + ","
-											+ parser.getAttributePrefix(i) + ","
-											+ parser.getAttributeType(i) + ","
-											+ "] = " + parser.getAttributeValue(i));
-								}
-							}
-							countXMLTags++;
-						}
-						depth++;
-						break;
-					case javax.xml.stream.XMLStreamConstants.END_ELEMENT:
-						switch (currentXMLTags.toString()) {
-							case "[osm, node]":
-								osmWriter.addOSMNodeTags(allPoints, currentNodeTags);
-								break;
-							case "[osm, way]":
-								osmWriter.createOSMWay(wayProperties, wayNodes, currentNodeTags);
-								break;
-							case "[osm, relation]":
-								osmWriter.createOSMRelation(relationProperties, relationMembers, currentNodeTags);
-								break;
-						}
-						depth--;
-						currentXMLTags.remove(depth);
-						break;
-					default:
-						break;
+			} catch (InterruptedException e) {
+				// The writer stopped taking batches and has its own error to report
+			} catch (Throwable e) {
+				try {
+					queue.fail(e);
+				} catch (InterruptedException ignored) {
+					// The writer stopped taking batches and has its own error to report
 				}
 			}
+		}, "OSMImporter-parser-" + layerName);
+		parserThread.setDaemon(true);
+		try {
+			parserThread.start();
+			writeEntities(osmWriter, queue, allPoints, times);
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof IOException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof XMLStreamException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof UncheckedIOException cause) {
+				throw cause.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof Error cause) {
+				throw cause;
+			}
+			throw e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			InterruptedIOException interrupted = new InterruptedIOException("Interrupted while importing " + dataset);
+			interrupted.initCause(e);
+			throw interrupted;
 		} finally {
+			parserThread.interrupt();
+			try {
+				parserThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			workers.shutdownNow();
 			endProgressMonitor();
-			parser.close();
-			osmWriter.finish();
+			try {
+				osmWriter.finish();
+			} finally {
+				osmWriter.nodeStore = null;
+				nodeStore.close();
+			}
 			this.osm_dataset = osmWriter.getDatasetId();
 			this.missingChangesets = osmWriter.missingChangesets;
 		}
@@ -1543,6 +1682,366 @@ public class OSMImporter {
 		}
 	}
 
+	/**
+	 * Runs on the parser thread, reading the PBF blobs and decoding them on the workers. The decoded blobs are
+	 * passed on in file order, with a bounded number of blobs being decoded ahead.
+	 */
+	private void readPBF(String dataset, EntityQueue queue, ExecutorService workers)
+			throws IOException, InterruptedException {
+		try (PBFReader reader = new PBFReader(dataset)) {
+			ArrayDeque<CompletableFuture<List<OSMEntity>>> decoding = new ArrayDeque<>();
+			PBFReader.Blob blob;
+			while ((blob = reader.next()) != null) {
+				PBFReader.Blob next = blob;
+				decoding.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						return PBFReader.decode(next);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}, workers));
+				if (decoding.size() > 2 * workerThreads) {
+					addDecoded(decoding.remove().join(), queue, reader.getPercentRead());
+				}
+				incrLogContext();
+			}
+			while (!decoding.isEmpty()) {
+				addDecoded(decoding.remove().join(), queue, reader.getPercentRead());
+			}
+			queue.finish(reader.getPercentRead());
+		}
+	}
+
+	private void addDecoded(List<OSMEntity> entities, EntityQueue queue, int percentRead)
+			throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		for (OSMEntity entity : entities) {
+			if (entity instanceof NodeEntity node) {
+				double lon = (Double) node.properties().get("lon");
+				double lat = (Double) node.properties().get("lat");
+				if (filterEnvelope != null && !filterEnvelope.contains(lon, lat)) {
+					continue;
+				}
+				queue.addNodeLocation((Long) node.properties().get(PROP_NODE_ID), lon, lat);
+			}
+			queue.add(entity, percentRead);
+		}
+	}
+
+	/**
+	 * Runs on the parser thread, reading the XML into entities with their own property and tag maps, so that they
+	 * can be written while the parser moves on.
+	 */
+	private void parseXML(String dataset, Charset charset, EntityQueue queue)
+			throws IOException, XMLStreamException, InterruptedException {
+		javax.xml.stream.XMLInputFactory factory = javax.xml.stream.XMLInputFactory.newInstance();
+		try (CountedFileReader reader = new CountedFileReader(dataset, charset)) {
+			javax.xml.stream.XMLStreamReader parser = factory.createXMLStreamReader(reader);
+			try {
+				parseXML(parser, reader, queue);
+			} finally {
+				parser.close();
+			}
+		}
+	}
+
+	private void parseXML(XMLStreamReader parser, CountedFileReader reader, EntityQueue queue)
+			throws XMLStreamException, InterruptedException {
+		int countXMLTags = 0;
+		boolean startedRelations = false;
+		ArrayList<String> currentXMLTags = new ArrayList<>();
+		int depth = 0;
+		Map<String, Object> nodeProperties = null;
+		Map<String, Object> wayProperties = null;
+		ArrayList<Long> wayNodes = new ArrayList<>();
+		Map<String, Object> relationProperties = null;
+		ArrayList<Map<String, Object>> relationMembers = new ArrayList<>();
+		LinkedHashMap<String, Object> currentNodeTags = new LinkedHashMap<>();
+		while (true) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			incrLogContext();
+			int event = parser.next();
+			if (event == javax.xml.stream.XMLStreamConstants.END_DOCUMENT) {
+				break;
+			}
+			switch (event) {
+				case javax.xml.stream.XMLStreamConstants.START_ELEMENT:
+					currentXMLTags.add(depth, parser.getLocalName());
+					String tagPath = currentXMLTags.toString();
+					if (tagPath.equals("[osm]")) {
+						queue.add(new DatasetEntity(extractProperties(parser)), reader.getPercentRead());
+					} else if (tagPath.equals("[osm, bounds]")) {
+						queue.add(new BoundsEntity(extractProperties(PROP_BBOX, parser)), reader.getPercentRead());
+					} else if (tagPath.equals("[osm, node]")) {
+						/* <node id="269682538" lat="56.0420950" lon="12.9693483" user="sanna" uid="31450" visible="true" version="1" changeset="133823" timestamp="2008-06-11T12:36:28Z"/> */
+						nodeProperties = extractProperties("node", parser);
+						Object lon = nodeProperties.get("lon");
+						Object lat = nodeProperties.get("lat");
+						if (filterEnvelope != null && !filterEnvelope.contains((Double) lon, (Double) lat)) {
+							nodeProperties = null;
+						} else if (lon instanceof Double x && lat instanceof Double y) {
+							queue.addNodeLocation(Long.parseLong(nodeProperties.get(PROP_NODE_ID).toString()), x, y);
+						}
+					} else if (tagPath.equals("[osm, way]")) {
+						/* <way id="27359054" user="spull" uid="61533" visible="true" version="8" changeset="4707351" timestamp="2010-05-15T15:39:57Z"> */
+						wayProperties = extractProperties("way", parser);
+						wayNodes = new ArrayList<>();
+					} else if (tagPath.equals("[osm, way, nd]")) {
+						Map<String, Object> properties = extractProperties(parser);
+						wayNodes.add(Long.parseLong(properties.get("ref").toString()));
+					} else if (tagPath.endsWith("tag]")) {
+						Map<String, Object> properties = extractProperties(parser);
+						currentNodeTags.put(properties.get("k").toString(),
+								properties.get("v").toString());
+					} else if (tagPath.equals("[osm, relation]")) {
+						/* <relation id="77965" user="Grillo" uid="13957" visible="true" version="24" changeset="5465617" timestamp="2010-08-11T19:25:46Z"> */
+						startedRelations = true;
+						relationProperties = extractProperties("relation", parser);
+						relationMembers = new ArrayList<>();
+					} else if (tagPath.equals("[osm, relation, member]")) {
+						relationMembers.add(extractProperties(parser));
+					}
+					if (startedRelations) {
+						if (countXMLTags < 10) {
+							debug("Starting tag at depth " + depth + ": "
+									+ currentXMLTags.get(depth) + " - "
+									+ currentXMLTags);
+							for (int i = 0; i < parser.getAttributeCount(); i++) {
+								debug("\t" + currentXMLTags + ": "
+										+ parser.getAttributeLocalName(i) + "["
+										+ parser.getAttributeNamespace(i) + ","
+										+ parser.getAttributePrefix(i) + ","
+										+ parser.getAttributeType(i) + ","
+										+ "] = " + parser.getAttributeValue(i));
+							}
+						}
+						countXMLTags++;
+					}
+					depth++;
+					break;
+				case javax.xml.stream.XMLStreamConstants.END_ELEMENT:
+					switch (currentXMLTags.toString()) {
+						case "[osm, node]":
+							if (nodeProperties == null) {
+								currentNodeTags.clear();
+							} else {
+								queue.add(new NodeEntity(nodeProperties, currentNodeTags), reader.getPercentRead());
+								currentNodeTags = new LinkedHashMap<>();
+							}
+							break;
+						case "[osm, way]":
+							queue.add(new WayEntity(wayProperties, wayNodes, currentNodeTags, null),
+									reader.getPercentRead());
+							currentNodeTags = new LinkedHashMap<>();
+							break;
+						case "[osm, relation]":
+							queue.add(new RelationEntity(relationProperties, relationMembers, currentNodeTags),
+									reader.getPercentRead());
+							currentNodeTags = new LinkedHashMap<>();
+							break;
+					}
+					depth--;
+					currentXMLTags.remove(depth);
+					break;
+				default:
+					break;
+			}
+		}
+		queue.finish(reader.getPercentRead());
+	}
+
+	/**
+	 * Runs on the calling thread, writing the parsed entities in file order. The indexes needed for finding nodes
+	 * and ways are created when the first way and the first relation are written.
+	 */
+	private void writeEntities(OSMWriter<?> osmWriter, EntityQueue queue, boolean allPoints, long[] times)
+			throws InterruptedException {
+		boolean startedWays = false;
+		boolean startedRelations = false;
+		while (true) {
+			EntityBatch batch = queue.take();
+			for (OSMEntity entity : batch.entities()) {
+				switch (entity) {
+					case DatasetEntity datasetEntity -> osmWriter.setDatasetProperties(datasetEntity.properties());
+					case BoundsEntity bounds -> osmWriter.addOSMBBox(bounds.properties());
+					case NodeEntity node -> {
+						osmWriter.createOSMNode(node.properties());
+						osmWriter.addOSMNodeTags(allPoints, node.tags());
+					}
+					case WayEntity way -> {
+						if (!startedWays) {
+							startedWays = true;
+							osmWriter.startWays();
+							times[0] = System.currentTimeMillis();
+							osmWriter.optimize();
+							times[1] = System.currentTimeMillis();
+						}
+						osmWriter.createOSMWay(way.properties(), way.nodes(), way.tags(), way.geometry());
+					}
+					case RelationEntity relation -> {
+						if (!startedRelations) {
+							startedRelations = true;
+							osmWriter.startRelations();
+							times[2] = System.currentTimeMillis();
+							osmWriter.optimize();
+							times[3] = System.currentTimeMillis();
+						}
+						osmWriter.createOSMRelation(relation.properties(), relation.members(), relation.tags());
+					}
+				}
+			}
+			updateProgressMonitor(batch.percentRead());
+			if (batch.last()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * The OSM elements read from the XML or PBF file, in the form the OSMWriter takes them.
+	 */
+	sealed interface OSMEntity permits DatasetEntity, BoundsEntity, NodeEntity, WayEntity, RelationEntity {
+
+	}
+
+	record DatasetEntity(Map<String, Object> properties) implements OSMEntity {
+
+	}
+
+	record BoundsEntity(Map<String, Object> properties) implements OSMEntity {
+
+	}
+
+	record NodeEntity(Map<String, Object> properties, LinkedHashMap<String, Object> tags)
+			implements OSMEntity {
+
+	}
+
+	record WayEntity(Map<String, Object> properties, ArrayList<Long> nodes, LinkedHashMap<String, Object> tags,
+	                 WayGeometry geometry) implements OSMEntity {
+
+		WayEntity withGeometry(WayGeometry geometry) {
+			return new WayEntity(properties, nodes, tags, geometry);
+		}
+	}
+
+	record RelationEntity(Map<String, Object> properties, ArrayList<Map<String, Object>> members,
+	                      LinkedHashMap<String, Object> tags) implements OSMEntity {
+
+	}
+
+	private record EntityBatch(List<OSMEntity> entities, int percentRead, boolean last) {
+
+	}
+
+	/**
+	 * The geometry metadata of a way, computed from the locations of the nodes the parser has seen. Repeated nodes
+	 * are skipped, as they are when the way is written, so there is one length for each NEXT relationship between
+	 * the proxy nodes.
+	 *
+	 * @param knownNodes the number of way nodes with a known location, including repeated ones
+	 */
+	record WayGeometry(Envelope bbox, double[] lengths, int knownNodes) {
+
+		static WayGeometry of(List<Long> wayNodes, OSMNodeStore nodeStore) {
+			Envelope bbox = null;
+			double[] lengths = new double[Math.max(0, wayNodes.size() - 1)];
+			int segments = 0;
+			int knownNodes = 0;
+			long prevRef = 0;
+			double[] prevLocation = null;
+			for (long nd_ref : wayNodes) {
+				double[] location = new double[2];
+				if (!nodeStore.location(nd_ref, location)) {
+					continue;
+				}
+				if (knownNodes++ == 0) {
+					bbox = new Envelope(location);
+				} else if (nd_ref == prevRef) {
+					continue;
+				} else {
+					bbox.expandToInclude(location);
+					lengths[segments++] = distance(prevLocation[0], prevLocation[1], location[0], location[1]);
+				}
+				prevRef = nd_ref;
+				prevLocation = location;
+			}
+			return new WayGeometry(bbox, Arrays.copyOf(lengths, segments), knownNodes);
+		}
+	}
+
+	/**
+	 * Passes the parsed entities from the parser thread to the writing thread in batches, through a bounded queue so
+	 * that the parser cannot run too far ahead. Batches containing ways first go to the workers that compute the
+	 * way geometry metadata, and the queue holds futures to keep the batches in file order.
+	 */
+	private static final class EntityQueue {
+
+		private static final int BATCH_SIZE = 1000;
+		private static final int QUEUED_BATCHES = 16;
+
+		private final BlockingQueue<CompletableFuture<EntityBatch>> batches = new ArrayBlockingQueue<>(
+				QUEUED_BATCHES);
+		private final OSMNodeStore nodeStore;
+		private final ExecutorService workers;
+		private ArrayList<OSMEntity> current = new ArrayList<>(BATCH_SIZE);
+		private boolean currentHasWays = false;
+
+		private EntityQueue(OSMNodeStore nodeStore, ExecutorService workers) {
+			this.nodeStore = nodeStore;
+			this.workers = workers;
+		}
+
+		void addNodeLocation(long osmId, double lon, double lat) {
+			nodeStore.add(osmId, lon, lat);
+		}
+
+		void add(OSMEntity entity, int percentRead) throws InterruptedException {
+			if (entity instanceof WayEntity) {
+				currentHasWays = true;
+			}
+			current.add(entity);
+			if (current.size() >= BATCH_SIZE) {
+				flush(percentRead, false);
+			}
+		}
+
+		void finish(int percentRead) throws InterruptedException {
+			flush(percentRead, true);
+		}
+
+		void fail(Throwable error) throws InterruptedException {
+			batches.put(CompletableFuture.failedFuture(error));
+		}
+
+		EntityBatch take() throws InterruptedException {
+			return batches.take().join();
+		}
+
+		private void flush(int percentRead, boolean last) throws InterruptedException {
+			List<OSMEntity> entities = current;
+			current = new ArrayList<>(BATCH_SIZE);
+			if (currentHasWays) {
+				currentHasWays = false;
+				batches.put(CompletableFuture.supplyAsync(
+						() -> new EntityBatch(withWayGeometry(entities), percentRead, last), workers));
+			} else {
+				batches.put(CompletableFuture.completedFuture(new EntityBatch(entities, percentRead, last)));
+			}
+		}
+
+		private List<OSMEntity> withWayGeometry(List<OSMEntity> entities) {
+			entities.replaceAll(entity -> entity instanceof WayEntity way
+					? way.withGeometry(WayGeometry.of(way.nodes(), nodeStore))
+					: entity);
+			return entities;
+		}
+	}
+
 	private void describeTimes(long startTime, long[] times) {
 		long endTime = System.currentTimeMillis();
 		log("Completed load in " + (1.0 * (endTime - startTime) / 1000.0) + "s");
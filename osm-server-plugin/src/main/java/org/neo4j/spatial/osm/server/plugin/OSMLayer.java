@@ -107,22 +107,63 @@ public class OSMLayer extends DynamicLayer {
 				memorizeNodeMeta(geomNode);
 				indexWriter.add(tx, geomNode);
 			} catch (Exception e) {
-				LOGGER.warning(
-						"Failed geometry test on node " + geomNode.getProperty("name", geomNode.toString()) + ": "
-								+ e.getMessage());
-				for (String key : geomNode.getPropertyKeys()) {
-					LOGGER.warning("\t" + key + ": " + geomNode.getProperty(key));
-				}
-				LOGGER.warning("For way node " + way);
-				for (String key : way.getPropertyKeys()) {
-					LOGGER.warning("\t" + key + ": " + way.getProperty(key));
-				}
+				logFailedGeometry(way, geomNode, e);
 			}
 			return geomNode;
 		}
 		return null;
 	}
 
+	/**
+	 * Find the geometry node of a way, or of a node, and test that its geometry can be decoded. This only reads from
+	 * the graph, so re-indexing can call it from several threads, each with its own transaction, and pass the results
+	 * on to {@link #addGeometryNodes(Transaction, List)}.
+	 *
+	 * @return the geometry node, or null if there is none or its geometry is not valid
+	 */
+	public Node getVerifiedGeometryNode(Node way) {
+		Relationship geomRel = way.getSingleRelationship(OSMRelation.GEOM, Direction.OUTGOING);
+		if (geomRel == null) {
+			return null;
+		}
+		Node geomNode = geomRel.getEndNode();
+		try {
+			getGeometryEncoder().decodeGeometry(geomNode);
+			return geomNode;
+		} catch (Exception e) {
+			logFailedGeometry(way, geomNode, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Add many geometry nodes to the index with one bulk insertion, instead of inserting them one at a time as
+	 * {@link #addWay(Transaction, Node, boolean)} does.
+	 */
+	public void addGeometryNodes(Transaction tx, List<Node> geomNodes) {
+		checkWritable();
+		if (geomNodes.isEmpty()) {
+			return;
+		}
+		for (Node geomNode : geomNodes) {
+			memorizeNodeMeta(geomNode);
+		}
+		indexWriter.add(tx, geomNodes);
+	}
+
+	private static void logFailedGeometry(Node way, Node geomNode, Exception e) {
+		LOGGER.warning(
+				"Failed geometry test on node " + geomNode.getProperty("name", geomNode.toString()) + ": "
+						+ e.getMessage());
+		for (String key : geomNode.getPropertyKeys()) {
+			LOGGER.warning("\t" + key + ": " + geomNode.getProperty(key));
+		}
+		LOGGER.warning("For way node " + way);
+		for (String key : way.getPropertyKeys()) {
+			LOGGER.warning("\t" + key + ": " + way.getProperty(key));
+		}
+	}
+
 	/**
 	 * Provides a method for iterating over all nodes that represent geometries in this layer.
 	 * This is similar to the getAllNodes() methods from GraphDatabaseService but will only return
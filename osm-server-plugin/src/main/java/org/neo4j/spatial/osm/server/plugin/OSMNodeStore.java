@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.spatial.osm.server.plugin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The OSM nodes seen during an import, mapping each OSM id to the node location and to the element id of the
+ * node created for it. The data is kept in memory mapped temporary files instead of on the heap, so that imports of
+ * hundreds of millions of nodes can resolve way nodes with array lookups instead of index seeks.
+ * <p>
+ * The parser thread adds the nodes as they are read. Nodes in OSM files are sorted by id, so they are appended to
+ * fixed size records and found by binary search. The few nodes arriving out of order are kept in a map on the heap.
+ * The writing thread sets the element ids once the nodes are created, while the way geometry workers read the
+ * locations of the nodes added so far.
+ */
+final class OSMNodeStore implements Closeable {
+
+	private static final int RECORD_SIZE = 32;
+	private static final int OSM_ID = 0;
+	private static final int LON = 8;
+	private static final int LAT = 16;
+	private static final int ELEMENT_ID = 24;
+	private static final int SEGMENT_SIZE = 1 << 26;
+	private static final int RECORDS_PER_SEGMENT = SEGMENT_SIZE / RECORD_SIZE;
+	private static final long NO_ELEMENT_ID = -1;
+
+	private final FileChannel recordFile;
+	private final FileChannel elementIdFile;
+	private volatile MappedByteBuffer[] records = new MappedByteBuffer[0];
+	private volatile long size = 0;
+	private long lastOsmId = Long.MIN_VALUE;
+	private MappedByteBuffer[] elementIds = new MappedByteBuffer[0];
+	private long elementIdsEnd = 0;
+	private final HashMap<Long, UnorderedNode> unordered = new HashMap<>();
+	private volatile boolean hasUnordered = false;
+
+	private static final class UnorderedNode {
+
+		private double lon = Double.NaN;
+		private double lat = Double.NaN;
+		private String elementId;
+	}
+
+	OSMNodeStore() throws IOException {
+		this.recordFile = open("osm-node-records");
+		this.elementIdFile = open("osm-node-element-ids");
+	}
+
+	private static FileChannel open(String prefix) throws IOException {
+		Path path = Files.createTempFile(prefix, ".tmp");
+		return FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.DELETE_ON_CLOSE);
+	}
+
+	/**
+	 * Add the location of a node, called by the parser thread only.
+	 */
+	void add(long osmId, double lon, double lat) {
+		if (osmId <= lastOsmId) {
+			long record = findRecord(osmId);
+			if (record >= 0) {
+				segment(record).putDouble(offset(record) + LON, lon);
+				segment(record).putDouble(offset(record) + LAT, lat);
+			} else {
+				synchronized (unordered) {
+					UnorderedNode node = unordered.computeIfAbsent(osmId, id -> new UnorderedNode());
+					node.lon = lon;
+					node.lat = lat;
+					hasUnordered = true;
+				}
+			}
+			return;
+		}
+		long record = size;
+		int segment = (int) (record / RECORDS_PER_SEGMENT);
+		if (segment == records.length) {
+			MappedByteBuffer[] grown = Arrays.copyOf(records, segment + 1);
+			grown[segment] = map(recordFile, (long) segment * SEGMENT_SIZE);
+			records = grown;
+		}
+		MappedByteBuffer buffer = records[segment];
+		int offset = offset(record);
+		buffer.putLong(offset + OSM_ID, osmId);
+		buffer.putDouble(offset + LON, lon);
+		buffer.putDouble(offset + LAT, lat);
+		buffer.putLong(offset + ELEMENT_ID, NO_ELEMENT_ID);
+		lastOsmId = osmId;
+		size = record + 1;
+	}
+
+	/**
+	 * Copy the location of the node into the array as longitude and latitude.
+	 *
+	 * @return false if the location of the node is not known
+	 */
+	boolean location(long osmId, double[] location) {
+		long record = findRecord(osmId);
+		if (record >= 0) {
+			location[0] = segment(record).getDouble(offset(record) + LON);
+			location[1] = segment(record).getDouble(offset(record) + LAT);
+			return true;
+		}
+		if (hasUnordered) {
+			synchronized (unordered) {
+				UnorderedNode node = unordered.get(osmId);
+				if (node != null && !Double.isNaN(node.lon)) {
+					location[0] = node.lon;
+					location[1] = node.lat;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Remember the element id of the node created for the OSM node, called by the writing thread only.
+	 */
+	void setElementId(long osmId, String elementId) {
+		long record = findRecord(osmId);
+		if (record < 0) {
+			synchronized (unordered) {
+				unordered.computeIfAbsent(osmId, id -> new UnorderedNode()).elementId = elementId;
+				hasUnordered = true;
+			}
+			return;
+		}
+		byte[] bytes = elementId.getBytes(StandardCharsets.UTF_8);
+		int length = 4 + bytes.length;
+		if (elementIdsEnd % SEGMENT_SIZE + length > SEGMENT_SIZE) {
+			elementIdsEnd += SEGMENT_SIZE - elementIdsEnd % SEGMENT_SIZE;
+		}
+		int segment = (int) (elementIdsEnd / SEGMENT_SIZE);
+		if (segment == elementIds.length) {
+			elementIds = Arrays.copyOf(elementIds, segment + 1);
+			elementIds[segment] = map(elementIdFile, (long) segment * SEGMENT_SIZE);
+		}
+		int offset = (int) (elementIdsEnd % SEGMENT_SIZE);
+		elementIds[segment].putInt(offset, bytes.length);
+		elementIds[segment].put(offset + 4, bytes);
+		segment(record).putLong(offset(record) + ELEMENT_ID, elementIdsEnd);
+		elementIdsEnd += length;
+	}
+
+	/**
+	 * @return the element id of the node created for the OSM node, or null if none was created by this import
+	 */
+	String elementId(long osmId) {
+		long record = findRecord(osmId);
+		if (record >= 0) {
+			long position = segment(record).getLong(offset(record) + ELEMENT_ID);
+			if (position == NO_ELEMENT_ID) {
+				return null;
+			}
+			MappedByteBuffer buffer = elementIds[(int) (position / SEGMENT_SIZE)];
+			int offset = (int) (position % SEGMENT_SIZE);
+			byte[] bytes = new byte[buffer.getInt(offset)];
+			buffer.get(offset + 4, bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		if (hasUnordered) {
+			synchronized (unordered) {
+				UnorderedNode node = unordered.get(osmId);
+				return node == null ? null : node.elementId;
+			}
+		}
+		return null;
+	}
+
+	private long findRecord(long osmId) {
+		long low = 0;
+		long high = size - 1;
+		MappedByteBuffer[] segments = records;
+		while (low <= high) {
+			long middle = (low + high) >>> 1;
+			long id = segments[(int) (middle / RECORDS_PER_SEGMENT)].getLong(offset(middle) + OSM_ID);
+			if (id < osmId) {
+				low = middle + 1;
+			} else if (id > osmId) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	private MappedByteBuffer segment(long record) {
+		return records[(int) (record / RECORDS_PER_SEGMENT)];
+	}
+
+	private static int offset(long record) {
+		return (int) (record % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+	}
+
+	private static MappedByteBuffer map(FileChannel file, long position) {
+		try {
+			return file.map(FileChannel.MapMode.READ_WRITE, position, SEGMENT_SIZE);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to map the OSM node store", e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			recordFile.close();
+		} finally {
+			elementIdFile.close();
+		}
+	}
+}
@@ -0,0 +1,693 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.spatial.osm.server.plugin;
+
+import static org.neo4j.spatial.osm.server.plugin.OSMImporter.PROP_BBOX;
+import static org.neo4j.spatial.osm.server.plugin.OSMImporter.PROP_CHANGESET;
+import static org.neo4j.spatial.osm.server.plugin.OSMImporter.PROP_NODE_ID;
+import static org.neo4j.spatial.osm.server.plugin.OSMImporter.PROP_RELATION_ID;
+import static org.neo4j.spatial.osm.server.plugin.OSMImporter.PROP_USER_ID;
+import static org.neo4j.spatial.osm.server.plugin.OSMImporter.PROP_USER_NAME;
+import static org.neo4j.spatial.osm.server.plugin.OSMImporter.PROP_WAY_ID;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.neo4j.spatial.osm.server.plugin.OSMImporter.BoundsEntity;
+import org.neo4j.spatial.osm.server.plugin.OSMImporter.DatasetEntity;
+import org.neo4j.spatial.osm.server.plugin.OSMImporter.NodeEntity;
+import org.neo4j.spatial.osm.server.plugin.OSMImporter.OSMEntity;
+import org.neo4j.spatial.osm.server.plugin.OSMImporter.RelationEntity;
+import org.neo4j.spatial.osm.server.plugin.OSMImporter.WayEntity;
+
+/**
+ * Reads OSM PBF files, as described at https://wiki.openstreetmap.org/wiki/PBF_Format. The file is read as a
+ * sequence of blobs with {@link #next()}, which is cheap, and each blob is decoded into OSM entities with
+ * {@link #decode(Blob)}, which can be done concurrently for several blobs. The entities have the same properties as
+ * those parsed from OSM XML, so that the importer writes them the same way.
+ * <p>
+ * The protocol buffer messages are decoded directly from the wire format, reading only the fields the importer
+ * needs. Only uncompressed and zlib compressed blobs are supported, which is what the common tools write.
+ */
+final class PBFReader implements Closeable {
+
+	private static final int MAX_HEADER_SIZE = 64 * 1024;
+	private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+	private static final Set<String> SUPPORTED_FEATURES = Set.of("OsmSchema-V0.6", "DenseNodes",
+			"HistoricalInformation");
+	private static final String[] MEMBER_TYPES = new String[]{"node", "way", "relation"};
+
+	/**
+	 * A blob as read from the file, still compressed, with the offset of its header in the file.
+	 */
+	record Blob(String type, byte[] data, long offset) {
+
+	}
+
+	/**
+	 * Thrown while decoding when the data is not valid PBF, and turned into an {@link IOException} with the offset of
+	 * the blob being read.
+	 */
+	private static final class MalformedPBFException extends RuntimeException {
+
+		MalformedPBFException(String message) {
+			super(message);
+		}
+	}
+
+	private final DataInputStream input;
+	private final long length;
+	private long position = 0;
+
+	PBFReader(String path) throws IOException {
+		this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+		this.length = new File(path).length();
+	}
+
+	int getPercentRead() {
+		return length > 0 ? (int) (100.0 * position / length) : 0;
+	}
+
+	/**
+	 * @return the next blob in the file, or null at the end of the file
+	 */
+	Blob next() throws IOException {
+		int headerSize;
+		try {
+			headerSize = input.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		if (headerSize < 0 || headerSize > MAX_HEADER_SIZE) {
+			throw new IOException("Invalid PBF blob header size " + headerSize + " at offset " + position);
+		}
+		ProtoInput header = new ProtoInput(readFully(headerSize, position + 4));
+		String type = null;
+		long dataSize = -1;
+		try {
+			while (header.hasMore()) {
+				int tag = header.tag();
+				switch (tag >>> 3) {
+					case 1 -> type = header.string();
+					case 3 -> dataSize = header.varint();
+					default -> header.skip(tag);
+				}
+			}
+		} catch (MalformedPBFException e) {
+			throw new IOException(e.getMessage() + " in PBF blob header at offset " + position, e);
+		}
+		if (type == null || dataSize < 0 || dataSize > MAX_BLOB_SIZE) {
+			throw new IOException("Invalid PBF blob header at offset " + position);
+		}
+		byte[] data = readFully((int) dataSize, position + 4 + headerSize);
+		Blob blob = new Blob(type, data, position);
+		position += 4 + headerSize + dataSize;
+		return blob;
+	}
+
+	private byte[] readFully(int size, long offset) throws IOException {
+		byte[] bytes = new byte[size];
+		try {
+			input.readFully(bytes);
+		} catch (EOFException e) {
+			throw new IOException("Truncated PBF file, expected " + size + " bytes at offset " + offset, e);
+		}
+		return bytes;
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+	/**
+	 * Decompress and decode the blob into OSM entities, in the order they appear in the file. Blobs of unknown
+	 * types are skipped, as the format requires.
+	 */
+	static List<OSMEntity> decode(Blob blob) throws IOException {
+		try {
+			return switch (blob.type()) {
+				case "OSMHeader" -> decodeHeader(new ProtoInput(uncompress(blob)));
+				case "OSMData" -> decodePrimitiveBlock(new ProtoInput(uncompress(blob)));
+				default -> List.of();
+			};
+		} catch (MalformedPBFException e) {
+			throw new IOException(e.getMessage() + " in PBF blob of type " + blob.type() + " at offset "
+					+ blob.offset(), e);
+		}
+	}
+
+	private static byte[] uncompress(Blob blob) throws IOException {
+		ProtoInput input = new ProtoInput(blob.data());
+		byte[] raw = null;
+		byte[] zlib = null;
+		long rawSize = -1;
+		while (input.hasMore()) {
+			int tag = input.tag();
+			switch (tag >>> 3) {
+				case 1 -> raw = input.bytes();
+				case 2 -> rawSize = input.varint();
+				case 3 -> zlib = input.bytes();
+				case 4, 5, 6, 7 -> throw new IOException(
+						"Unsupported PBF compression, only uncompressed and zlib blobs can be read");
+				default -> input.skip(tag);
+			}
+		}
+		if (raw != null) {
+			return raw;
+		}
+		if (zlib == null || rawSize < 0 || rawSize > MAX_BLOB_SIZE) {
+			throw new IOException("Invalid PBF blob of type " + blob.type() + " at offset " + blob.offset());
+		}
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(zlib);
+			byte[] data = new byte[(int) rawSize];
+			int inflated = 0;
+			while (inflated < rawSize && !inflater.finished()) {
+				int count = inflater.inflate(data, inflated, data.length - inflated);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				inflated += count;
+			}
+			if (inflated != rawSize) {
+				throw new IOException("Truncated zlib data in PBF blob of type " + blob.type() + " at offset "
+						+ blob.offset());
+			}
+			return data;
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid zlib data in PBF blob of type " + blob.type() + " at offset "
+					+ blob.offset(), e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static List<OSMEntity> decodeHeader(ProtoInput header) throws IOException {
+		List<OSMEntity> entities = new ArrayList<>(2);
+		Map<String, Object> datasetProperties = new LinkedHashMap<>();
+		datasetProperties.put("version", "0.6");
+		Map<String, Object> bboxProperties = null;
+		while (header.hasMore()) {
+			int tag = header.tag();
+			switch (tag >>> 3) {
+				case 1 -> bboxProperties = decodeBBox(header.message());
+				case 4 -> {
+					String feature = header.string();
+					if (!SUPPORTED_FEATURES.contains(feature)) {
+						throw new IOException("Unsupported PBF feature required: " + feature);
+					}
+				}
+				case 16 -> datasetProperties.put("generator", header.string());
+				default -> header.skip(tag);
+			}
+		}
+		entities.add(new DatasetEntity(datasetProperties));
+		if (bboxProperties != null) {
+			entities.add(new BoundsEntity(bboxProperties));
+		}
+		return entities;
+	}
+
+	/**
+	 * The header bounding box in nanodegrees, converted to the bounds attributes of OSM XML.
+	 */
+	private static Map<String, Object> decodeBBox(ProtoInput bbox) {
+		Map<String, Object> properties = new LinkedHashMap<>();
+		while (bbox.hasMore()) {
+			int tag = bbox.tag();
+			String key = switch (tag >>> 3) {
+				case 1 -> "minlon";
+				case 2 -> "maxlon";
+				case 3 -> "maxlat";
+				case 4 -> "minlat";
+				default -> null;
+			};
+			if (key == null) {
+				bbox.skip(tag);
+			} else {
+				properties.put(key, Double.toString(1e-9 * bbox.sint()));
+			}
+		}
+		properties.put("name", PROP_BBOX);
+		return properties;
+	}
+
+	/**
+	 * The strings and coordinate scales shared by all the groups of one primitive block.
+	 */
+	private record Block(String[] strings, int granularity, int dateGranularity, long latOffset, long lonOffset) {
+
+		double lat(long lat) {
+			return 1e-9 * (latOffset + (long) granularity * lat);
+		}
+
+		double lon(long lon) {
+			return 1e-9 * (lonOffset + (long) granularity * lon);
+		}
+
+		long timestamp(long timestamp) {
+			return timestamp * dateGranularity;
+		}
+
+		String string(long index) {
+			if (index < 0 || index >= strings.length) {
+				throw new MalformedPBFException(
+						"String table index " + index + " out of range for " + strings.length + " strings");
+			}
+			return strings[(int) index];
+		}
+	}
+
+	private static List<OSMEntity> decodePrimitiveBlock(ProtoInput input) {
+		String[] strings = new String[0];
+		List<ProtoInput> groups = new ArrayList<>();
+		int granularity = 100;
+		int dateGranularity = 1000;
+		long latOffset = 0;
+		long lonOffset = 0;
+		while (input.hasMore()) {
+			int tag = input.tag();
+			switch (tag >>> 3) {
+				case 1 -> strings = decodeStringTable(input.message());
+				case 2 -> groups.add(input.message());
+				case 17 -> granularity = (int) input.varint();
+				case 18 -> dateGranularity = (int) input.varint();
+				case 19 -> latOffset = input.varint();
+				case 20 -> lonOffset = input.varint();
+				default -> input.skip(tag);
+			}
+		}
+		Block block = new Block(strings, granularity, dateGranularity, latOffset, lonOffset);
+		List<OSMEntity> entities = new ArrayList<>(8000);
+		for (ProtoInput group : groups) {
+			while (group.hasMore()) {
+				int tag = group.tag();
+				switch (tag >>> 3) {
+					case 1 -> entities.add(decodeNode(block, group.message()));
+					case 2 -> decodeDenseNodes(block, group.message(), entities);
+					case 3 -> entities.add(decodeWay(block, group.message()));
+					case 4 -> entities.add(decodeRelation(block, group.message()));
+					default -> group.skip(tag);
+				}
+			}
+		}
+		return entities;
+	}
+
+	private static String[] decodeStringTable(ProtoInput table) {
+		List<String> strings = new ArrayList<>();
+		while (table.hasMore()) {
+			int tag = table.tag();
+			if (tag >>> 3 == 1) {
+				strings.add(table.string());
+			} else {
+				table.skip(tag);
+			}
+		}
+		return strings.toArray(new String[0]);
+	}
+
+	private static NodeEntity decodeNode(Block block, ProtoInput node) {
+		Map<String, Object> properties = new LinkedHashMap<>();
+		LinkedHashMap<String, Object> tags = new LinkedHashMap<>();
+		long[] keys = new long[0];
+		long[] values = new long[0];
+		long lat = 0;
+		long lon = 0;
+		while (node.hasMore()) {
+			int tag = node.tag();
+			switch (tag >>> 3) {
+				case 1 -> properties.put(PROP_NODE_ID, node.sint());
+				case 2 -> keys = node.varints(tag, keys);
+				case 3 -> values = node.varints(tag, values);
+				case 4 -> decodeInfo(block, node.message(), properties);
+				case 8 -> lat = node.sint();
+				case 9 -> lon = node.sint();
+				default -> node.skip(tag);
+			}
+		}
+		properties.put("lat", block.lat(lat));
+		properties.put("lon", block.lon(lon));
+		addTags(block, keys, values, tags);
+		return new NodeEntity(properties, tags);
+	}
+
+	private static void decodeDenseNodes(Block block, ProtoInput dense, List<OSMEntity> entities) {
+		long[] ids = new long[0];
+		long[] lats = new long[0];
+		long[] lons = new long[0];
+		long[] keysValues = new long[0];
+		ProtoInput denseInfo = null;
+		while (dense.hasMore()) {
+			int tag = dense.tag();
+			switch (tag >>> 3) {
+				case 1 -> ids = dense.sints(tag, ids);
+				case 5 -> denseInfo = dense.message();
+				case 8 -> lats = dense.sints(tag, lats);
+				case 9 -> lons = dense.sints(tag, lons);
+				case 10 -> keysValues = dense.varints(tag, keysValues);
+				default -> dense.skip(tag);
+			}
+		}
+		long[] versions = new long[0];
+		long[] timestamps = new long[0];
+		long[] changesets = new long[0];
+		long[] uids = new long[0];
+		long[] userSids = new long[0];
+		long[] visibles = new long[0];
+		while (denseInfo != null && denseInfo.hasMore()) {
+			int tag = denseInfo.tag();
+			switch (tag >>> 3) {
+				case 1 -> versions = denseInfo.varints(tag, versions);
+				case 2 -> timestamps = denseInfo.sints(tag, timestamps);
+				case 3 -> changesets = denseInfo.sints(tag, changesets);
+				case 4 -> uids = denseInfo.sints(tag, uids);
+				case 5 -> userSids = denseInfo.sints(tag, userSids);
+				case 6 -> visibles = denseInfo.varints(tag, visibles);
+				default -> denseInfo.skip(tag);
+			}
+		}
+		boolean hasInfo = versions.length == ids.length;
+		long id = 0;
+		long lat = 0;
+		long lon = 0;
+		long timestamp = 0;
+		long changeset = 0;
+		long uid = 0;
+		long userSid = 0;
+		int keyValue = 0;
+		if (lats.length != ids.length || lons.length != ids.length) {
+			throw new MalformedPBFException("Dense nodes with " + ids.length + " ids have " + lats.length
+					+ " latitudes and " + lons.length + " longitudes");
+		}
+		for (int i = 0; i < ids.length; i++) {
+			id += ids[i];
+			lat += lats[i];
+			lon += lons[i];
+			Map<String, Object> properties = new LinkedHashMap<>();
+			properties.put(PROP_NODE_ID, id);
+			if (hasInfo) {
+				timestamp += timestamps.length > i ? timestamps[i] : 0;
+				changeset += changesets.length > i ? changesets[i] : 0;
+				uid += uids.length > i ? uids[i] : 0;
+				userSid += userSids.length > i ? userSids[i] : 0;
+				addInfo(block, properties, versions[i], timestamp, changeset, uid, userSid,
+						visibles.length <= i || visibles[i] != 0);
+			}
+			properties.put("lat", block.lat(lat));
+			properties.put("lon", block.lon(lon));
+			LinkedHashMap<String, Object> tags = new LinkedHashMap<>();
+			while (keyValue < keysValues.length && keysValues[keyValue] != 0) {
+				if (keyValue + 1 == keysValues.length) {
+					throw new MalformedPBFException("Dense node tag key without a value");
+				}
+				tags.put(block.string(keysValues[keyValue]), block.string(keysValues[keyValue + 1]));
+				keyValue += 2;
+			}
+			keyValue++;
+			entities.add(new NodeEntity(properties, tags));
+		}
+	}
+
+	private static WayEntity decodeWay(Block block, ProtoInput way) {
+		Map<String, Object> properties = new LinkedHashMap<>();
+		LinkedHashMap<String, Object> tags = new LinkedHashMap<>();
+		long[] keys = new long[0];
+		long[] values = new long[0];
+		long[] refs = new long[0];
+		while (way.hasMore()) {
+			int tag = way.tag();
+			switch (tag >>> 3) {
+				case 1 -> properties.put(PROP_WAY_ID, way.varint());
+				case 2 -> keys = way.varints(tag, keys);
+				case 3 -> values = way.varints(tag, values);
+				case 4 -> decodeInfo(block, way.message(), properties);
+				case 8 -> refs = way.sints(tag, refs);
+				default -> way.skip(tag);
+			}
+		}
+		addTags(block, keys, values, tags);
+		ArrayList<Long> wayNodes = new ArrayList<>(refs.length);
+		long ref = 0;
+		for (long delta : refs) {
+			ref += delta;
+			wayNodes.add(ref);
+		}
+		return new WayEntity(properties, wayNodes, tags, null);
+	}
+
+	private static RelationEntity decodeRelation(Block block, ProtoInput relation) {
+		Map<String, Object> properties = new LinkedHashMap<>();
+		LinkedHashMap<String, Object> tags = new LinkedHashMap<>();
+		long[] keys = new long[0];
+		long[] values = new long[0];
+		long[] roles = new long[0];
+		long[] memberIds = new long[0];
+		long[] types = new long[0];
+		while (relation.hasMore()) {
+			int tag = relation.tag();
+			switch (tag >>> 3) {
+				case 1 -> properties.put(PROP_RELATION_ID, relation.varint());
+				case 2 -> keys = relation.varints(tag, keys);
+				case 3 -> values = relation.varints(tag, values);
+				case 4 -> decodeInfo(block, relation.message(), properties);
+				case 8 -> roles = relation.varints(tag, roles);
+				case 9 -> memberIds = relation.sints(tag, memberIds);
+				case 10 -> types = relation.varints(tag, types);
+				default -> relation.skip(tag);
+			}
+		}
+		addTags(block, keys, values, tags);
+		if (roles.length != memberIds.length || types.length != memberIds.length) {
+			throw new MalformedPBFException("Relation with " + memberIds.length + " members has " + roles.length
+					+ " roles and " + types.length + " types");
+		}
+		ArrayList<Map<String, Object>> members = new ArrayList<>(memberIds.length);
+		long memberId = 0;
+		for (int i = 0; i < memberIds.length; i++) {
+			memberId += memberIds[i];
+			Map<String, Object> member = new LinkedHashMap<>();
+			if (types[i] < 0 || types[i] >= MEMBER_TYPES.length) {
+				throw new MalformedPBFException("Unknown relation member type " + types[i]);
+			}
+			member.put("type", MEMBER_TYPES[(int) types[i]]);
+			member.put("ref", Long.toString(memberId));
+			member.put("role", block.string(roles[i]));
+			members.add(member);
+		}
+		return new RelationEntity(properties, members, tags);
+	}
+
+	private static void decodeInfo(Block block, ProtoInput info, Map<String, Object> properties) {
+		long version = 0;
+		long timestamp = 0;
+		long changeset = 0;
+		long uid = 0;
+		long userSid = 0;
+		boolean visible = true;
+		while (info.hasMore()) {
+			int tag = info.tag();
+			switch (tag >>> 3) {
+				case 1 -> version = info.varint();
+				case 2 -> timestamp = info.varint();
+				case 3 -> changeset = info.varint();
+				case 4 -> uid = info.varint();
+				case 5 -> userSid = info.varint();
+				case 6 -> visible = info.varint() != 0;
+				default -> info.skip(tag);
+			}
+		}
+		addInfo(block, properties, version, timestamp, changeset, uid, userSid, visible);
+	}
+
+	/**
+	 * Add the metadata with the same keys and types as the attributes parsed from OSM XML.
+	 */
+	private static void addInfo(Block block, Map<String, Object> properties, long version, long timestamp,
+			long changeset, long uid, long userSid, boolean visible) {
+		properties.put("version", Long.toString(version));
+		if (timestamp != 0) {
+			properties.put("timestamp", block.timestamp(timestamp));
+		}
+		if (changeset != 0) {
+			properties.put(PROP_CHANGESET, changeset);
+		}
+		if (userSid != 0) {
+			properties.put(PROP_USER_NAME, block.string(userSid));
+			properties.put(PROP_USER_ID, uid);
+		}
+		if (!visible) {
+			properties.put("visible", false);
+		}
+	}
+
+	private static void addTags(Block block, long[] keys, long[] values, Map<String, Object> tags) {
+		for (int i = 0; i < keys.length && i < values.length; i++) {
+			tags.put(block.string(keys[i]), block.string(values[i]));
+		}
+	}
+
+	/**
+	 * Reads protocol buffer fields from a byte array, without copying length delimited fields that are themselves
+	 * messages.
+	 */
+	private static final class ProtoInput {
+
+		private static final int VARINT = 0;
+		private static final int FIXED64 = 1;
+		private static final int LENGTH_DELIMITED = 2;
+		private static final int FIXED32 = 5;
+
+		private final byte[] buffer;
+		private final int limit;
+		private int position;
+
+		ProtoInput(byte[] buffer) {
+			this(buffer, 0, buffer.length);
+		}
+
+		private ProtoInput(byte[] buffer, int position, int limit) {
+			this.buffer = buffer;
+			this.position = position;
+			this.limit = limit;
+		}
+
+		boolean hasMore() {
+			return position < limit;
+		}
+
+		/**
+		 * @return the field number and wire type of the next field, as encoded in the stream
+		 */
+		int tag() {
+			return (int) varint();
+		}
+
+		long varint() {
+			long value = 0;
+			for (int shift = 0; shift < 64 && position < limit; shift += 7) {
+				byte b = buffer[position++];
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+			throw new MalformedPBFException("Malformed varint");
+		}
+
+		/**
+		 * Read the size of a length delimited field, which must fit in what remains of this message.
+		 */
+		private int length() {
+			return checkLength(varint());
+		}
+
+		private int checkLength(long size) {
+			if (size < 0 || size > limit - position) {
+				throw new MalformedPBFException(
+						"Field length " + size + " exceeds the " + (limit - position) + " remaining bytes");
+			}
+			return (int) size;
+		}
+
+		long sint() {
+			long value = varint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		ProtoInput message() {
+			int size = length();
+			ProtoInput message = new ProtoInput(buffer, position, position + size);
+			position += size;
+			return message;
+		}
+
+		byte[] bytes() {
+			int size = length();
+			byte[] bytes = Arrays.copyOfRange(buffer, position, position + size);
+			position += size;
+			return bytes;
+		}
+
+		String string() {
+			int size = length();
+			String string = new String(buffer, position, size, StandardCharsets.UTF_8);
+			position += size;
+			return string;
+		}
+
+		/**
+		 * Read a repeated varint field, which is normally packed but may also be written one value at a time, and
+		 * append the values to those already read.
+		 */
+		long[] varints(int tag, long[] values) {
+			return repeated(tag, values, false);
+		}
+
+		/**
+		 * As {@link #varints(int, long[])} for zigzag encoded signed values.
+		 */
+		long[] sints(int tag, long[] values) {
+			return repeated(tag, values, true);
+		}
+
+		private long[] repeated(int tag, long[] values, boolean signed) {
+			if ((tag & 7) != LENGTH_DELIMITED) {
+				long[] appended = Arrays.copyOf(values, values.length + 1);
+				appended[values.length] = signed ? sint() : varint();
+				return appended;
+			}
+			ProtoInput packed = message();
+			long[] read = new long[Math.max(16, packed.limit - packed.position)];
+			int count = 0;
+			while (packed.hasMore()) {
+				read[count++] = signed ? packed.sint() : packed.varint();
+			}
+			long[] appended = Arrays.copyOf(values, values.length + count);
+			System.arraycopy(read, 0, appended, values.length, count);
+			return appended;
+		}
+
+		void skip(int tag) {
+			switch (tag & 7) {
+				case VARINT -> varint();
+				case FIXED64 -> position += checkLength(8);
+				case LENGTH_DELIMITED -> position += length();
+				case FIXED32 -> position += checkLength(4);
+				default -> throw new MalformedPBFException("Unsupported wire type " + (tag & 7));
+			}
+		}
+	}
+}
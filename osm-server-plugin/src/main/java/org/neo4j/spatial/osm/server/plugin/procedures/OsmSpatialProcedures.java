@@ -83,8 +83,9 @@ public class OsmSpatialProcedures extends SpatialApiBase {
 
 	private long importOSMToLayer(String osmPath, String layerName,
 			BiFunction<Transaction, String, OSMLayer> layerMaker) throws InterruptedException {
-		// add extension
-		if (!osmPath.toLowerCase().endsWith(".osm")) {
+		// add extension, unless it is an XML or PBF file
+		String lowerCasePath = osmPath.toLowerCase();
+		if (!lowerCasePath.endsWith(".osm") && !lowerCasePath.endsWith(".pbf")) {
 			osmPath = osmPath + ".osm";
 		}
 		OSMImportRunner runner = new OSMImportRunner(api, ktx.securityContext(), osmPath, layerName, layerMaker, log,
@@ -141,8 +142,9 @@ public class OsmSpatialProcedures extends SpatialApiBase {
 				importer.setSecurityContext(securityContext);
 				// import using multiple, serial inner transactions (using the security context of the outer thread)
 				importer.importFile(db, osmPath, false, 10000);
-				// Re-index using inner transactions (using the security context of the outer thread)
-				rc = importer.reIndex(db, 10000, false);
+				// Re-index using inner transactions (using the security context of the outer thread), finding the
+				// geometries on worker threads and adding them to the index in bulk
+				rc = importer.reIndex(db, 10000, false, true);
 			} catch (Exception e) {
 				log.error("Error running OSMImporter: " + e.getMessage());
 				this.e = e;
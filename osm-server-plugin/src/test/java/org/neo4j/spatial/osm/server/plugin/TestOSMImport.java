@@ -21,20 +21,34 @@ package org.neo4j.spatial.osm.server.plugin;
 
 import static org.junit.jupiter.params.provider.Arguments.of;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.neo4j.gis.spatial.SpatialDatabaseService;
+import org.neo4j.gis.spatial.index.IndexManagerImpl;
+import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.kernel.api.security.SecurityContext;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.spatial.api.Envelope;
+import org.neo4j.spatial.api.index.SpatialIndexReader;
+import org.neo4j.spatial.testutils.SpatialTestUtils;
 
 public class TestOSMImport extends TestOSMImportBase {
 
@@ -91,6 +105,141 @@ public class TestOSMImport extends TestOSMImportBase {
 		}
 	}
 
+	@Test
+	public void nodeStoreFindsOrderedAndUnorderedNodes() throws Exception {
+		try (OSMNodeStore store = new OSMNodeStore()) {
+			// enough nodes to span several segments of the store
+			for (long id = 1; id <= 5_000_000; id += 2) {
+				store.add(id, id * 1e-6, -id * 1e-6);
+			}
+			store.add(4, 40.0, 41.0);
+			store.add(7, 70.0, 71.0);
+			double[] location = new double[2];
+			Assertions.assertTrue(store.location(4_999_999, location));
+			Assertions.assertArrayEquals(new double[]{4.999999, -4.999999}, location, 1e-9);
+			Assertions.assertTrue(store.location(4, location));
+			Assertions.assertArrayEquals(new double[]{40.0, 41.0}, location);
+			Assertions.assertTrue(store.location(7, location));
+			Assertions.assertArrayEquals(new double[]{70.0, 71.0}, location);
+			Assertions.assertFalse(store.location(6, location));
+
+			Assertions.assertNull(store.elementId(3));
+			store.setElementId(3, "4:abc:3");
+			store.setElementId(4, "4:abc:4");
+			store.setElementId(10, "4:abc:10");
+			Assertions.assertEquals("4:abc:3", store.elementId(3));
+			Assertions.assertEquals("4:abc:4", store.elementId(4));
+			Assertions.assertEquals("4:abc:10", store.elementId(10));
+			Assertions.assertFalse(store.location(10, location));
+			Assertions.assertNull(store.elementId(5));
+		}
+	}
+
+	@Test
+	public void parallelReIndexAddsTheSameGeometries() throws Exception {
+		String osmPath = checkOSMFile("map.osm");
+		if (osmPath == null) {
+			return;
+		}
+		OSMImporter importer = new OSMImporter("map.osm");
+		importer.importFile(graphDb(), osmPath, true, 5000);
+		importer.reIndex(graphDb(), 100, true);
+		int serialCount = indexCount("map.osm");
+		importer.setWorkerThreads(3);
+		importer.reIndex(graphDb(), 100, true, true);
+		Assertions.assertTrue(serialCount > 0, "Should index some geometries");
+		Assertions.assertEquals(serialCount, indexCount("map.osm"));
+		checkOSMLayer(driver, graphDb(), "map.osm");
+	}
+
+	@Test
+	public void pbfImportMatchesXmlImport() throws Exception {
+		String osmPath = checkOSMFile("map.osm");
+		String pbfPath = checkOSMFile("map.pbf");
+		if (osmPath == null || pbfPath == null) {
+			return;
+		}
+		long[] before = entityCounts();
+		new OSMImporter("map.osm").importFile(graphDb(), osmPath, true, 5000);
+		long[] afterXml = entityCounts();
+		new OSMImporter("map.pbf").importFile(graphDb(), pbfPath, true, 5000);
+		long[] afterPbf = entityCounts();
+		for (int i = 0; i < before.length; i++) {
+			Assertions.assertTrue(afterXml[i] > before[i], "Should import some entities of each type");
+			Assertions.assertEquals(afterXml[i] - before[i], afterPbf[i] - afterXml[i]);
+		}
+		Assertions.assertEquals(indexCount("map.osm"), indexCount("map.pbf"));
+		Assertions.assertEquals(indexedEnvelopes("map.osm"), indexedEnvelopes("map.pbf"));
+		checkOSMLayer(driver, graphDb(), "map.pbf");
+	}
+
+	@Test
+	public void malformedPbfFailsWithFileOffset() throws Exception {
+		String pbfPath = checkOSMFile("map.pbf");
+		if (pbfPath == null) {
+			return;
+		}
+		byte[] data = Files.readAllBytes(Path.of(pbfPath));
+		File truncated = File.createTempFile("truncated", ".pbf");
+		File corrupted = File.createTempFile("corrupted", ".pbf");
+		try {
+			Files.write(truncated.toPath(), Arrays.copyOf(data, data.length - 100));
+			IOException error = Assertions.assertThrows(IOException.class,
+					() -> new OSMImporter("truncated").importFile(graphDb(), truncated.getPath(), true, 5000));
+			Assertions.assertTrue(error.getMessage().contains("offset"), error.getMessage());
+
+			// make the type string of the first blob header longer than the header itself
+			byte[] copy = data.clone();
+			copy[5] = 0x7F;
+			Files.write(corrupted.toPath(), copy);
+			error = Assertions.assertThrows(IOException.class,
+					() -> new OSMImporter("corrupted").importFile(graphDb(), corrupted.getPath(), true, 5000));
+			Assertions.assertTrue(error.getMessage().contains("offset 0"), error.getMessage());
+		} finally {
+			truncated.delete();
+			corrupted.delete();
+		}
+	}
+
+	private long[] entityCounts() {
+		try (Transaction tx = graphDb().beginTx()) {
+			long[] counts = new long[3];
+			Label[] labels = new Label[]{OSMImporter.LABEL_NODE, OSMImporter.LABEL_WAY, OSMImporter.LABEL_RELATION};
+			for (int i = 0; i < labels.length; i++) {
+				counts[i] = tx.findNodes(labels[i]).stream().count();
+			}
+			tx.commit();
+			return counts;
+		}
+	}
+
+	private List<String> indexedEnvelopes(String layerName) {
+		try (Transaction tx = graphDb().beginTx()) {
+			SpatialDatabaseService spatial = new SpatialDatabaseService(
+					new IndexManagerImpl((GraphDatabaseAPI) graphDb(), SecurityContext.AUTH_DISABLED));
+			SpatialIndexReader index = spatial.getLayer(tx, layerName, true).getIndex();
+			List<String> envelopes = new ArrayList<>();
+			for (Node node : index.getAllIndexedNodes(tx)) {
+				Envelope envelope = index.getEnvelopeDecoder().decodeEnvelope(node);
+				envelopes.add(String.format("%.7f %.7f %.7f %.7f", envelope.getMin()[0], envelope.getMin()[1],
+						envelope.getMax()[0], envelope.getMax()[1]));
+			}
+			tx.commit();
+			Collections.sort(envelopes);
+			return envelopes;
+		}
+	}
+
+	private int indexCount(String layerName) {
+		try (Transaction tx = graphDb().beginTx()) {
+			SpatialDatabaseService spatial = new SpatialDatabaseService(
+					new IndexManagerImpl((GraphDatabaseAPI) graphDb(), SecurityContext.AUTH_DISABLED));
+			int count = SpatialTestUtils.checkIndexCount(tx, spatial.getLayer(tx, layerName, true));
+			tx.commit();
+			return count;
+		}
+	}
+
 	private static void debugNode(Node node) {
 		Map<String, Object> properties = node.getProperties();
 		System.out.println(node + " has " + properties.size() + " properties");
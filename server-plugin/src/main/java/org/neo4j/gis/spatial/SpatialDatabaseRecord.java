@@ -75,6 +75,10 @@ public class SpatialDatabaseRecord implements SpatialRecord {
 		return layer.getCoordinateReferenceSystem(tx);
 	}
 
+	public Layer getLayer() {
+		return layer;
+	}
+
 	public String getLayerName() {
 		return layer.getName();
 	}
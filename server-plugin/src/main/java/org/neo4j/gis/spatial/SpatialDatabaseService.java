@@ -43,6 +43,7 @@ import org.locationtech.jts.geom.MultiPoint;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
+import org.neo4j.gis.spatial.encoders.CompactGeometryEncoder;
 import org.neo4j.gis.spatial.encoders.NativePointEncoder;
 import org.neo4j.gis.spatial.encoders.SimplePointEncoder;
 import org.neo4j.gis.spatial.encoders.WKBGeometryEncoder;
@@ -196,12 +197,10 @@ public class SpatialDatabaseService {
 
 	public Layer getLayer(Transaction tx, String name, boolean readOnly) {
 		assertNotOldModel(tx);
-		try (var layers = tx.findNodes(LABEL_LAYER)) {
-			while (layers.hasNext()) {
-				Node node = layers.next();
-				if (name.equals(node.getProperty(PROP_LAYER))) {
-					return LayerUtilities.makeLayerFromNode(tx, indexManager, node, readOnly);
-				}
+		// Uses the SpatialLayers schema index on the layer name when it exists
+		try (var layers = tx.findNodes(LABEL_LAYER, PROP_LAYER, name)) {
+			if (layers.hasNext()) {
+				return LayerUtilities.makeLayerFromNode(tx, indexManager, layers.next(), readOnly);
 			}
 		}
 		return getDynamicLayer(tx, name, readOnly);
@@ -257,6 +256,8 @@ public class SpatialDatabaseService {
 		Class<? extends GeometryEncoder> geClass = WKBGeometryEncoder.class;
 		if (format != null && format.toUpperCase().startsWith("WKT")) {
 			geClass = WKTGeometryEncoder.class;
+		} else if (format != null && format.toUpperCase().startsWith("COMPACT")) {
+			geClass = CompactGeometryEncoder.class;
 		}
 		return (EditableLayer) getOrCreateLayer(tx, name, geClass, EditableLayerImpl.class, propertyNameConfig,
 				indexConfig, readOnly);
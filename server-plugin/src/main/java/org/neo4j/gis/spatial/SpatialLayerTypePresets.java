@@ -22,6 +22,7 @@ package org.neo4j.gis.spatial;
 
 import java.util.List;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.neo4j.gis.spatial.encoders.CompactGeometryEncoder;
 import org.neo4j.gis.spatial.encoders.NativePointEncoder;
 import org.neo4j.gis.spatial.encoders.NativePointsEncoder;
 import org.neo4j.gis.spatial.encoders.SimplePointEncoder;
@@ -63,6 +64,8 @@ public class SpatialLayerTypePresets implements LayerTypePresets {
 				new RegisteredLayerType("WKT", WKTGeometryEncoder.class, EditableLayerImpl.class,
 						DefaultGeographicCRS.WGS84, LayerRTreeIndex.class, "geometry"),
 				new RegisteredLayerType("WKB", WKBGeometryEncoder.class, EditableLayerImpl.class,
+						DefaultGeographicCRS.WGS84, LayerRTreeIndex.class, "geometry"),
+				new RegisteredLayerType("Compact", CompactGeometryEncoder.class, EditableLayerImpl.class,
 						DefaultGeographicCRS.WGS84, LayerRTreeIndex.class, "geometry")
 		);
 	}
@@ -21,8 +21,11 @@ package org.neo4j.gis.spatial;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
@@ -33,10 +36,14 @@ import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.linearref.LengthIndexedLine;
 import org.locationtech.jts.linearref.LinearLocation;
 import org.locationtech.jts.linearref.LocationIndexedLine;
+import org.locationtech.jts.operation.distance.DistanceOp;
 import org.neo4j.gis.spatial.filter.SearchIntersect;
+import org.neo4j.gis.spatial.rtree.RTreeIndex;
+import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.spatial.api.SpatialRecord;
 import org.neo4j.spatial.api.SpatialRecords;
+import org.neo4j.spatial.api.encoder.GeometryEncoder;
 import org.neo4j.spatial.api.layer.Layer;
 
 /**
@@ -139,6 +146,55 @@ public class SpatialTopologyUtils {
 		return results;
 	}
 
+	/**
+	 * Find the k geometries in the given layer that are closest to the given point, ordered by increasing distance.
+	 * Unlike findClosestEdges this does not need a search window. For layers indexed with an RTreeIndex a best-first
+	 * traversal of the tree is used, which stops as soon as k exact results have been found. Other indexes cannot
+	 * be traversed by distance, so all indexed geometries are scanned while keeping only the k closest.
+	 *
+	 * @return list of point results containing the closest point on the geometry, the spatial record and the distance
+	 */
+	public static List<PointResult> findNearest(Transaction tx, Point point, Layer layer, int k) {
+		if (k < 1) {
+			return new ArrayList<>(0);
+		}
+		GeometryEncoder encoder = layer.getGeometryEncoder();
+		if (layer.getIndex() instanceof RTreeIndex rtree) {
+			ArrayList<PointResult> results = new ArrayList<>(Math.min(k, 1024));
+			Iterator<RTreeIndex.NodeWithDistance> nearest = rtree.searchNearest(tx,
+					new double[]{point.getX(), point.getY()},
+					geomNode -> encoder.decodeGeometry(geomNode).distance(point));
+			while (results.size() < k && nearest.hasNext()) {
+				RTreeIndex.NodeWithDistance next = nearest.next();
+				results.add(makePointResult(point, layer, new SpatialDatabaseRecord(layer, next.node()),
+						next.distance()));
+			}
+			return results;
+		}
+		PriorityQueue<PointResult> closest = new PriorityQueue<>(Math.min(k, 1024) + 1,
+				Comparator.reverseOrder());
+		for (Node geomNode : layer.getIndex().getAllIndexedNodes(tx)) {
+			double distance = encoder.decodeGeometry(geomNode).distance(point);
+			if (closest.size() < k || distance < closest.peek().getDistance()) {
+				closest.add(new PointResult(point, new SpatialDatabaseRecord(layer, geomNode), distance));
+				if (closest.size() > k) {
+					closest.poll();
+				}
+			}
+		}
+		ArrayList<PointResult> results = new ArrayList<>(closest.size());
+		for (PointResult result : closest) {
+			results.add(makePointResult(point, layer, result.getValue(), result.getDistance()));
+		}
+		Collections.sort(results);
+		return results;
+	}
+
+	private static PointResult makePointResult(Point point, Layer layer, SpatialRecord record, double distance) {
+		Coordinate closest = DistanceOp.nearestPoints(record.getGeometry(), point)[0];
+		return new PointResult(layer.getGeometryFactory().createPoint(closest), record, distance);
+	}
+
 	/**
 	 * Create a Point located at the specified 'measure' distance along a
 	 * Geometry, and offset to the left of the Geometry by the specified offset
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.gis.spatial.encoders;
+
+import static org.neo4j.gis.spatial.Constants.GTYPE_LINESTRING;
+import static org.neo4j.gis.spatial.Constants.GTYPE_MULTILINESTRING;
+import static org.neo4j.gis.spatial.Constants.GTYPE_MULTIPOINT;
+import static org.neo4j.gis.spatial.Constants.GTYPE_MULTIPOLYGON;
+import static org.neo4j.gis.spatial.Constants.GTYPE_POINT;
+import static org.neo4j.gis.spatial.Constants.GTYPE_POLYGON;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.neo4j.gis.spatial.SpatialDatabaseException;
+import org.neo4j.graphdb.Entity;
+import org.neo4j.graphdb.Transaction;
+
+/**
+ * Stores geometries as a single byte array of variable length integers, without the per-geometry headers of WKB.
+ * Each coordinate is stored as the difference from the previous one, so the coordinates of a line or polygon,
+ * which are mostly close together, take only a few bytes each. The coordinates are rounded to a fixed number of
+ * decimal digits, 7 by default, which is about a centimetre in degrees, and stored as zigzag encoded deltas. A
+ * precision of -1 keeps the coordinates exact by storing the bits of each double xor-ed with the bits of the previous
+ * one, but that can take up to 10 bytes per ordinate, more than the 8 of WKB, so it only helps when neighbouring
+ * coordinates share most of their bits.
+ * <p>
+ * The geometries are decoded straight into packed coordinate sequences, without creating a Coordinate per vertex.
+ * Only two dimensions are stored, as for the WKB encoder.
+ * <p>
+ * The configuration is 'geom:bbox:precision', for example 'geometry:bbox:3' keeps 3 decimal digits and
+ * 'geometry:bbox:-1' keeps the coordinates exact.
+ */
+public class CompactGeometryEncoder extends AbstractSinglePropertyEncoder {
+
+	private static final int FULL_PRECISION = -1;
+	private static final int DEFAULT_PRECISION = 7;
+
+	private int precision = DEFAULT_PRECISION;
+
+	@Override
+	public List<String> getIdentifiers() {
+		return List.of("CompactGeometryEncoder", "org.neo4j.gis.spatial.encoders.CompactGeometryEncoder");
+	}
+
+	@Override
+	public Geometry decodeGeometry(Entity container) {
+		byte[] data = (byte[]) container.getProperty(geomProperty);
+		try {
+			return new Decoder(data, layer.getGeometryFactory()).geometry();
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new SpatialDatabaseException("Truncated compact geometry in property '" + geomProperty + "'", e);
+		}
+	}
+
+	@Override
+	protected void encodeGeometryShape(Transaction tx, Geometry geometry, Entity container) {
+		Encoder encoder = new Encoder(precision);
+		encoder.geometry(geometry);
+		container.setProperty(geomProperty, encoder.toByteArray());
+	}
+
+	@Override
+	public void setConfiguration(String configuration) {
+		super.setConfiguration(configuration);
+		if (configuration != null && !configuration.trim().isEmpty()) {
+			String[] fields = configuration.split(":");
+			if (fields.length > 2 && !fields[2].trim().isEmpty()) {
+				precision = Integer.parseInt(fields[2].trim());
+				if (precision < FULL_PRECISION || precision > 15) {
+					throw new IllegalArgumentException(
+							"Precision must be between 0 and 15 decimal digits, or -1 for full precision: "
+									+ precision);
+				}
+			}
+		}
+	}
+
+	@Override
+	public String getConfiguration() {
+		return super.getConfiguration() + ":" + precision;
+	}
+
+	@Override
+	public String getSignature() {
+		return "CompactGeometryEncoder(geom='" + geomProperty + "', bbox='" + bboxProperty + "', precision="
+				+ precision + ")";
+	}
+
+	private static final class Encoder {
+
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		private final int precision;
+		private final double scale;
+		private long x;
+		private long y;
+
+		private Encoder(int precision) {
+			this.precision = precision;
+			this.scale = precision == FULL_PRECISION ? 0 : Math.pow(10, precision);
+		}
+
+		private void geometry(Geometry geometry) {
+			int gtype = encodeGeometryType(geometry.getGeometryType());
+			writeVarLong(gtype);
+			writeVarLong(zigzag(precision));
+			switch (gtype) {
+				case GTYPE_POINT -> sequence(((Point) geometry).getCoordinateSequence());
+				case GTYPE_LINESTRING -> sequence(((LineString) geometry).getCoordinateSequence());
+				case GTYPE_POLYGON -> polygon((Polygon) geometry);
+				case GTYPE_MULTIPOINT, GTYPE_MULTILINESTRING, GTYPE_MULTIPOLYGON -> {
+					writeVarLong(geometry.getNumGeometries());
+					for (int i = 0; i < geometry.getNumGeometries(); i++) {
+						Geometry part = geometry.getGeometryN(i);
+						if (part instanceof Point point) {
+							sequence(point.getCoordinateSequence());
+						} else if (part instanceof LineString line) {
+							sequence(line.getCoordinateSequence());
+						} else {
+							polygon((Polygon) part);
+						}
+					}
+				}
+				default -> throw new IllegalArgumentException("Unknown geometry type: " + gtype);
+			}
+		}
+
+		private void polygon(Polygon polygon) {
+			if (polygon.isEmpty()) {
+				writeVarLong(0);
+				return;
+			}
+			writeVarLong(1 + polygon.getNumInteriorRing());
+			sequence(polygon.getExteriorRing().getCoordinateSequence());
+			for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+				sequence(polygon.getInteriorRingN(i).getCoordinateSequence());
+			}
+		}
+
+		private void sequence(CoordinateSequence sequence) {
+			writeVarLong(sequence.size());
+			for (int i = 0; i < sequence.size(); i++) {
+				if (precision == FULL_PRECISION) {
+					long nextX = Double.doubleToLongBits(sequence.getX(i));
+					long nextY = Double.doubleToLongBits(sequence.getY(i));
+					writeVarLong(nextX ^ x);
+					writeVarLong(nextY ^ y);
+					x = nextX;
+					y = nextY;
+				} else {
+					long nextX = Math.round(sequence.getX(i) * scale);
+					long nextY = Math.round(sequence.getY(i) * scale);
+					writeVarLong(zigzag(nextX - x));
+					writeVarLong(zigzag(nextY - y));
+					x = nextX;
+					y = nextY;
+				}
+			}
+		}
+
+		private void writeVarLong(long value) {
+			while ((value & ~0x7FL) != 0) {
+				out.write((int) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			out.write((int) value);
+		}
+
+		private static long zigzag(long value) {
+			return (value << 1) ^ (value >> 63);
+		}
+
+		private byte[] toByteArray() {
+			return out.toByteArray();
+		}
+	}
+
+	private static final class Decoder {
+
+		private final byte[] data;
+		private final GeometryFactory factory;
+		private int position = 0;
+		private boolean fixedPrecision;
+		private double scale;
+		private long x;
+		private long y;
+
+		private Decoder(byte[] data, GeometryFactory factory) {
+			this.data = data;
+			this.factory = factory;
+		}
+
+		private Geometry geometry() {
+			int gtype = (int) readVarLong();
+			int precision = (int) unzigzag(readVarLong());
+			fixedPrecision = precision != FULL_PRECISION;
+			scale = fixedPrecision ? Math.pow(10, precision) : 0;
+			return switch (gtype) {
+				case GTYPE_POINT -> factory.createPoint(sequence());
+				case GTYPE_LINESTRING -> factory.createLineString(sequence());
+				case GTYPE_POLYGON -> polygon();
+				case GTYPE_MULTIPOINT -> {
+					Point[] points = new Point[(int) readVarLong()];
+					for (int i = 0; i < points.length; i++) {
+						points[i] = factory.createPoint(sequence());
+					}
+					yield factory.createMultiPoint(points);
+				}
+				case GTYPE_MULTILINESTRING -> {
+					LineString[] lines = new LineString[(int) readVarLong()];
+					for (int i = 0; i < lines.length; i++) {
+						lines[i] = factory.createLineString(sequence());
+					}
+					yield factory.createMultiLineString(lines);
+				}
+				case GTYPE_MULTIPOLYGON -> {
+					Polygon[] polygons = new Polygon[(int) readVarLong()];
+					for (int i = 0; i < polygons.length; i++) {
+						polygons[i] = polygon();
+					}
+					yield factory.createMultiPolygon(polygons);
+				}
+				default -> throw new SpatialDatabaseException("Unknown geometry type in compact geometry: " + gtype);
+			};
+		}
+
+		private Polygon polygon() {
+			int rings = (int) readVarLong();
+			if (rings == 0) {
+				return factory.createPolygon();
+			}
+			LinearRing shell = factory.createLinearRing(sequence());
+			LinearRing[] holes = new LinearRing[rings - 1];
+			for (int i = 0; i < holes.length; i++) {
+				holes[i] = factory.createLinearRing(sequence());
+			}
+			return factory.createPolygon(shell, holes);
+		}
+
+		private CoordinateSequence sequence() {
+			double[] ordinates = new double[2 * (int) readVarLong()];
+			for (int i = 0; i < ordinates.length; i += 2) {
+				if (fixedPrecision) {
+					x += unzigzag(readVarLong());
+					y += unzigzag(readVarLong());
+					ordinates[i] = x / scale;
+					ordinates[i + 1] = y / scale;
+				} else {
+					x ^= readVarLong();
+					y ^= readVarLong();
+					ordinates[i] = Double.longBitsToDouble(x);
+					ordinates[i + 1] = Double.longBitsToDouble(y);
+				}
+			}
+			return new PackedCoordinateSequence.Double(ordinates, 2, 0);
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data[position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		private static long unzigzag(long value) {
+			return (value >>> 1) ^ -(value & 1);
+		}
+	}
+}
@@ -19,28 +19,91 @@
  */
 package org.neo4j.gis.spatial.filter;
 
+import java.util.concurrent.atomic.LongAdder;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.neo4j.gis.spatial.Utilities;
 import org.neo4j.gis.spatial.rtree.filter.AbstractSearchEnvelopeIntersection;
 import org.neo4j.graphdb.Node;
+import org.neo4j.spatial.api.Envelope;
 import org.neo4j.spatial.api.layer.Layer;
 
 /**
+ * Base class of the filters comparing each candidate with a reference geometry. The candidates are matched in two
+ * phases. The stored envelope of each candidate is first compared with a prepared copy of the reference geometry,
+ * and only when that does not decide the result is the geometry of the candidate decoded and compared. Counters
+ * of how often each phase decided the result can be read after the search.
+ *
  * @author Craig Taverner
  */
 public abstract class AbstractSearchIntersection extends AbstractSearchEnvelopeIntersection {
 
 	protected final Geometry referenceGeometry;
 	protected final Layer layer;
+	protected final PreparedGeometry preparedReference;
+	private final LongAdder envelopeMatches = new LongAdder();
+	private final LongAdder envelopeRejections = new LongAdder();
+	private final LongAdder geometryTests = new LongAdder();
 
 	public AbstractSearchIntersection(Layer layer, Geometry referenceGeometry) {
 		super(layer.getGeometryEncoder(), Utilities.fromJtsToNeo4j(referenceGeometry.getEnvelopeInternal()));
 		this.referenceGeometry = referenceGeometry;
 		this.layer = layer;
+		this.preparedReference = PreparedGeometryFactory.prepare(referenceGeometry);
 	}
 
 	protected Geometry decode(Node geomNode) {
 		return layer.getGeometryEncoder().decodeGeometry(geomNode);
 	}
 
+	@Override
+	protected boolean onEnvelopeIntersection(Node geomNode, Envelope geomEnvelope) {
+		Boolean matches = matchesEnvelope(
+				layer.getGeometryFactory().toGeometry(Utilities.fromNeo4jToJts(geomEnvelope)));
+		if (matches == null) {
+			geometryTests.increment();
+			return matches(decode(geomNode));
+		}
+		if (matches) {
+			envelopeMatches.increment();
+		} else {
+			envelopeRejections.increment();
+		}
+		return matches;
+	}
+
+	/**
+	 * Decide the match from the envelope of the candidate alone, when possible.
+	 *
+	 * @param envelope the envelope of the candidate, as a polygon, or as a line or point when it is degenerate
+	 * @return whether every geometry with this envelope matches, or none do, or null if the geometry must be tested
+	 */
+	protected abstract Boolean matchesEnvelope(Geometry envelope);
+
+	/**
+	 * Test the decoded geometry of a candidate whose envelope did not decide the match.
+	 */
+	protected abstract boolean matches(Geometry geometry);
+
+	/**
+	 * @return the number of candidates that matched on their envelope alone
+	 */
+	public long getEnvelopeMatches() {
+		return envelopeMatches.sum();
+	}
+
+	/**
+	 * @return the number of candidates that were rejected on their envelope alone
+	 */
+	public long getEnvelopeRejections() {
+		return envelopeRejections.sum();
+	}
+
+	/**
+	 * @return the number of candidates whose geometry had to be decoded and tested
+	 */
+	public long getGeometryTests() {
+		return geometryTests.sum();
+	}
 }
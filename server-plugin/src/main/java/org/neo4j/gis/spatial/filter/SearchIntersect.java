@@ -20,8 +20,6 @@
 package org.neo4j.gis.spatial.filter;
 
 import org.locationtech.jts.geom.Geometry;
-import org.neo4j.graphdb.Node;
-import org.neo4j.spatial.api.Envelope;
 import org.neo4j.spatial.api.layer.Layer;
 
 
@@ -38,9 +36,20 @@ public class SearchIntersect extends AbstractSearchIntersection {
 	}
 
 	@Override
-	protected boolean onEnvelopeIntersection(Node geomNode, Envelope geomEnvelope) {
-		Geometry geometry = decode(geomNode);
-		return geometry.intersects(referenceGeometry);
+	protected Boolean matchesEnvelope(Geometry envelope) {
+		// a geometry inside a covered envelope must intersect, and one inside a disjoint envelope cannot
+		if (preparedReference.covers(envelope)) {
+			return true;
+		}
+		if (preparedReference.disjoint(envelope)) {
+			return false;
+		}
+		return null;
+	}
+
+	@Override
+	protected boolean matches(Geometry geometry) {
+		return preparedReference.intersects(geometry);
 	}
 
 }
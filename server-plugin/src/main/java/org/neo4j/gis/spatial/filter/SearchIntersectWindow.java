@@ -21,6 +21,8 @@ package org.neo4j.gis.spatial.filter;
 
 import org.locationtech.jts.algorithm.Orientation;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.neo4j.gis.spatial.Utilities;
 import org.neo4j.gis.spatial.index.Envelope;
 import org.neo4j.gis.spatial.rtree.filter.AbstractSearchEnvelopeIntersection;
@@ -38,6 +40,7 @@ public class SearchIntersectWindow extends AbstractSearchEnvelopeIntersection {
 
 	private final Layer layer;
 	private final Geometry windowGeom;
+	private final PreparedGeometry preparedWindow;
 	private final boolean isBBox;
 
 	public SearchIntersectWindow(Layer layer, Envelope envelope) {
@@ -48,6 +51,7 @@ public class SearchIntersectWindow extends AbstractSearchEnvelopeIntersection {
 		super(layer.getGeometryEncoder(), Utilities.fromJtsToNeo4j(other));
 		this.layer = layer;
 		this.windowGeom = layer.getGeometryFactory().toGeometry(other);
+		this.preparedWindow = PreparedGeometryFactory.prepare(windowGeom);
 		this.isBBox = this.windowGeom.isRectangle()
 				// not a hole
 				&& !Orientation.isCCW(windowGeom.getCoordinates());
@@ -82,7 +86,7 @@ public class SearchIntersectWindow extends AbstractSearchEnvelopeIntersection {
 		// The next line just calls the method that is causing exceptions on OSM data for testing
 		// TODO: Remove when OSM is working properly
 		geometry.getEnvelopeInternal();
-		return geometry.intersects(windowGeom);
+		return preparedWindow.intersects(geometry);
 	}
 
 }
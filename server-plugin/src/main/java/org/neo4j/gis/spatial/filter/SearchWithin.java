@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.gis.spatial.filter;
+
+import org.locationtech.jts.geom.Geometry;
+import org.neo4j.spatial.api.layer.Layer;
+
+
+/**
+ * Find geometries that are within the given geometry
+ */
+public class SearchWithin extends AbstractSearchIntersection {
+
+	public SearchWithin(Layer layer, Geometry other) {
+		super(layer, other);
+	}
+
+	@Override
+	protected Boolean matchesEnvelope(Geometry envelope) {
+		// a geometry in an envelope inside the interior of the reference is within it, and one in an envelope
+		// reaching outside the bounds of the reference, or disjoint from it, cannot be
+		if (preparedReference.containsProperly(envelope)) {
+			return true;
+		}
+		if (!referenceGeometry.getEnvelopeInternal().covers(envelope.getEnvelopeInternal())
+				|| preparedReference.disjoint(envelope)) {
+			return false;
+		}
+		return null;
+	}
+
+	@Override
+	protected boolean matches(Geometry geometry) {
+		return preparedReference.contains(geometry);
+	}
+
+}
@@ -19,24 +19,56 @@
  */
 package org.neo4j.gis.spatial.index;
 
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how well the 1D index of a point index matches searches: hits are the indexed nodes that matched the search
+ * filter, misses those found by the index seeks that the filter then rejected, and seeks the number of index range
+ * seeks made. The counts can be updated by several searches running at the same time.
+ */
 public class ExplicitIndexBackedMonitor {
 
-	long hits = 0L;
-	long misses = 0;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder seeks = new LongAdder();
 
 	public void hit() {
-		hits++;
+		hits.increment();
 	}
 
 	public void miss() {
-		misses++;
+		misses.increment();
+	}
+
+	public void seek(int ranges) {
+		seeks.add(ranges);
 	}
 
 	public long getHits() {
-		return hits;
+		return hits.sum();
 	}
 
 	public long getMisses() {
-		return misses;
+		return misses.sum();
+	}
+
+	public long getSeeks() {
+		return seeks.sum();
+	}
+
+	/**
+	 * @return the fraction of the nodes found by the index seeks that matched the search filter, or 1 if none were
+	 * found yet
+	 */
+	public double getHitRatio() {
+		long hitCount = hits.sum();
+		long touched = hitCount + misses.sum();
+		return touched == 0 ? 1.0 : (double) hitCount / touched;
+	}
+
+	public void reset() {
+		hits.reset();
+		misses.reset();
+		seeks.reset();
 	}
 }
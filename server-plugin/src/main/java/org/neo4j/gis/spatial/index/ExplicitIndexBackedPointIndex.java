@@ -52,6 +52,9 @@ import org.neo4j.spatial.api.monitoring.TreeMonitor;
  * <p>
  * All three of these mappings will be backed by the ExplicitIndexBackedPointIndex of
  * type `E` where `E` is either a string (for geohash) or a long (for zorder and hilber).
+ * <p>
+ * The number of indexed geometries is read from the counts store of the index label, and their envelope is kept up
+ * to date on every add in a {@link PointIndexExtent}, so neither needs a scan of the index.
  *
  * @param <E> either a String or a Long depending on whether the index is geohash or space-filling curve.
  */
@@ -59,6 +62,7 @@ public abstract class ExplicitIndexBackedPointIndex<E> implements SpatialIndexWr
 
 	protected Layer layer;
 	private PropertyEncodingNodeIndex<E> index;
+	private PointIndexExtent extent;
 	private final ExplicitIndexBackedMonitor monitor = new ExplicitIndexBackedMonitor();
 
 	protected abstract String indexTypeName();
@@ -70,6 +74,7 @@ public abstract class ExplicitIndexBackedPointIndex<E> implements SpatialIndexWr
 		Label label = Label.label("SpatialIndex_" + indexTypeName() + "_" + layer.getName());
 		this.index = new PropertyEncodingNodeIndex<>(indexManager, indexName, label, indexName.toLowerCase());
 		this.index.initialize(tx);
+		this.extent = new PointIndexExtent(Label.label("SpatialIndexExtent_" + indexTypeName() + "_" + layer.getName()));
 	}
 
 	@Override
@@ -86,9 +91,21 @@ public abstract class ExplicitIndexBackedPointIndex<E> implements SpatialIndexWr
 
 	@Override
 	public void add(Transaction tx, List<Node> geomNodes) {
+		if (geomNodes.isEmpty()) {
+			return;
+		}
+		// indexes written before the extent was kept start with the envelope of what they already contain
+		Envelope added = extent.get(tx) == null ? scanBoundingBox(tx) : null;
 		for (Node node : geomNodes) {
 			index.add(node, getIndexValueFor(tx, node));
+			Envelope envelope = getEnvelopeDecoder().decodeEnvelope(node);
+			if (added == null) {
+				added = new Envelope(envelope);
+			} else {
+				added.expandToInclude(envelope);
+			}
 		}
+		extent.include(tx, layer.getLayerNode(tx), added);
 	}
 
 	@Override
@@ -97,6 +114,9 @@ public abstract class ExplicitIndexBackedPointIndex<E> implements SpatialIndexWr
 			Node geomNode = tx.getNodeByElementId(geomNodeId);
 			if (geomNode != null) {
 				index.remove(geomNode);
+				if (index.count(tx) == 0) {
+					extent.clear(tx, layer.getLayerNode(tx));
+				}
 				if (deleteGeomNode) {
 					try (var relationships = geomNode.getRelationships()) {
 						for (Relationship rel : relationships) {
@@ -121,6 +141,7 @@ public abstract class ExplicitIndexBackedPointIndex<E> implements SpatialIndexWr
 			}
 		}
 		index.delete(tx);
+		extent.clear(tx, layer.getLayerNode(tx));
 	}
 
 	@Override
@@ -135,17 +156,39 @@ public abstract class ExplicitIndexBackedPointIndex<E> implements SpatialIndexWr
 
 	@Override
 	public boolean isEmpty(Transaction tx) {
-		return true;
+		return index.count(tx) == 0;
 	}
 
 	@Override
-	public int count(Transaction ignore) {
-		return 0;
+	public int count(Transaction tx) {
+		return (int) index.count(tx);
 	}
 
 	@Override
 	public Envelope getBoundingBox(Transaction tx) {
-		return null;
+		Envelope envelope = extent.get(tx);
+		return envelope == null ? scanBoundingBox(tx) : envelope;
+	}
+
+	/**
+	 * @return the envelope kept for the index, or null if none is kept yet, without scanning the index like
+	 * {@link #getBoundingBox(Transaction)} does for indexes written before the envelope was kept
+	 */
+	protected Envelope getKnownExtent(Transaction tx) {
+		return extent.get(tx);
+	}
+
+	private Envelope scanBoundingBox(Transaction tx) {
+		Envelope envelope = null;
+		for (Node node : getAllIndexedNodes(tx)) {
+			Envelope nodeEnvelope = getEnvelopeDecoder().decodeEnvelope(node);
+			if (envelope == null) {
+				envelope = new Envelope(nodeEnvelope);
+			} else {
+				envelope.expandToInclude(nodeEnvelope);
+			}
+		}
+		return envelope;
 	}
 
 	@Override
@@ -25,6 +25,7 @@ import static org.apache.lucene.geo.GeoUtils.checkLatitude;
 import static org.apache.lucene.geo.GeoUtils.checkLongitude;
 import static org.neo4j.gis.spatial.Constants.INDEX_TYPE_GEOHASH;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import org.apache.lucene.util.BitUtil;
@@ -41,6 +42,11 @@ import org.neo4j.spatial.api.SearchFilter;
 
 public class LayerGeohashPointIndex extends ExplicitIndexBackedPointIndex<String> {
 
+	/**
+	 * The most prefixes a search is decomposed into, which bounds the number of index seeks per search.
+	 */
+	private static final int MAX_PREFIXES = 32;
+
 	@Override
 	public List<String> getIdentifiers() {
 		return List.of(INDEX_TYPE_GEOHASH, "org.neo4j.gis.spatial.index.LayerGeohashPointIndex");
@@ -60,40 +66,112 @@ public class LayerGeohashPointIndex extends ExplicitIndexBackedPointIndex<String
 		return geoTermToString(encoded);
 	}
 
-	private static String greatestCommonPrefix(String a, String b) {
-		int minLength = Math.min(a.length(), b.length());
-		for (int i = 0; i < minLength; i++) {
-			if (a.charAt(i) != b.charAt(i)) {
-				return a.substring(0, i);
-			}
-		}
-		return a.substring(0, minLength);
-	}
-
 	@Override
 	protected Neo4jIndexSearcher searcherFor(Transaction tx, SearchFilter filter) {
 		if (filter instanceof AbstractSearchEnvelopeIntersection) {
 			Envelope referenceEnvelope = ((AbstractSearchEnvelopeIntersection) filter).getReferenceEnvelope();
-			String maxHash = geoTermToString(encode(referenceEnvelope.getMaxY(), referenceEnvelope.getMaxX()));
-			String minHash = geoTermToString(encode(referenceEnvelope.getMinY(), referenceEnvelope.getMinX()));
-			return new PrefixSearcher(greatestCommonPrefix(minHash, maxHash));
+			List<String> prefixes = coveringPrefixes(referenceEnvelope);
+			getMonitor().seek(prefixes.size());
+			return new PrefixSearcher(prefixes);
 		}
 		throw new UnsupportedOperationException(
 				"Geohash Index only supports searches based on AbstractSearchEnvelopeIntersection, not "
 						+ filter.getClass().getCanonicalName());
 	}
 
+	/**
+	 * Decompose the envelope into the prefixes of the geohash cells covering it. Starting from the whole world, the
+	 * cells crossing the border of the envelope are split in two, one level at a time, for as long as the covering
+	 * set stays within {@link #MAX_PREFIXES} cells. The cells are disjoint, so each node is found by one prefix at
+	 * most, and searching them costs about the same wherever the envelope lies, even when it straddles the equator or
+	 * the prime meridian, which have no common prefix on either side.
+	 */
+	static List<String> coveringPrefixes(Envelope envelope) {
+		Cell query = new Cell(null,
+				sortable(encodeLatitude(clamp(envelope.getMinY(), 90))),
+				sortable(encodeLatitude(clamp(envelope.getMaxY(), 90))),
+				sortable(encodeLongitude(clamp(envelope.getMinX(), 180))),
+				sortable(encodeLongitude(clamp(envelope.getMaxX(), 180))));
+		List<Cell> cells = List.of(new Cell("", 0, 0xFFFFFFFFL, 0, 0xFFFFFFFFL));
+		while (true) {
+			List<Cell> split = new ArrayList<>();
+			boolean refined = false;
+			for (Cell cell : cells) {
+				if (query.contains(cell) || cell.prefix.length() == Long.SIZE) {
+					split.add(cell);
+					continue;
+				}
+				refined = true;
+				for (Cell half : cell.halves()) {
+					if (query.intersects(half)) {
+						split.add(half);
+					}
+				}
+			}
+			if (!refined || split.size() > MAX_PREFIXES) {
+				break;
+			}
+			cells = split;
+		}
+		List<String> prefixes = new ArrayList<>(cells.size());
+		for (Cell cell : cells) {
+			prefixes.add(cell.prefix);
+		}
+		return prefixes;
+	}
+
+	private static double clamp(double value, double limit) {
+		return Math.max(-limit, Math.min(limit, value));
+	}
+
+	/**
+	 * @return the encoded coordinate as the unsigned value its bits are interleaved from by {@link #encode}
+	 */
+	private static long sortable(int encoded) {
+		return Integer.toUnsignedLong(encoded ^ 0x80000000);
+	}
+
+	/**
+	 * The cell of a geohash prefix, with the range of the encoded latitudes and longitudes it contains. The first bit
+	 * of a geohash is a latitude bit, then they alternate.
+	 */
+	private record Cell(String prefix, long minLat, long maxLat, long minLon, long maxLon) {
+
+		boolean intersects(Cell other) {
+			return minLat <= other.maxLat && other.minLat <= maxLat && minLon <= other.maxLon
+					&& other.minLon <= maxLon;
+		}
+
+		boolean contains(Cell other) {
+			return minLat <= other.minLat && other.maxLat <= maxLat && minLon <= other.minLon
+					&& other.maxLon <= maxLon;
+		}
+
+		List<Cell> halves() {
+			if (prefix.length() % 2 == 0) {
+				long mid = (minLat + maxLat) >>> 1;
+				return List.of(new Cell(prefix + "0", minLat, mid, minLon, maxLon),
+						new Cell(prefix + "1", mid + 1, maxLat, minLon, maxLon));
+			}
+			long mid = (minLon + maxLon) >>> 1;
+			return List.of(new Cell(prefix + "0", minLat, maxLat, minLon, mid),
+					new Cell(prefix + "1", minLat, maxLat, mid + 1, maxLon));
+		}
+	}
+
 	public static class PrefixSearcher implements Neo4jIndexSearcher {
 
-		final String prefix;
+		final List<String> prefixes;
 
-		PrefixSearcher(String prefix) {
-			this.prefix = prefix;
+		PrefixSearcher(List<String> prefixes) {
+			this.prefixes = prefixes;
 		}
 
 		@Override
 		public Iterator<Node> search(KernelTransaction ktx, Label label, String propertyKey) {
-			return ktx.internalTransaction().findNodes(label, propertyKey, prefix, StringSearchMode.PREFIX).stream()
+			return prefixes.stream()
+					.flatMap(prefix -> ktx.internalTransaction()
+							.findNodes(label, propertyKey, prefix, StringSearchMode.PREFIX).stream())
 					.iterator();
 		}
 	}
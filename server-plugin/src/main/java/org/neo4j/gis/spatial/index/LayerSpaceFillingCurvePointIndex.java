@@ -22,41 +22,83 @@ package org.neo4j.gis.spatial.index;
 import static org.neo4j.internal.helpers.collection.Iterators.emptyResourceIterator;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
 import org.geotools.api.referencing.cs.CoordinateSystemAxis;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.neo4j.exceptions.KernelException;
+import org.neo4j.gis.spatial.encoders.Configurable;
 import org.neo4j.gis.spatial.index.curves.SpaceFillingCurve;
 import org.neo4j.gis.spatial.index.curves.StandardConfiguration;
 import org.neo4j.gis.spatial.rtree.filter.AbstractSearchEnvelopeIntersection;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
-import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Transaction;
-import org.neo4j.internal.helpers.collection.Iterators;
 import org.neo4j.internal.kernel.api.IndexQueryConstraints;
 import org.neo4j.internal.kernel.api.IndexReadSession;
-import org.neo4j.internal.kernel.api.NodeIndexCursor;
 import org.neo4j.internal.kernel.api.NodeValueIndexCursor;
 import org.neo4j.internal.kernel.api.PropertyIndexQuery;
-import org.neo4j.internal.kernel.api.Read;
 import org.neo4j.internal.schema.IndexDescriptor;
+import org.neo4j.internal.schema.IndexOrder;
 import org.neo4j.internal.schema.IndexType;
 import org.neo4j.internal.schema.SchemaDescriptors;
 import org.neo4j.io.pagecache.context.CursorContext;
 import org.neo4j.kernel.api.KernelTransaction;
 import org.neo4j.kernel.impl.core.NodeEntity;
-import org.neo4j.kernel.impl.coreapi.internal.CursorIterator;
 import org.neo4j.memory.EmptyMemoryTracker;
 import org.neo4j.spatial.api.SearchFilter;
 import org.neo4j.token.api.TokenConstants;
 
-public abstract class LayerSpaceFillingCurvePointIndex extends ExplicitIndexBackedPointIndex<Long> {
+/**
+ * A point index on a 2D to 1D space filling curve. The index configuration is a JSON object with the keys:
+ * <ul>
+ *     <li>maxLevels: the depth of the curve, from 1 to 30, defaults to 12. Each level halves the size of the
+ *     smallest tiles, so deeper curves let small searches seek fewer nodes outside the search envelope.</li>
+ *     <li>bbox: the extent of the curve as [minX, minY, maxX, maxY], defaults to the extent of the CRS. Bounding the
+ *     curve on the extent of the layer data gives the same tile sizes with fewer levels. Points outside the extent
+ *     are indexed on its border.</li>
+ *     <li>rangePolicy: 'adaptive' (the default) or 'standard', see below.</li>
+ *     <li>seekCost: for the adaptive policy, how many nodes rejected by the search filter cost as much as one more
+ *     index seek, defaults to 16.</li>
+ *     <li>orderedSearch: whether searches return the nodes in curve order, defaults to false.</li>
+ * </ul>
+ * The tiles covering a search envelope can be decomposed down to different depths: deeper decompositions fit the
+ * envelope better, so fewer nodes are rejected by the filter, but need more ranges, so more index seeks. The
+ * standard policy always goes one level deeper than the tiles the size of the envelope. The adaptive policy tries
+ * the decompositions from zero to three levels deeper, estimating the number of rejected nodes from the area of the
+ * tiles outside the envelope and the density of the layer, and picks the cheapest. Ranges closer together than
+ * one seek is worth are merged into one seek, and the standard policy merges adjacent ranges.
+ */
+public abstract class LayerSpaceFillingCurvePointIndex extends ExplicitIndexBackedPointIndex<Long>
+		implements Configurable {
+
+	public static final String KEY_MAX_LEVELS = "maxLevels";
+	public static final String KEY_BBOX = "bbox";
+	public static final String KEY_RANGE_POLICY = "rangePolicy";
+	public static final String KEY_SEEK_COST = "seekCost";
+	public static final String KEY_ORDERED_SEARCH = "orderedSearch";
+	public static final String RANGE_POLICY_ADAPTIVE = "adaptive";
+	public static final String RANGE_POLICY_STANDARD = "standard";
+	private static final int DEFAULT_MAX_LEVELS = 12;
+	private static final int MAX_MAX_LEVELS = 30;
+	private static final int MAX_EXTRA_LEVELS = 3;
 
 	private SpaceFillingCurve curve = null;
+	private Envelope curveEnvelope = null;
+	private int maxLevels = DEFAULT_MAX_LEVELS;
+	private double[] bbox = null;
+	private String rangePolicy = RANGE_POLICY_ADAPTIVE;
+	private double seekCost = 16.0;
+	private boolean orderedSearch = false;
+	private final IndexSessions indexSessions = new IndexSessions();
 
 	@Override
 	protected String indexTypeName() {
@@ -73,13 +115,17 @@ public abstract class LayerSpaceFillingCurvePointIndex extends ExplicitIndexBack
 				throw new IllegalArgumentException(
 						"HilbertPointIndex cannot support CRS that is not 2D: " + crs.getName());
 			}
-			Envelope envelope = new Envelope(
-					getMin(crs.getCoordinateSystem().getAxis(0)),
-					getMax(crs.getCoordinateSystem().getAxis(0)),
-					getMin(crs.getCoordinateSystem().getAxis(1)),
-					getMax(crs.getCoordinateSystem().getAxis(1))
-			);
-			this.curve = makeCurve(envelope, 12);//new HilbertSpaceFillingCurve2D(envelope, 12);
+			if (bbox != null) {
+				this.curveEnvelope = new Envelope(bbox[0], bbox[2], bbox[1], bbox[3]);
+			} else {
+				this.curveEnvelope = new Envelope(
+						getMin(crs.getCoordinateSystem().getAxis(0)),
+						getMax(crs.getCoordinateSystem().getAxis(0)),
+						getMin(crs.getCoordinateSystem().getAxis(1)),
+						getMax(crs.getCoordinateSystem().getAxis(1))
+				);
+			}
+			this.curve = makeCurve(curveEnvelope, maxLevels);
 		}
 		return this.curve;
 	}
@@ -114,67 +160,313 @@ public abstract class LayerSpaceFillingCurvePointIndex extends ExplicitIndexBack
 	protected Neo4jIndexSearcher searcherFor(Transaction tx, SearchFilter filter) {
 		if (filter instanceof AbstractSearchEnvelopeIntersection) {
 			org.neo4j.spatial.api.Envelope referenceEnvelope = ((AbstractSearchEnvelopeIntersection) filter).getReferenceEnvelope();
-			return new RangeSearcher(
-					getCurve(tx).getTilesIntersectingEnvelope(referenceEnvelope.getMin(), referenceEnvelope.getMax(),
-							new StandardConfiguration()));
+			List<SpaceFillingCurve.LongRange> tiles = getTiles(tx, referenceEnvelope);
+			getMonitor().seek(tiles.size());
+			return new RangeSearcher(tiles, indexSessions, orderedSearch);
 		}
 		throw new UnsupportedOperationException(
 				"Hilbert Index only supports searches based on AbstractSearchEnvelopeIntersection, not "
 						+ filter.getClass().getCanonicalName());
 	}
 
-	public static class RangeSearcher implements Neo4jIndexSearcher {
+	private List<SpaceFillingCurve.LongRange> getTiles(Transaction tx, org.neo4j.spatial.api.Envelope envelope) {
+		SpaceFillingCurve curve = getCurve(tx);
+		if (!RANGE_POLICY_ADAPTIVE.equals(rangePolicy)) {
+			return coalesce(curve.getTilesIntersectingEnvelope(envelope.getMin(), envelope.getMax(),
+					new StandardConfiguration()), 0);
+		}
+		double density = estimateDensity(tx);
+		double envelopeArea = overlapArea(envelope);
+		double cellArea = area(curveEnvelope.getMinX(), curveEnvelope.getMinY(), curveEnvelope.getMaxX(),
+				curveEnvelope.getMaxY()) / Math.pow(4, maxLevels);
+		// skipping fewer cells than one seek is worth costs less than seeking again after them
+		double cellCost = cellArea * density;
+		long maxGap = cellCost > 0 ? (long) Math.min(Long.MAX_VALUE / 2, seekCost / cellCost) : Long.MAX_VALUE / 2;
+		List<SpaceFillingCurve.LongRange> best = null;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (int extraLevels = 0; extraLevels <= MAX_EXTRA_LEVELS; extraLevels++) {
+			List<SpaceFillingCurve.LongRange> tiles = coalesce(curve.getTilesIntersectingEnvelope(envelope.getMin(),
+					envelope.getMax(), new StandardConfiguration(extraLevels)), maxGap);
+			double tilesArea = 0;
+			for (SpaceFillingCurve.LongRange range : tiles) {
+				tilesArea += (range.max - range.min + 1) * cellArea;
+			}
+			double cost = tiles.size() * seekCost + Math.max(0, tilesArea - envelopeArea) * density;
+			if (cost >= bestCost) {
+				// deeper decompositions only add seeks once they stop cutting down the area outside the envelope
+				break;
+			}
+			best = tiles;
+			bestCost = cost;
+		}
+		return best;
+	}
 
-		private final List<SpaceFillingCurve.LongRange> tiles;
+	/**
+	 * Merge the ranges that are at most maxGap curve values apart, returning them sorted in curve order.
+	 */
+	static List<SpaceFillingCurve.LongRange> coalesce(List<SpaceFillingCurve.LongRange> tiles, long maxGap) {
+		if (tiles.size() < 2) {
+			return tiles;
+		}
+		List<SpaceFillingCurve.LongRange> sorted = new ArrayList<>(tiles);
+		sorted.sort(Comparator.comparingLong(range -> range.min));
+		List<SpaceFillingCurve.LongRange> merged = new ArrayList<>();
+		long min = sorted.get(0).min;
+		long max = sorted.get(0).max;
+		for (SpaceFillingCurve.LongRange range : sorted.subList(1, sorted.size())) {
+			if (range.min - max - 1 <= maxGap) {
+				max = Math.max(max, range.max);
+			} else {
+				merged.add(new SpaceFillingCurve.LongRange(min, max));
+				min = range.min;
+				max = range.max;
+			}
+		}
+		merged.add(new SpaceFillingCurve.LongRange(min, max));
+		return merged;
+	}
 
-		RangeSearcher(List<SpaceFillingCurve.LongRange> tiles) {
-			this.tiles = tiles;
+	/**
+	 * @return the number of indexed points per unit of area, spread over the extent of the layer if it is known
+	 */
+	private double estimateDensity(Transaction tx) {
+		int count = count(tx);
+		org.neo4j.spatial.api.Envelope extent = getKnownExtent(tx);
+		double extentArea = extent == null ? 0 : overlapArea(extent);
+		if (extentArea <= 0) {
+			extentArea = area(curveEnvelope.getMinX(), curveEnvelope.getMinY(), curveEnvelope.getMaxX(),
+					curveEnvelope.getMaxY());
 		}
+		return count / extentArea;
+	}
 
-		@Override
-		public Iterator<Node> search(KernelTransaction ktx, Label label, String propertyKey) {
-			int labelId = ktx.tokenRead().nodeLabel(label.name());
-			int propId = ktx.tokenRead().propertyKey(propertyKey);
-			ArrayList<Iterator<Node>> results = new ArrayList<>();
-			for (SpaceFillingCurve.LongRange range : tiles) {
-				PropertyIndexQuery indexQuery = PropertyIndexQuery.range(propId, range.min, true, range.max, true);
-				results.add(nodesByLabelAndProperty(ktx, labelId, indexQuery));
+	private double overlapArea(org.neo4j.spatial.api.Envelope envelope) {
+		return area(Math.max(envelope.getMinX(), curveEnvelope.getMinX()),
+				Math.max(envelope.getMinY(), curveEnvelope.getMinY()),
+				Math.min(envelope.getMaxX(), curveEnvelope.getMaxX()),
+				Math.min(envelope.getMaxY(), curveEnvelope.getMaxY()));
+	}
+
+	private static double area(double minX, double minY, double maxX, double maxY) {
+		return Math.max(0, maxX - minX) * Math.max(0, maxY - minY);
+	}
+
+	@Override
+	public void setConfiguration(String jsonConfig) {
+		if (jsonConfig == null || jsonConfig.isBlank()) {
+			return;
+		}
+		JSONObject jsonObject = (JSONObject) JSONValue.parse(jsonConfig);
+		HashMap<String, Object> config = new HashMap<>();
+		for (Object key : jsonObject.keySet()) {
+			config.put(key.toString(), jsonObject.get(key));
+		}
+		configure(config);
+	}
+
+	@Override
+	public String getConfiguration() {
+		HashMap<String, Object> config = new HashMap<>();
+		config.put(KEY_MAX_LEVELS, this.maxLevels);
+		if (this.bbox != null) {
+			config.put(KEY_BBOX, List.of(bbox[0], bbox[1], bbox[2], bbox[3]));
+		}
+		config.put(KEY_RANGE_POLICY, this.rangePolicy);
+		config.put(KEY_SEEK_COST, this.seekCost);
+		config.put(KEY_ORDERED_SEARCH, this.orderedSearch);
+		return JSONObject.toJSONString(config);
+	}
+
+	@Override
+	public void configure(Map<String, Object> config) {
+		config.forEach((key, rawValue) -> {
+			switch (key) {
+				case KEY_MAX_LEVELS:
+					int levels = Integer.parseInt(rawValue.toString());
+					if (levels < 1 || levels > MAX_MAX_LEVELS) {
+						throw new IllegalArgumentException(
+								"Space filling curve index does not allow " + key + " outside 1 to " + MAX_MAX_LEVELS);
+					}
+					this.maxLevels = levels;
+					break;
+				case KEY_BBOX:
+					if (!(rawValue instanceof List<?> values) || values.size() != 4) {
+						throw new IllegalArgumentException(
+								"Space filling curve index expects " + key + " as [minX, minY, maxX, maxY]: "
+										+ rawValue);
+					}
+					double[] extent = new double[4];
+					for (int i = 0; i < 4; i++) {
+						extent[i] = Double.parseDouble(values.get(i).toString());
+					}
+					if (extent[0] >= extent[2] || extent[1] >= extent[3]) {
+						throw new IllegalArgumentException(
+								"Space filling curve index does not allow an empty " + key + ": " + rawValue);
+					}
+					this.bbox = extent;
+					break;
+				case KEY_RANGE_POLICY:
+					String policy = rawValue.toString();
+					if (!RANGE_POLICY_ADAPTIVE.equals(policy) && !RANGE_POLICY_STANDARD.equals(policy)) {
+						throw new IllegalArgumentException(
+								"No such space filling curve index value for '" + key + "': " + rawValue);
+					}
+					this.rangePolicy = policy;
+					break;
+				case KEY_SEEK_COST:
+					double cost = Double.parseDouble(rawValue.toString());
+					if (cost < 0) {
+						throw new IllegalArgumentException(
+								"Space filling curve index does not allow " + key + " less than 0");
+					}
+					this.seekCost = cost;
+					break;
+				case KEY_ORDERED_SEARCH:
+					this.orderedSearch = Boolean.parseBoolean(rawValue.toString());
+					break;
+				default:
+					throw new IllegalArgumentException("No such space filling curve index configuration key: " + key);
 			}
-			return Iterators.concat(results.iterator());
+		});
+		this.curve = null;
+	}
+
+	/**
+	 * Keeps the descriptor of the schema index behind a point index, so that searches do not resolve it again.
+	 */
+	static final class IndexSessions {
+
+		private record Resolved(int labelId, int propertyKeyId, IndexDescriptor index) {
 		}
 
-		private static ResourceIterator<Node> nodesByLabelAndProperty(KernelTransaction transaction, int labelId,
-				PropertyIndexQuery query) {
-			Read read = transaction.dataRead();
+		private volatile Resolved resolved;
 
-			if (query.propertyKeyId() == TokenConstants.NO_TOKEN || labelId == TokenConstants.NO_TOKEN) {
-				return emptyResourceIterator();
+		/**
+		 * @return a read session on the range index for the label and property, or null if there is none
+		 */
+		IndexReadSession open(KernelTransaction transaction, int labelId, int propertyKeyId) {
+			Resolved cached = resolved;
+			if (cached != null && cached.labelId == labelId && cached.propertyKeyId == propertyKeyId) {
+				try {
+					return transaction.dataRead().indexReadSession(cached.index);
+				} catch (KernelException e) {
+					// the index was dropped since it was resolved, look for its replacement
+				}
 			}
 			Iterator<IndexDescriptor> iterator = transaction.schemaRead()
-					.index(SchemaDescriptors.forLabel(labelId, query.propertyKeyId()));
+					.index(SchemaDescriptors.forLabel(labelId, propertyKeyId));
 			while (iterator.hasNext()) {
 				IndexDescriptor index = iterator.next();
-				// TODO: Do we need to support the new IndexType.RANGE index in Neo4j 4.4?
 				// Skip special indexes, such as the full-text indexes, because they can't handle all the queries we might throw at them.
 				if (index.getIndexType() != IndexType.RANGE) {
 					continue;
 				}
-				// Ha! We found an index - let's use it to find matching nodes
 				try {
-					NodeValueIndexCursor cursor = transaction.cursors()
-							.allocateNodeValueIndexCursor(CursorContext.NULL_CONTEXT, EmptyMemoryTracker.INSTANCE);
-					IndexReadSession indexSession = read.indexReadSession(index);
-					read.nodeIndexSeek(transaction.queryContext(), indexSession, cursor,
-							IndexQueryConstraints.unordered(false), query);
-
-					return new CursorIterator<>(cursor, NodeIndexCursor::nodeReference,
-							c -> new NodeEntity(transaction.internalTransaction(), c.nodeReference()));
+					IndexReadSession session = transaction.dataRead().indexReadSession(index);
+					resolved = new Resolved(labelId, propertyKeyId, index);
+					return session;
+				} catch (KernelException e) {
+					// weird at this point but ignore and try the next index
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Seeks the ranges in curve order, one after the other on the same cursor, opening the index session once.
+	 */
+	public static class RangeSearcher implements Neo4jIndexSearcher {
+
+		private final List<SpaceFillingCurve.LongRange> tiles;
+		private final IndexSessions indexSessions;
+		private final boolean ordered;
+
+		RangeSearcher(List<SpaceFillingCurve.LongRange> tiles, IndexSessions indexSessions, boolean ordered) {
+			this.tiles = tiles;
+			this.indexSessions = indexSessions;
+			this.ordered = ordered;
+		}
+
+		@Override
+		public Iterator<Node> search(KernelTransaction ktx, Label label, String propertyKey) {
+			int labelId = ktx.tokenRead().nodeLabel(label.name());
+			int propId = ktx.tokenRead().propertyKey(propertyKey);
+			if (tiles.isEmpty() || propId == TokenConstants.NO_TOKEN || labelId == TokenConstants.NO_TOKEN) {
+				return emptyResourceIterator();
+			}
+			IndexReadSession indexSession = indexSessions.open(ktx, labelId, propId);
+			if (indexSession == null) {
+				return emptyResourceIterator();
+			}
+			return new RangeIterator(ktx, indexSession, propId);
+		}
+
+		private class RangeIterator implements Iterator<Node> {
+
+			private final KernelTransaction transaction;
+			private final IndexReadSession indexSession;
+			private final int propId;
+			private NodeValueIndexCursor cursor;
+			private int nextRange = 0;
+			private Node next = null;
+
+			private RangeIterator(KernelTransaction transaction, IndexReadSession indexSession, int propId) {
+				this.transaction = transaction;
+				this.indexSession = indexSession;
+				this.propId = propId;
+				this.cursor = transaction.cursors()
+						.allocateNodeValueIndexCursor(CursorContext.NULL_CONTEXT, EmptyMemoryTracker.INSTANCE);
+				seekNextRange();
+				prefetch();
+			}
+
+			private void seekNextRange() {
+				SpaceFillingCurve.LongRange range = tiles.get(nextRange++);
+				PropertyIndexQuery indexQuery = PropertyIndexQuery.range(propId, range.min, true, range.max, true);
+				IndexQueryConstraints constraints = ordered
+						? IndexQueryConstraints.constrained(IndexOrder.ASCENDING, false)
+						: IndexQueryConstraints.unordered(false);
+				try {
+					transaction.dataRead().nodeIndexSeek(transaction.queryContext(), indexSession, cursor,
+							constraints, indexQuery);
 				} catch (KernelException e) {
-					// weird at this point but ignore and fallback to a label scan
+					cursor.close();
+					throw new IllegalStateException("Failed to seek " + range + " in the point index", e);
+				}
+			}
+
+			private void prefetch() {
+				next = null;
+				while (cursor != null) {
+					if (cursor.next()) {
+						next = new NodeEntity(transaction.internalTransaction(), cursor.nodeReference());
+						return;
+					}
+					if (nextRange < tiles.size()) {
+						seekNextRange();
+					} else {
+						cursor.close();
+						cursor = null;
+					}
 				}
 			}
 
-			return Iterators.emptyResourceIterator();
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Node next() {
+				Node node = next;
+				if (node == null) {
+					throw new NoSuchElementException();
+				}
+				prefetch();
+				return node;
+			}
 		}
 	}
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.gis.spatial.index;
+
+import java.util.List;
+import org.neo4j.graphdb.Entity;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.helpers.collection.Iterators;
+import org.neo4j.spatial.api.Envelope;
+
+/**
+ * The running envelope of the geometries in a point index, kept in extent nodes next to the index.
+ * <p>
+ * A transaction that adds geometries outside the envelope creates a new extent node instead of updating a shared
+ * one, so concurrent writers never wait on each other, and the envelope is the union of all extent nodes. As the
+ * union does not depend on the order in which the extent nodes were added, they can be merged into one at any
+ * time, which a writer does once there are more than a few of them, holding a lock on the given entity (the layer
+ * node) so that only one writer merges at a time.
+ * <p>
+ * Removing geometries does not shrink the envelope, so it bounds the indexed geometries rather than being their
+ * exact envelope, until the index is empty and the extent is cleared.
+ */
+final class PointIndexExtent {
+
+	private static final String PROP_BBOX = "bbox";
+	private static final int MAX_EXTENT_NODES = 16;
+
+	private final Label label;
+
+	PointIndexExtent(Label label) {
+		this.label = label;
+	}
+
+	/**
+	 * @return the union of all extent nodes, or null if there are none
+	 */
+	Envelope get(Transaction tx) {
+		Envelope extent = null;
+		for (Node node : Iterators.loop(tx.findNodes(label))) {
+			try {
+				extent = union(extent, decode(node));
+			} catch (NotFoundException e) {
+				// merged into another extent node by a concurrent writer since it was found
+			}
+		}
+		return extent;
+	}
+
+	/**
+	 * Extend the envelope to include the given one, merging the extent nodes if there are too many of them.
+	 */
+	void include(Transaction tx, Entity lock, Envelope envelope) {
+		Envelope extent = get(tx);
+		if (extent != null && extent.covers(envelope)) {
+			return;
+		}
+		Node node = tx.createNode(label);
+		node.setProperty(PROP_BBOX, encode(envelope));
+		if (PropertyEncodingNodeIndex.countNodes(tx, label) > MAX_EXTENT_NODES) {
+			merge(tx, lock);
+		}
+	}
+
+	void clear(Transaction tx, Entity lock) {
+		tx.acquireWriteLock(lock);
+		for (Node node : Iterators.asList(tx.findNodes(label))) {
+			node.delete();
+		}
+	}
+
+	private void merge(Transaction tx, Entity lock) {
+		tx.acquireWriteLock(lock);
+		List<Node> nodes = Iterators.asList(tx.findNodes(label));
+		if (nodes.size() <= MAX_EXTENT_NODES) {
+			// another writer merged them while this one was waiting for the lock
+			return;
+		}
+		Envelope extent = null;
+		for (Node node : nodes) {
+			extent = union(extent, decode(node));
+		}
+		nodes.get(0).setProperty(PROP_BBOX, encode(extent));
+		for (Node node : nodes.subList(1, nodes.size())) {
+			node.delete();
+		}
+	}
+
+	private static Envelope union(Envelope extent, Envelope envelope) {
+		if (extent == null) {
+			return new Envelope(envelope);
+		}
+		extent.expandToInclude(envelope);
+		return extent;
+	}
+
+	private static Envelope decode(Node node) {
+		double[] bbox = (double[]) node.getProperty(PROP_BBOX);
+		return new Envelope(bbox[0], bbox[2], bbox[1], bbox[3]);
+	}
+
+	private static double[] encode(Envelope envelope) {
+		return new double[]{envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY()};
+	}
+}
@@ -67,6 +67,19 @@ public class PropertyEncodingNodeIndex<E> {
 		geomNode.removeProperty(propertyKey);
 	}
 
+	/**
+	 * @return the number of indexed nodes, read from the counts store instead of scanning the nodes
+	 */
+	public long count(Transaction tx) {
+		return countNodes(tx, label);
+	}
+
+	static long countNodes(Transaction tx, Label label) {
+		KernelTransaction ktx = ((InternalTransaction) tx).kernelTransaction();
+		int labelId = ktx.tokenRead().nodeLabel(label.name());
+		return labelId < 0 ? 0 : ktx.dataRead().countsForNode(labelId);
+	}
+
 	public Iterable<Node> queryAll(Transaction tx) {
 		return Iterators.loop(tx.findNodes(label));
 	}
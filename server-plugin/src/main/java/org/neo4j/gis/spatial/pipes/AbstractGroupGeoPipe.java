@@ -22,7 +22,6 @@ package org.neo4j.gis.spatial.pipes;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.NoSuchElementException;
 
 public abstract class AbstractGroupGeoPipe extends AbstractGeoPipe {
 
@@ -32,13 +31,10 @@ public abstract class AbstractGroupGeoPipe extends AbstractGeoPipe {
 	@Override
 	public GeoPipeFlow processNextStart() {
 		if (groupIterator == null) {
-			while (true) {
-				try {
-					group(starts.next());
-				} catch (NoSuchElementException e) {
-					break;
-				}
+			while (starts.hasNext()) {
+				group(starts.next());
 			}
+			finishGroups();
 			groupIterator = groups.iterator();
 		}
 
@@ -51,4 +47,10 @@ public abstract class AbstractGroupGeoPipe extends AbstractGeoPipe {
 	protected void group(GeoPipeFlow flow) {
 		groups.add(flow);
 	}
+
+	/**
+	 * Called once all flows are grouped, before the groups are returned
+	 */
+	protected void finishGroups() {
+	}
 }
@@ -31,13 +31,26 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.spatial.api.SpatialRecord;
 
+/**
+ * An item going through a {@link GeoPipeline}. The geometry of the record is only decoded when a pipe asks for it,
+ * and the property map is only created when a pipe writes a property, so pipelines that never look at them do not
+ * pay for them. Clones share the records and properties of the flow they were cloned from until either side changes
+ * them.
+ * <p>
+ * A flow with a single record keeps it in {@link #record}. Once the list of records is created, by a merge or by a
+ * call to {@link #getRecords()}, the list is the only source of the records, as the caller may change it.
+ */
 public class GeoPipeFlow implements SpatialRecord {
 
 	private final String id;
-	private final List<SpatialRecord> records = new ArrayList<>();
+	private SpatialRecord record;
+	private List<SpatialRecord> records;
+	private boolean sharedRecords = false;
 	private Geometry geometry;
+	private boolean geometryDecoded;
 	private Envelope geometryEnvelope;
-	private final Map<String, Object> properties = new HashMap<>();
+	private Map<String, Object> properties;
+	private boolean sharedProperties = false;
 
 	private GeoPipeFlow(String id) {
 		this.id = id;
@@ -45,12 +58,41 @@ public class GeoPipeFlow implements SpatialRecord {
 
 	public GeoPipeFlow(SpatialRecord record) {
 		this.id = record.getId();
-		this.records.add(record);
-		this.geometry = record.getGeometry();
+		this.record = record;
+		this.geometryDecoded = false;
+	}
+
+	/**
+	 * Recreate a flow that was written out of memory by a pipe, like an external {@link
+	 * org.neo4j.gis.spatial.pipes.processing.Sort}.
+	 */
+	public static GeoPipeFlow restore(String id, List<SpatialRecord> records, Geometry geometry,
+			Map<String, Object> properties) {
+		GeoPipeFlow flow = new GeoPipeFlow(id);
+		flow.record = records.isEmpty() ? null : records.get(0);
+		if (records.size() > 1) {
+			flow.records = new ArrayList<>(records);
+		}
+		flow.setGeometry(geometry);
+		if (!properties.isEmpty()) {
+			flow.getProperties().putAll(properties);
+		}
+		return flow;
 	}
 
 	public SpatialRecord getRecord() {
-		return records.get(0);
+		SpatialRecord first = firstRecord();
+		if (first == null) {
+			throw new IndexOutOfBoundsException("Flow " + id + " has no records");
+		}
+		return first;
+	}
+
+	private SpatialRecord firstRecord() {
+		if (records != null) {
+			return records.isEmpty() ? null : records.get(0);
+		}
+		return record;
 	}
 
 	@Override
@@ -59,11 +101,14 @@ public class GeoPipeFlow implements SpatialRecord {
 	}
 
 	public int countRecords() {
-		return records.size();
+		if (records != null) {
+			return records.size();
+		}
+		return record == null ? 0 : 1;
 	}
 
 	public List<SpatialRecord> getRecords() {
-		return records;
+		return mutableRecords();
 	}
 
 	@Override
@@ -73,12 +118,17 @@ public class GeoPipeFlow implements SpatialRecord {
 
 	@Override
 	public Geometry getGeometry() {
+		if (!geometryDecoded) {
+			SpatialRecord first = firstRecord();
+			geometry = first == null ? null : first.getGeometry();
+			geometryDecoded = true;
+		}
 		return geometry;
 	}
 
 	public Envelope getEnvelope() {
 		if (geometryEnvelope == null) {
-			geometryEnvelope = geometry.getEnvelopeInternal();
+			geometryEnvelope = getGeometry().getEnvelopeInternal();
 		}
 
 		return geometryEnvelope;
@@ -86,46 +136,103 @@ public class GeoPipeFlow implements SpatialRecord {
 
 	public void setGeometry(Geometry geometry) {
 		this.geometry = geometry;
+		this.geometryDecoded = true;
 		this.geometryEnvelope = null;
 	}
 
 	@Override
 	public Map<String, Object> getProperties(Transaction ignored) {
-		return properties;
+		return getProperties();
 	}
 
-	// Alternative method since GeoPipes never work within a transactional context
+	/**
+	 * Alternative method since GeoPipes never work within a transactional context. The map can be changed by the
+	 * caller, so this creates it if the flow has no properties yet; pipes that only read a property should use
+	 * {@link #getProperty(String)} instead.
+	 */
 	public Map<String, Object> getProperties() {
+		if (properties == null) {
+			properties = new HashMap<>();
+		} else if (sharedProperties) {
+			properties = new HashMap<>(properties);
+			sharedProperties = false;
+		}
 		return properties;
 	}
 
 	@Override
 	public boolean hasProperty(Transaction tx, String name) {
-		return properties.containsKey(name);
+		return properties != null && properties.containsKey(name);
 	}
 
 	@Override
 	public Set<String> getPropertyNames(Transaction tx) {
-		return Collections.unmodifiableSet(properties.keySet());
+		return properties == null ? Collections.emptySet() : Collections.unmodifiableSet(properties.keySet());
 	}
 
 	@Override
 	public Object getProperty(Transaction ignored, String name) {
-		return properties.get(name);
+		return getProperty(name);
+	}
+
+	// Alternative method since GeoPipes never work within a transactional context
+	public Object getProperty(String name) {
+		return properties == null ? null : properties.get(name);
 	}
 
 	public void merge(GeoPipeFlow other) {
-		records.addAll(other.records);
+		if (other.countRecords() == 0) {
+			return;
+		}
+		if (record == null && records == null) {
+			record = other.record;
+			if (other.records != null) {
+				records = other.records;
+				sharedRecords = true;
+				other.sharedRecords = true;
+			}
+			return;
+		}
+		List<SpatialRecord> merged = mutableRecords();
+		if (other.records == null) {
+			merged.add(other.record);
+		} else {
+			merged.addAll(other.records);
+		}
 		// TODO id?
 		// TODO properties?
 	}
 
 	public GeoPipeFlow makeClone(String idSuffix) {
-		// we don't need a deeper copy at the moment
+		// the clone shares the records and properties until either flow changes them
 		GeoPipeFlow clone = new GeoPipeFlow(id + "-" + idSuffix);
-		clone.records.addAll(records);
+		clone.record = record;
+		if (records != null) {
+			clone.records = records;
+			clone.sharedRecords = true;
+			sharedRecords = true;
+		}
 		clone.geometry = geometry;
-		clone.getProperties().putAll(getProperties());
+		clone.geometryDecoded = geometryDecoded;
+		clone.geometryEnvelope = geometryEnvelope;
+		if (properties != null) {
+			clone.properties = properties;
+			clone.sharedProperties = true;
+			sharedProperties = true;
+		}
 		return clone;
 	}
+
+	private List<SpatialRecord> mutableRecords() {
+		if (records == null) {
+			records = new ArrayList<>();
+			if (record != null) {
+				records.add(record);
+			}
+		} else if (sharedRecords) {
+			records = new ArrayList<>(records);
+			sharedRecords = false;
+		}
+		return records;
+	}
 }
@@ -23,8 +23,12 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.feature.simple.SimpleFeatureType;
 import org.geotools.feature.FeatureCollection;
@@ -38,7 +42,9 @@ import org.locationtech.jts.geom.util.AffineTransformation;
 import org.neo4j.gis.spatial.SpatialTopologyUtils;
 import org.neo4j.gis.spatial.feature.Neo4jServerFeatureBuilder;
 import org.neo4j.gis.spatial.filter.SearchCQL;
+import org.neo4j.gis.spatial.filter.SearchIntersect;
 import org.neo4j.gis.spatial.filter.SearchIntersectWindow;
+import org.neo4j.gis.spatial.filter.SearchWithin;
 import org.neo4j.gis.spatial.pipes.filtering.FilterCQL;
 import org.neo4j.gis.spatial.pipes.filtering.FilterContain;
 import org.neo4j.gis.spatial.pipes.filtering.FilterCover;
@@ -239,8 +245,7 @@ public class GeoPipeline extends Pipeline<GeoPipeFlow, GeoPipeFlow> {
 	 * Extracts Layer items that intersect the given geometry and start a pipeline.
 	 */
 	public static GeoPipeline startIntersectSearch(final Transaction tx, Layer layer, Geometry geometry) {
-		return startIntersectWindowSearch(tx, layer, geometry.getEnvelopeInternal())
-				.intersectionFilter(geometry);
+		return start(tx, layer, new SearchIntersect(layer, geometry));
 	}
 
 	/**
@@ -261,7 +266,7 @@ public class GeoPipeline extends Pipeline<GeoPipeFlow, GeoPipeFlow> {
 	 * Extracts Layer items that are within the given geometry and start a pipeline.
 	 */
 	public static GeoPipeline startWithinSearch(final Transaction tx, Layer layer, Geometry geometry) {
-		return startIntersectWindowSearch(tx, layer, geometry.getEnvelopeInternal()).withinFilter(geometry);
+		return start(tx, layer, new SearchWithin(layer, geometry));
 	}
 
 	/**
@@ -424,6 +429,15 @@ public class GeoPipeline extends Pipeline<GeoPipeFlow, GeoPipeFlow> {
 		return addPipe(new Sort(property, comparator));
 	}
 
+	/**
+	 * Sort with bounded memory, writing sorted runs of spillThreshold items to temporary files.
+	 *
+	 * @see Sort
+	 */
+	public GeoPipeline sort(Transaction tx, String property, boolean asc, int spillThreshold) {
+		return addPipe(new Sort(tx, property, asc, spillThreshold));
+	}
+
 	/**
 	 * @see Boundary
 	 */
@@ -508,6 +522,14 @@ public class GeoPipeline extends Pipeline<GeoPipeFlow, GeoPipeFlow> {
 		return addPipe(new UnionAll());
 	}
 
+	/**
+	 * @param parallelism the number of threads uniting the geometries with a cascaded union
+	 * @see UnionAll
+	 */
+	public GeoPipeline unionAll(int parallelism) {
+		return addPipe(new UnionAll(parallelism));
+	}
+
 	/**
 	 * @see Intersection
 	 */
@@ -941,12 +963,8 @@ public class GeoPipeline extends Pipeline<GeoPipeFlow, GeoPipeFlow> {
 
 		List<SpatialRecord> result = new ArrayList<>();
 
-		while (true) {
-			try {
-				result.add(next().getRecord());
-			} catch (NoSuchElementException e) {
-				break;
-			}
+		while (hasNext()) {
+			result.add(next().getRecord());
 		}
 		return result;
 	}
@@ -960,12 +978,8 @@ public class GeoPipeline extends Pipeline<GeoPipeFlow, GeoPipeFlow> {
 	 */
 	public List<Node> toNodeList() {
 		List<Node> result = new ArrayList<>();
-		while (true) {
-			try {
-				result.add(next().getRecord().getGeomNode());
-			} catch (NoSuchElementException e) {
-				break;
-			}
+		while (hasNext()) {
+			result.add(next().getRecord().getGeomNode());
 		}
 		return result;
 
@@ -976,7 +990,65 @@ public class GeoPipeline extends Pipeline<GeoPipeFlow, GeoPipeFlow> {
 		return this;
 	}
 
+	/**
+	 * Only emit the items from index low to index high inclusive, where -1 means no bound. When directly following
+	 * a sort, the sort will only keep the items up to index high in memory.
+	 */
 	public GeoPipeline range(final int low, final int high) {
+		if (high != -1 && !pipes.isEmpty() && pipes.get(pipes.size() - 1) instanceof Sort sort) {
+			sort.setLimit(high + 1);
+		}
 		return this.add(new RangeFilterPipe<GeoPipeFlow>(low, high));
 	}
+
+	/**
+	 * Only emit the first count items. The pipes before it are not asked for more items once count items were
+	 * emitted, and when directly following a sort, the sort will only keep count items in memory.
+	 */
+	public GeoPipeline limit(final int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("Not a legal limit: " + count);
+		}
+		return range(-1, count - 1);
+	}
+
+	/**
+	 * Stream the items of the pipeline, pulling each from the pipes only when the stream asks for it, so
+	 * short-circuiting operations like findFirst stop the pipeline early. Use {@link #limit(int)} rather than
+	 * {@link Stream#limit(long)} to also let a sort keep fewer items. The stream never splits, even when made
+	 * parallel, as the flows decode their geometries lazily within the transaction of the pipeline, which must only be
+	 * used by one thread.
+	 */
+	@Override
+	public Stream<GeoPipeFlow> stream() {
+		return StreamSupport.stream(new GeoPipeSpliterator(), false);
+	}
+
+	private class GeoPipeSpliterator extends Spliterators.AbstractSpliterator<GeoPipeFlow> {
+
+		private GeoPipeSpliterator() {
+			super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super GeoPipeFlow> action) {
+			if (!hasNext()) {
+				return false;
+			}
+			action.accept(next());
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super GeoPipeFlow> action) {
+			while (hasNext()) {
+				action.accept(next());
+			}
+		}
+
+		@Override
+		public Spliterator<GeoPipeFlow> trySplit() {
+			return null;
+		}
+	}
 }
@@ -21,6 +21,8 @@ package org.neo4j.gis.spatial.pipes.filtering;
 
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.neo4j.gis.spatial.pipes.AbstractFilterGeoPipe;
 import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
 
@@ -30,11 +32,11 @@ import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
  */
 public class FilterCoveredBy extends AbstractFilterGeoPipe {
 
-	private final Geometry other;
+	private final PreparedGeometry preparedOther;
 	private final Envelope otherEnvelope;
 
 	public FilterCoveredBy(Geometry other) {
-		this.other = other;
+		this.preparedOther = PreparedGeometryFactory.prepare(other);
 		this.otherEnvelope = other.getEnvelopeInternal();
 	}
 
@@ -42,7 +44,7 @@ public class FilterCoveredBy extends AbstractFilterGeoPipe {
 	protected boolean validate(GeoPipeFlow flow) {
 		// check if every point of this geometry is a point of the other geometry
 		return otherEnvelope.covers(flow.getEnvelope())
-				&& flow.getGeometry().coveredBy(other);
+				&& preparedOther.covers(flow.getGeometry());
 	}
 
 }
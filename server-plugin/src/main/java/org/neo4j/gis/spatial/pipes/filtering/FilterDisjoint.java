@@ -21,6 +21,8 @@ package org.neo4j.gis.spatial.pipes.filtering;
 
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.neo4j.gis.spatial.pipes.AbstractFilterGeoPipe;
 import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
 
@@ -30,17 +32,17 @@ import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
  */
 public class FilterDisjoint extends AbstractFilterGeoPipe {
 
-	private final Geometry other;
+	private final PreparedGeometry preparedOther;
 	private final Envelope otherEnvelope;
 
 	public FilterDisjoint(Geometry other) {
-		this.other = other;
+		this.preparedOther = PreparedGeometryFactory.prepare(other);
 		this.otherEnvelope = other.getEnvelopeInternal();
 	}
 
 	@Override
 	protected boolean validate(GeoPipeFlow flow) {
 		return !flow.getEnvelope().intersects(otherEnvelope)
-				|| flow.getGeometry().disjoint(other);
+				|| preparedOther.disjoint(flow.getGeometry());
 	}
 }
@@ -20,6 +20,8 @@
 package org.neo4j.gis.spatial.pipes.filtering;
 
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.neo4j.gis.spatial.pipes.AbstractFilterGeoPipe;
 import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
 
@@ -29,10 +31,10 @@ import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
  */
 public class FilterIntersect extends AbstractFilterGeoPipe {
 
-	private final Geometry geometry;
+	private final PreparedGeometry geometry;
 
 	public FilterIntersect(Geometry geometry) {
-		this.geometry = geometry;
+		this.geometry = PreparedGeometryFactory.prepare(geometry);
 	}
 
 	@Override
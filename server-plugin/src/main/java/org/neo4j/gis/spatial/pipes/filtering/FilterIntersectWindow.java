@@ -20,8 +20,9 @@
 package org.neo4j.gis.spatial.pipes.filtering;
 
 import org.locationtech.jts.geom.Envelope;
-import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.neo4j.gis.spatial.pipes.AbstractFilterGeoPipe;
 import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
 
@@ -32,7 +33,7 @@ import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
 public class FilterIntersectWindow extends AbstractFilterGeoPipe {
 
 	private final Envelope envelope;
-	private final Geometry envelopeGeom;
+	private final PreparedGeometry envelopeGeom;
 
 	public FilterIntersectWindow(GeometryFactory geomFactory, double xmin, double ymin, double xmax, double ymax) {
 		this(geomFactory, new Envelope(xmin, xmax, ymin, ymax));
@@ -40,7 +41,7 @@ public class FilterIntersectWindow extends AbstractFilterGeoPipe {
 
 	public FilterIntersectWindow(GeometryFactory geomFactory, Envelope envelope) {
 		this.envelope = envelope;
-		this.envelopeGeom = geomFactory.toGeometry(envelope);
+		this.envelopeGeom = PreparedGeometryFactory.prepare(geomFactory.toGeometry(envelope));
 	}
 
 	@Override
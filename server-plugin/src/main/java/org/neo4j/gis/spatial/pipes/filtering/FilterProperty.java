@@ -44,7 +44,7 @@ public class FilterProperty extends AbstractFilterGeoPipe {
 
 	@Override
 	protected boolean validate(GeoPipeFlow flow) {
-		final Object leftObject = flow.getProperties().get(key);
+		final Object leftObject = flow.getProperty(key);
 		return comparison.compare(leftObject, value);
 	}
 }
@@ -36,6 +36,6 @@ public class FilterPropertyNotNull extends AbstractFilterGeoPipe {
 
 	@Override
 	protected boolean validate(GeoPipeFlow flow) {
-		return flow.getProperties().get(property) != null;
+		return flow.getProperty(property) != null;
 	}
 }
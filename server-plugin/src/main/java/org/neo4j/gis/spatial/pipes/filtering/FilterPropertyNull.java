@@ -35,6 +35,6 @@ public class FilterPropertyNull extends AbstractFilterGeoPipe {
 
 	@Override
 	protected boolean validate(GeoPipeFlow flow) {
-		return flow.getProperties().get(property) == null;
+		return flow.getProperty(property) == null;
 	}
 }
@@ -21,6 +21,8 @@ package org.neo4j.gis.spatial.pipes.filtering;
 
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.neo4j.gis.spatial.pipes.AbstractFilterGeoPipe;
 import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
 
@@ -30,11 +32,11 @@ import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
  */
 public class FilterWithin extends AbstractFilterGeoPipe {
 
-	private final Geometry other;
+	private final PreparedGeometry preparedOther;
 	private final Envelope otherEnvelope;
 
 	public FilterWithin(Geometry other) {
-		this.other = other;
+		this.preparedOther = PreparedGeometryFactory.prepare(other);
 		this.otherEnvelope = other.getEnvelopeInternal();
 	}
 
@@ -43,6 +45,6 @@ public class FilterWithin extends AbstractFilterGeoPipe {
 		// check if every point of this geometry is a point of the other geometry,
 		// and the interiors of the two geometries have at least one point in common
 		return otherEnvelope.contains(flow.getEnvelope())
-				&& flow.getGeometry().within(other);
+				&& preparedOther.contains(flow.getGeometry());
 	}
 }
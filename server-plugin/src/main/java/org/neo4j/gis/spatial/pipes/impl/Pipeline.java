@@ -25,7 +25,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
-import java.util.NoSuchElementException;
 import javax.annotation.Nonnull;
 import org.neo4j.internal.helpers.collection.Iterators;
 
@@ -228,23 +227,15 @@ public class Pipeline<S, E> implements Pipe<S, E> {
 	}
 
 	public void iterate() {
-		while (true) {
-			try {
-				next();
-			} catch (final NoSuchElementException e) {
-				break;
-			}
+		while (hasNext()) {
+			next();
 		}
 	}
 
 	public List<E> next(final int number) {
 		final List<E> list = new ArrayList<>(number);
-		for (int i = 0; i < number; i++) {
-			try {
-				list.add(next());
-			} catch (final NoSuchElementException e) {
-				break;
-			}
+		for (int i = 0; i < number && hasNext(); i++) {
+			list.add(next());
 		}
 		return list;
 	}
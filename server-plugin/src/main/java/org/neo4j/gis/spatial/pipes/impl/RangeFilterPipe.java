@@ -46,14 +46,15 @@ public class RangeFilterPipe<S> extends AbstractPipe<S, S> implements FilterPipe
 	@Override
 	protected S processNextStart() {
 		while (true) {
+			if (this.high != -1 && this.counter >= this.high) {
+				// stop before pulling the next item, so the pipes upstream do no more work than needed
+				throw new NoSuchElementException();
+			}
 			final S s = this.starts.next();
 			this.counter++;
-			if ((this.low == -1 || this.counter >= this.low) && (this.high == -1 || this.counter <= this.high)) {
+			if (this.low == -1 || this.counter >= this.low) {
 				return s;
 			}
-			if (this.high != -1 && this.counter > this.high) {
-				throw new NoSuchElementException();
-			}
 		}
 	}
 
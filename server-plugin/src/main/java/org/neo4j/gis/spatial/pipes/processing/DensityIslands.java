@@ -19,13 +19,30 @@
  */
 package org.neo4j.gis.spatial.pipes.processing;
 
+import java.util.ArrayList;
+import java.util.List;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.locationtech.jts.operation.union.UnaryUnionOp;
 import org.neo4j.gis.spatial.pipes.AbstractGroupGeoPipe;
 import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
 
 
+/**
+ * Groups the geometries into islands, adding each geometry to the first island it is within the given distance
+ * of, or starting a new island with it.
+ * <p>
+ * Every geometry added to an island is kept in an in-memory quadtree, so finding the islands close to the next
+ * geometry only compares it with the geometries around it instead of with every island. The distance to an island is
+ * the smallest distance to the geometries in it, so the geometry of an island is only unioned once, after all
+ * geometries are grouped.
+ */
 public class DensityIslands extends AbstractGroupGeoPipe {
 
 	private final double density;
+	private final Quadtree members = new Quadtree();
+	private final List<List<Geometry>> islandGeometries = new ArrayList<>();
 
 	/**
 	 * @param density maximum distance between vertices
@@ -36,20 +53,38 @@ public class DensityIslands extends AbstractGroupGeoPipe {
 
 	@Override
 	protected void group(GeoPipeFlow pipeFlow) {
-		boolean islandFound = false;
-		// determine if geometry is next to an islands else add
-		// geometry as a new islands.
-		for (int i = 0; i < groups.size() && !islandFound; i++) {
-			if (pipeFlow.getGeometry().distance(groups.get(i).getGeometry()) <= density) {
-				// TODO test it with points
-				groups.get(i).setGeometry(groups.get(i).getGeometry().union(pipeFlow.getGeometry()));
-				groups.get(i).merge(pipeFlow);
-				islandFound = true;
+		Geometry geometry = pipeFlow.getGeometry();
+		Envelope searchEnvelope = new Envelope(geometry.getEnvelopeInternal());
+		searchEnvelope.expandBy(density);
+		int island = -1;
+		for (Object candidate : members.query(searchEnvelope)) {
+			Member member = (Member) candidate;
+			if ((island < 0 || member.island < island) && geometry.distance(member.geometry) <= density) {
+				island = member.island;
 			}
 		}
 
-		if (!islandFound) {
+		if (island < 0) {
+			island = groups.size();
 			groups.add(pipeFlow);
+			islandGeometries.add(new ArrayList<>());
+		} else {
+			groups.get(island).merge(pipeFlow);
+		}
+		islandGeometries.get(island).add(geometry);
+		members.insert(geometry.getEnvelopeInternal(), new Member(island, geometry));
+	}
+
+	@Override
+	protected void finishGroups() {
+		for (int i = 0; i < groups.size(); i++) {
+			List<Geometry> geometries = islandGeometries.get(i);
+			if (geometries.size() > 1) {
+				groups.get(i).setGeometry(UnaryUnionOp.union(geometries));
+			}
 		}
 	}
+
+	private record Member(int island, Geometry geometry) {
+	}
 }
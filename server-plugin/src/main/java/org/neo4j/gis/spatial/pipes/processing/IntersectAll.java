@@ -35,7 +35,10 @@ public class IntersectAll extends AbstractGroupGeoPipe {
 			groups.add(flow);
 		} else {
 			GeoPipeFlow result = groups.get(0);
-			result.setGeometry(result.getGeometry().intersection(flow.getGeometry()));
+			// once the intersection is empty, it stays empty whatever else comes through the pipeline
+			if (!result.getGeometry().isEmpty()) {
+				result.setGeometry(result.getGeometry().intersection(flow.getGeometry()));
+			}
 			result.merge(flow);
 		}
 	}
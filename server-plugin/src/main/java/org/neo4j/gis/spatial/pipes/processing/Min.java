@@ -44,15 +44,15 @@ public class Min extends AbstractGroupGeoPipe {
 	@SuppressWarnings({"rawtypes", "unchecked"})
 	@Override
 	protected void group(GeoPipeFlow flow) {
-		if (flow.getProperties().get(property) == null) {
+		if (flow.getProperty(property) == null) {
 			return;
 		}
 
 		if (groups.isEmpty()) {
 			groups.add(flow);
 		} else {
-			Object min = groups.get(0).getProperties().get(property);
-			Object other = flow.getProperties().get(property);
+			Object min = groups.get(0).getProperty(property);
+			Object other = flow.getProperty(property);
 
 			int comparison;
 			if (comparator == null) {
@@ -19,28 +19,81 @@
  */
 package org.neo4j.gis.spatial.pipes.processing;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import org.locationtech.jts.geom.Geometry;
+import org.neo4j.gis.spatial.SpatialDatabaseRecord;
 import org.neo4j.gis.spatial.pipes.AbstractGeoPipe;
 import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.spatial.api.SpatialRecord;
+import org.neo4j.spatial.api.layer.Layer;
 
 /**
  * Sort items in the pipeline comparing values of the given property.
+ * <p>
+ * By default all items are collected in memory before the first one is emitted. When only the first items are
+ * needed, {@link #setLimit(int)} keeps just that many in a bounded heap. When a spill threshold is given, sorted runs
+ * of that many items are written to temporary files and merged, so that only the last run and one item per written
+ * run are held in memory. The temporary files are deleted once the merge has finished, or when the pipe is reset.
+ * Items with equal values keep their incoming order in all modes.
  */
 public class Sort extends AbstractGeoPipe {
 
-	private final List<GeoPipeFlow> sortedFlow;
 	private final Comparator<GeoPipeFlow> comparator;
+	private final Transaction tx;
+	private final int spillThreshold;
+	private int limit = -1;
 	private Iterator<GeoPipeFlow> flowIterator;
+	private ExternalSort externalSort;
 
 	public Sort(final String property, final Comparator<Object> propertyComparator) {
-		this.sortedFlow = new ArrayList<>();
+		this(property, propertyComparator, null, -1);
+	}
+
+	public Sort(String property, final boolean asc) {
+		this(property, ascending(asc));
+	}
+
+	/**
+	 * Sort with bounded memory, writing sorted runs of the given size to temporary files. The items are read back
+	 * from disk within the given transaction, and must only have records of layer nodes and serializable property
+	 * values, otherwise an IllegalArgumentException is thrown when the first run is written.
+	 *
+	 * @param spillThreshold number of items to collect in memory before writing them as a sorted run
+	 */
+	public Sort(Transaction tx, String property, boolean asc, int spillThreshold) {
+		this(property, ascending(asc), tx, spillThreshold);
+	}
+
+	private Sort(final String property, final Comparator<Object> propertyComparator, Transaction tx,
+			int spillThreshold) {
+		if (tx != null && spillThreshold < 1) {
+			throw new IllegalArgumentException("Spill threshold must be positive: " + spillThreshold);
+		}
+		this.tx = tx;
+		this.spillThreshold = spillThreshold;
 		this.comparator = (o1, o2) -> {
-			Object p1 = o1.getProperties().get(property);
-			Object p2 = o2.getProperties().get(property);
+			Object p1 = o1.getProperty(property);
+			Object p2 = o2.getProperty(property);
 
 			if (p1 == null && p2 == null) {
 				return 0;
@@ -55,8 +108,8 @@ public class Sort extends AbstractGeoPipe {
 		};
 	}
 
-	public Sort(String property, final boolean asc) {
-		this(property, (o1, o2) -> {
+	private static Comparator<Object> ascending(final boolean asc) {
+		return (o1, o2) -> {
 			if (!(o1 instanceof Comparable<?> comparable)) {
 				throw new IllegalArgumentException("Property value is not comparable");
 			}
@@ -66,25 +119,305 @@ public class Sort extends AbstractGeoPipe {
 				result *= -1;
 			}
 			return result;
-		});
+		};
+	}
+
+	/**
+	 * Only emit the first items in sorted order, keeping no more than that many items in memory.
+	 *
+	 * @param limit the number of items to emit, or -1 for all items
+	 */
+	public void setLimit(int limit) {
+		if (limit < -1) {
+			throw new IllegalArgumentException("Not a legal limit: " + limit);
+		}
+		this.limit = limit;
 	}
 
 	@Override
 	public GeoPipeFlow processNextStart() {
 		if (flowIterator == null) {
-			while (true) {
+			if (limit >= 0) {
+				flowIterator = sortFirst(limit);
+			} else if (tx != null) {
+				externalSort = new ExternalSort();
+				flowIterator = externalSort.sort();
+			} else {
+				flowIterator = sortAll();
+			}
+		}
+
+		return flowIterator.next();
+	}
+
+	@Override
+	public void reset() {
+		flowIterator = null;
+		if (externalSort != null) {
+			externalSort.close();
+			externalSort = null;
+		}
+		super.reset();
+	}
+
+	private Iterator<GeoPipeFlow> sortAll() {
+		List<GeoPipeFlow> sortedFlow = new ArrayList<>();
+		while (starts.hasNext()) {
+			sortedFlow.add(starts.next());
+		}
+
+		sortedFlow.sort(comparator);
+		return sortedFlow.iterator();
+	}
+
+	/**
+	 * Keep the first items in a heap with the largest of them on top, which is replaced whenever a smaller item
+	 * arrives. The sequence number makes a later item larger than an earlier one with an equal value.
+	 */
+	private Iterator<GeoPipeFlow> sortFirst(int count) {
+		if (count == 0) {
+			return Collections.emptyIterator();
+		}
+		Comparator<Sequenced> sequencedComparator = Comparator.<Sequenced, GeoPipeFlow>comparing(Sequenced::flow,
+				comparator).thenComparingLong(Sequenced::sequence);
+		PriorityQueue<Sequenced> heap = new PriorityQueue<>(Math.min(count, 1024), sequencedComparator.reversed());
+		long sequence = 0;
+		while (starts.hasNext()) {
+			Sequenced item = new Sequenced(starts.next(), sequence++);
+			if (heap.size() < count) {
+				heap.add(item);
+			} else if (sequencedComparator.compare(item, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(item);
+			}
+		}
+
+		List<Sequenced> sorted = new ArrayList<>(heap);
+		sorted.sort(sequencedComparator);
+		return sorted.stream().map(Sequenced::flow).iterator();
+	}
+
+	private record Sequenced(GeoPipeFlow flow, long sequence) {
+
+	}
+
+	/**
+	 * Collects sorted runs of items, writing all but the last to temporary files, and merges them. Each record is
+	 * written as the element id of its node and an index into the list of layers seen, so it can be found again
+	 * in the transaction of the pipe.
+	 */
+	private class ExternalSort {
+
+		private final List<Layer> layers = new ArrayList<>();
+		private final List<RunReader> runs = new ArrayList<>();
+
+		private Iterator<GeoPipeFlow> sort() {
+			List<GeoPipeFlow> buffer = new ArrayList<>();
+			try {
+				while (starts.hasNext()) {
+					buffer.add(starts.next());
+					if (buffer.size() >= spillThreshold) {
+						buffer.sort(comparator);
+						runs.add(writeRun(buffer));
+						buffer = new ArrayList<>();
+					}
+				}
+			} catch (RuntimeException e) {
+				close();
+				throw e;
+			}
+			buffer.sort(comparator);
+			if (runs.isEmpty()) {
+				return buffer.iterator();
+			}
+
+			List<Iterator<GeoPipeFlow>> sources = new ArrayList<>(runs);
+			sources.add(buffer.iterator());
+			return new MergingIterator(sources);
+		}
+
+		/**
+		 * Delete the files of all runs, closing those still being read.
+		 */
+		private void close() {
+			for (RunReader run : runs) {
+				run.close();
+			}
+			runs.clear();
+		}
+
+		private RunReader writeRun(List<GeoPipeFlow> flows) {
+			Path file;
+			try {
+				file = Files.createTempFile("spatial-sort", ".run");
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to create file for sorted run", e);
+			}
+			try (ObjectOutputStream out = new ObjectOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(file)))) {
+				for (GeoPipeFlow flow : flows) {
+					writeFlow(out, flow);
+					out.reset();
+				}
+			} catch (NotSerializableException e) {
+				deleteRun(file);
+				throw new IllegalArgumentException("Cannot sort on disk, a property value contains an instance of "
+						+ e.getMessage() + ", which is not serializable", e);
+			} catch (IOException e) {
+				deleteRun(file);
+				throw new UncheckedIOException("Failed to write sorted run of " + flows.size() + " items", e);
+			} catch (RuntimeException e) {
+				deleteRun(file);
+				throw e;
+			}
+			return new RunReader(file, flows.size());
+		}
+
+		private void deleteRun(Path file) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to delete sorted run " + file, e);
+			}
+		}
+
+		private void writeFlow(ObjectOutputStream out, GeoPipeFlow flow) throws IOException {
+			out.writeUTF(flow.getId());
+			out.writeInt(flow.countRecords());
+			for (SpatialRecord record : flow.getRecords()) {
+				if (!(record instanceof SpatialDatabaseRecord databaseRecord)) {
+					throw new IllegalStateException("Cannot write record to disk: " + record);
+				}
+				int layerIndex = layers.indexOf(databaseRecord.getLayer());
+				if (layerIndex < 0) {
+					layerIndex = layers.size();
+					layers.add(databaseRecord.getLayer());
+				}
+				out.writeInt(layerIndex);
+				out.writeUTF(databaseRecord.getNodeId());
+			}
+			out.writeObject(flow.getGeometry());
+			Map<String, Object> properties = flow.getProperties();
+			for (Map.Entry<String, Object> property : properties.entrySet()) {
+				if (property.getValue() != null && !(property.getValue() instanceof Serializable)) {
+					throw new IllegalArgumentException("Cannot sort on disk, property '" + property.getKey() + "' of "
+							+ flow.getId() + " is not serializable: " + property.getValue().getClass().getName());
+				}
+			}
+			out.writeObject(new HashMap<>(properties));
+		}
+
+		private GeoPipeFlow readFlow(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			String id = in.readUTF();
+			int recordCount = in.readInt();
+			List<SpatialRecord> records = new ArrayList<>(recordCount);
+			for (int i = 0; i < recordCount; i++) {
+				Layer layer = layers.get(in.readInt());
+				records.add(new SpatialDatabaseRecord(layer, tx.getNodeByElementId(in.readUTF())));
+			}
+			Geometry geometry = (Geometry) in.readObject();
+			//noinspection unchecked
+			Map<String, Object> properties = (Map<String, Object>) in.readObject();
+			return GeoPipeFlow.restore(id, records, geometry, properties);
+		}
+
+		private class RunReader implements Iterator<GeoPipeFlow>, Closeable {
+
+			private final Path file;
+			private int remaining;
+			private ObjectInputStream in;
+
+			private RunReader(Path file, int count) {
+				this.file = file;
+				this.remaining = count;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return remaining > 0;
+			}
+
+			@Override
+			public GeoPipeFlow next() {
+				if (remaining == 0) {
+					throw new NoSuchElementException();
+				}
 				try {
-					sortedFlow.add(starts.next());
-				} catch (NoSuchElementException e) {
-					break;
+					if (in == null) {
+						in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)));
+					}
+					GeoPipeFlow flow = readFlow(in);
+					if (--remaining == 0) {
+						close();
+					}
+					return flow;
+				} catch (IOException e) {
+					throw new UncheckedIOException("Failed to read sorted run " + file, e);
+				} catch (ClassNotFoundException e) {
+					throw new IllegalStateException("Failed to read sorted run " + file, e);
 				}
 			}
 
-			sortedFlow.sort(comparator);
-			flowIterator = sortedFlow.iterator();
+			@Override
+			public void close() {
+				remaining = 0;
+				try {
+					if (in != null) {
+						in.close();
+						in = null;
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException("Failed to close sorted run " + file, e);
+				} finally {
+					deleteRun(file);
+				}
+			}
 		}
 
-		return flowIterator.next();
-	}
+		/**
+		 * Merges sorted sources, taking from the earlier source when items are equal, so the merge is stable.
+		 */
+		private class MergingIterator implements Iterator<GeoPipeFlow> {
 
+			private final PriorityQueue<Head> heads = new PriorityQueue<>(
+					Comparator.<Head, GeoPipeFlow>comparing(Head::flow, comparator).thenComparingInt(Head::source));
+			private final List<Iterator<GeoPipeFlow>> sources;
+
+			private MergingIterator(List<Iterator<GeoPipeFlow>> sources) {
+				this.sources = sources;
+				for (int i = 0; i < sources.size(); i++) {
+					advance(i);
+				}
+			}
+
+			private void advance(int source) {
+				Iterator<GeoPipeFlow> iterator = sources.get(source);
+				if (iterator.hasNext()) {
+					heads.add(new Head(iterator.next(), source));
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return !heads.isEmpty();
+			}
+
+			@Override
+			public GeoPipeFlow next() {
+				Head head = heads.poll();
+				if (head == null) {
+					throw new NoSuchElementException();
+				}
+				advance(head.source());
+				if (heads.isEmpty()) {
+					ExternalSort.this.close();
+				}
+				return head.flow();
+			}
+		}
+
+		private record Head(GeoPipeFlow flow, int source) {
+
+		}
+	}
 }
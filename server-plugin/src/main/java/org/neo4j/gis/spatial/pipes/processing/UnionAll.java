@@ -19,6 +19,15 @@
  */
 package org.neo4j.gis.spatial.pipes.processing;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ToDoubleFunction;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.operation.union.UnaryUnionOp;
 import org.neo4j.gis.spatial.pipes.AbstractGroupGeoPipe;
 import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
 
@@ -26,18 +35,120 @@ import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
  * Unites geometries of every item contained in the pipeline.
  * This pipe groups every item in the pipeline in a single item containing the geometry output
  * of the union.
+ * <p>
+ * By default the geometries are united one by one as they come through the pipeline. With a parallelism, they are
+ * collected and united at once with a cascaded union instead, which is much faster for many polygons. With a
+ * parallelism above 1, large inputs are also split into partitions of nearby geometries, by the centres of their
+ * envelopes, which are united in parallel and then united with each other. The input is split into no more
+ * partitions than the parallelism, so that each pipe uses at most that many threads of the shared pool.
  */
 public class UnionAll extends AbstractGroupGeoPipe {
 
+	/**
+	 * The number of geometries below which a partition is united without splitting it further
+	 */
+	private static final int PARTITION_SIZE = 1000;
+
+	private final int parallelism;
+	private final List<Geometry> geometries = new ArrayList<>();
+
+	public UnionAll() {
+		this.parallelism = 0;
+	}
+
+	/**
+	 * @param parallelism the number of threads uniting the geometries, 1 for a cascaded union on the calling thread
+	 */
+	public UnionAll(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("UnionAll does not allow a parallelism less than 1: " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
 	@Override
 	protected void group(GeoPipeFlow flow) {
 		if (groups.isEmpty()) {
 			groups.add(flow);
 		} else {
 			GeoPipeFlow result = groups.get(0);
-			result.setGeometry(result.getGeometry().union(flow.getGeometry()));
+			if (parallelism == 0) {
+				result.setGeometry(result.getGeometry().union(flow.getGeometry()));
+			}
 			result.merge(flow);
 		}
+		if (parallelism > 0) {
+			geometries.add(flow.getGeometry());
+		}
+	}
+
+	@Override
+	protected void finishGroups() {
+		if (geometries.size() < 2) {
+			return;
+		}
+		Geometry union;
+		if (parallelism == 1 || geometries.size() <= PARTITION_SIZE) {
+			union = UnaryUnionOp.union(geometries);
+		} else {
+			union = UnionPool.POOL.invoke(new PartitionUnion(geometries, 0, parallelism));
+		}
+		groups.get(0).setGeometry(union);
+		geometries.clear();
 	}
 
+	/**
+	 * Parallel unions of all pipes share one pool with a thread per processor, while the parallelism of each pipe
+	 * limits how many partitions it is split into. The worker threads are daemon threads that exit when idle, so the
+	 * pool never needs to be shut down.
+	 */
+	private static final class UnionPool {
+
+		private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Splits the geometries in two halves by the centres of their envelopes, alternating between x and y like a
+	 * kd-tree, until the partitions are small enough to be united with a cascaded union, or there are as many
+	 * partitions as the parallelism allows.
+	 */
+	private static class PartitionUnion extends RecursiveTask<Geometry> {
+
+		private final List<Geometry> geometries;
+		private final int depth;
+		private final int parallelism;
+
+		private PartitionUnion(List<Geometry> geometries, int depth, int parallelism) {
+			this.geometries = geometries;
+			this.depth = depth;
+			this.parallelism = parallelism;
+		}
+
+		@Override
+		protected Geometry compute() {
+			if (geometries.size() <= PARTITION_SIZE || parallelism < 2) {
+				return UnaryUnionOp.union(geometries);
+			}
+			List<Geometry> sorted = new ArrayList<>(geometries);
+			ToDoubleFunction<Geometry> centre = depth % 2 == 0 ? UnionAll::centreX : UnionAll::centreY;
+			sorted.sort(Comparator.comparingDouble(centre));
+			int half = sorted.size() / 2;
+			PartitionUnion left = new PartitionUnion(sorted.subList(0, half), depth + 1, parallelism / 2);
+			PartitionUnion right = new PartitionUnion(sorted.subList(half, sorted.size()), depth + 1,
+					parallelism - parallelism / 2);
+			left.fork();
+			Geometry rightUnion = right.compute();
+			return left.join().union(rightUnion);
+		}
+	}
+
+	private static double centreX(Geometry geometry) {
+		Envelope envelope = geometry.getEnvelopeInternal();
+		return (envelope.getMinX() + envelope.getMaxX()) / 2;
+	}
+
+	private static double centreY(Geometry geometry) {
+		Envelope envelope = geometry.getEnvelopeInternal();
+		return (envelope.getMinY() + envelope.getMaxY()) / 2;
+	}
 }
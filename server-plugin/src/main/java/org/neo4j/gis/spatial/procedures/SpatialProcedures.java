@@ -39,12 +39,19 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.locationtech.jts.geom.Coordinate;
@@ -52,6 +59,8 @@ import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
 import org.neo4j.gis.spatial.EditableLayerImpl;
@@ -61,14 +70,18 @@ import org.neo4j.gis.spatial.SpatialDatabaseService;
 import org.neo4j.gis.spatial.SpatialTopologyUtils;
 import org.neo4j.gis.spatial.encoders.NativePointEncoder;
 import org.neo4j.gis.spatial.encoders.SimplePointEncoder;
+import org.neo4j.gis.spatial.filter.SearchCQL;
+import org.neo4j.gis.spatial.filter.SearchIntersect;
+import org.neo4j.gis.spatial.filter.SearchIntersectWindow;
+import org.neo4j.gis.spatial.filter.SearchWithin;
 import org.neo4j.gis.spatial.index.LayerGeohashPointIndex;
 import org.neo4j.gis.spatial.index.LayerHilbertPointIndex;
 import org.neo4j.gis.spatial.index.LayerRTreeIndex;
 import org.neo4j.gis.spatial.index.LayerZOrderPointIndex;
-import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
 import org.neo4j.gis.spatial.pipes.GeoPipeline;
 import org.neo4j.gis.spatial.pipes.processing.OrthodromicDistance;
 import org.neo4j.gis.spatial.rtree.ProgressLoggingListener;
+import org.neo4j.gis.spatial.rtree.RTreeIndex;
 import org.neo4j.gis.spatial.utilities.GeometryEncoderRegistry;
 import org.neo4j.gis.spatial.utilities.IndexRegistry;
 import org.neo4j.gis.spatial.utilities.LayerTypePresetRegistry;
@@ -87,6 +100,8 @@ import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 import org.neo4j.spatial.api.Identifiable;
+import org.neo4j.spatial.api.SearchFilter;
+import org.neo4j.spatial.api.SpatialRecord;
 import org.neo4j.spatial.api.encoder.GeometryEncoder;
 import org.neo4j.spatial.api.layer.EditableLayer;
 import org.neo4j.spatial.api.layer.Layer;
@@ -131,6 +146,25 @@ public class SpatialProcedures extends SpatialApiBase {
 
 	}
 
+	public record IndexedNodeResult(
+			@Description("The position of the query in the list of queries")
+			long queryIndex,
+			Node node) {
+
+	}
+
+	public record IndexedNodeDistanceResult(
+			@Description("The position of the query in the list of queries")
+			long queryIndex,
+			Node node,
+			double distance) {
+
+	}
+
+	public record NodePairResult(Node nodeA, Node nodeB) {
+
+	}
+
 	public record BoundingBoxResult(
 			double minX,
 			double minY,
@@ -830,9 +864,7 @@ public class SpatialProcedures extends SpatialApiBase {
 		Layer layer = getLayerOrThrow(tx, spatial(), name, true);
 		// TODO why a SearchWithin and not a SearchIntersectWindow?
 		Envelope envelope = new Envelope(toCoordinate(min), toCoordinate(max));
-		return GeoPipeline
-				.startWithinSearch(tx, layer, layer.getGeometryFactory().toGeometry(envelope))
-				.stream().map(GeoPipeFlow::getGeomNode).map(NodeResult::new);
+		return searchNodes(layer, new SearchWithin(layer, layer.getGeometryFactory().toGeometry(envelope)));
 	}
 
 	@Procedure(value = "spatial.cql", mode = READ)
@@ -842,9 +874,7 @@ public class SpatialProcedures extends SpatialApiBase {
 			@Name(value = "ecql", description = "The [ECQL](https://docs.geoserver.org/latest/en/user/filter/ecql_reference.html) to find / filter nodes of the layer") String ecql
 	) {
 		Layer layer = getLayerOrThrow(tx, spatial(), name, true);
-		return GeoPipeline
-				.startECQL(tx, layer, ecql)
-				.stream().map(GeoPipeFlow::getGeomNode).map(NodeResult::new);
+		return searchNodes(layer, new SearchCQL(tx, layer, ecql));
 	}
 
 	@Procedure(value = "spatial.closest", mode = READ)
@@ -861,6 +891,18 @@ public class SpatialProcedures extends SpatialApiBase {
 		return edgeResults.stream().map(e -> e.getValue().getGeomNode()).map(NodeResult::new);
 	}
 
+	@Procedure(value = "spatial.nearest", mode = READ)
+	@Description("Returns the k geometry nodes in the layer closest to the given coordinate, ordered by their distance in the units of the layer CRS")
+	public Stream<NodeDistanceResult> findNearestGeometries(
+			@Name(value = "layerName", description = DOC_LAYER_NAME) String name,
+			@Name(value = "coordinate", description = DOC_COORDINATE) Object coordinate,
+			@Name(value = "k", description = "The number of closest geometries to return") long k) {
+		Layer layer = getLayerOrThrow(tx, spatial(), name, true);
+		Point point = layer.getGeometryFactory().createPoint(toCoordinate(coordinate));
+		return SpatialTopologyUtils.findNearest(tx, point, layer, (int) Math.min(k, Integer.MAX_VALUE)).stream()
+				.map(e -> new NodeDistanceResult(e.getValue().getGeomNode(), e.getDistance()));
+	}
+
 	@Procedure(value = "spatial.withinDistance", mode = READ)
 	@Description("Returns all geometry nodes and their ordered distance in the layer within the distance to the given coordinate")
 	public Stream<NodeDistanceResult> findGeometriesWithinDistance(
@@ -879,6 +921,184 @@ public class SpatialProcedures extends SpatialApiBase {
 				});
 	}
 
+	@Procedure(value = "spatial.bboxBatch", mode = READ)
+	@Description("Finds the geometry nodes in the given layer within each of the given boxes, as spatial.bbox does, "
+			+ "searching the index once for all boxes. Each result has the position of its box in the list. "
+			+ DOC_COORDINATE)
+	public Stream<IndexedNodeResult> findGeometriesInBBoxBatch(
+			@Name(value = "layerName", description = DOC_LAYER_NAME) String name,
+			@Name(value = "boxes", description = "The boxes, each a list of the lower left and upper right coordinates, or a map with the coordinates as `min` and `max`") List<Object> boxes) {
+		Layer layer = getLayerOrThrow(tx, spatial(), name, true);
+		List<SearchFilter> filters = new ArrayList<>(boxes.size());
+		for (Object box : boxes) {
+			Envelope envelope = new Envelope(toCoordinate(boxCorner(box, 0, "min")),
+					toCoordinate(boxCorner(box, 1, "max")));
+			filters.add(new SearchWithin(layer, layer.getGeometryFactory().toGeometry(envelope)));
+		}
+		List<IndexedNodeResult> results = new ArrayList<>();
+		searchBatch(layer, filters, (node, query) -> results.add(new IndexedNodeResult(query, node)));
+		results.sort(Comparator.comparingLong(IndexedNodeResult::queryIndex));
+		return results.stream();
+	}
+
+	@Procedure(value = "spatial.withinDistanceBatch", mode = READ)
+	@Description("Returns the geometry nodes in the layer within the distance to each of the given coordinates, as "
+			+ "spatial.withinDistance does, searching the index once for all coordinates. Each result has the "
+			+ "position of its coordinate in the list and the results of each coordinate are ordered by distance")
+	public Stream<IndexedNodeDistanceResult> findGeometriesWithinDistanceBatch(
+			@Name(value = "layerName", description = DOC_LAYER_NAME) String name,
+			@Name(value = "coordinates", description = "The coordinates to search around. " + DOC_COORDINATE) List<Object> coordinates,
+			@Name(value = "distanceInKm", description = "The distance in kilometers within which to search for geometries") double distanceInKm) {
+		Layer layer = getLayerOrThrow(tx, spatial(), name, true);
+		List<Coordinate> points = new ArrayList<>(coordinates.size());
+		List<SearchFilter> filters = new ArrayList<>(coordinates.size());
+		for (Object coordinate : coordinates) {
+			Coordinate point = toCoordinate(coordinate);
+			points.add(point);
+			filters.add(new SearchIntersectWindow(layer, OrthodromicDistance.suggestSearchWindow(point, distanceInKm)));
+		}
+		List<IndexedNodeDistanceResult> results = new ArrayList<>();
+		// the traversal hands over a geometry node for all its matching queries at once, so decode it only once
+		Node[] lastNode = new Node[1];
+		Geometry[] lastGeometry = new Geometry[1];
+		searchBatch(layer, filters, (node, query) -> {
+			if (!node.equals(lastNode[0])) {
+				lastNode[0] = node;
+				lastGeometry[0] = layer.getGeometryEncoder().decodeGeometry(node);
+			}
+			double distance = OrthodromicDistance.calculateDistanceToGeometry(points.get(query), lastGeometry[0]);
+			if (distance <= distanceInKm) {
+				results.add(new IndexedNodeDistanceResult(query, node, distance));
+			}
+		});
+		results.sort(Comparator.comparingLong(IndexedNodeDistanceResult::queryIndex)
+				.thenComparingDouble(IndexedNodeDistanceResult::distance));
+		return results.stream();
+	}
+
+	private static Object boxCorner(Object box, int position, String key) {
+		if (box instanceof List<?> corners && corners.size() == 2) {
+			return corners.get(position);
+		}
+		if (box instanceof Map<?, ?> corners && corners.containsKey(key)) {
+			return corners.get(key);
+		}
+		throw new IllegalArgumentException(
+				"Can't convert " + box + " to a box, expected [min, max] or {min: .., max: ..}");
+	}
+
+	/**
+	 * Run the filters against the layer index, in a single traversal shared by all filters when the layer has an
+	 * RTree index, and one search per filter otherwise.
+	 */
+	private void searchBatch(Layer layer, List<SearchFilter> filters, ObjIntConsumer<Node> consumer) {
+		if (layer.getIndex() instanceof RTreeIndex index) {
+			index.searchIndexBatch(tx, filters, consumer);
+			return;
+		}
+		for (int i = 0; i < filters.size(); i++) {
+			for (SpatialRecord record : layer.getIndex().search(tx, filters.get(i))) {
+				consumer.accept(record.getGeomNode(), i);
+			}
+		}
+	}
+
+	@Procedure(value = "spatial.join", mode = READ)
+	@Description("Finds the pairs of geometry nodes from two layers for which the predicate holds, testing the "
+			+ "geometry of the first layer against the geometry of the second, so 'contains' finds the geometries of "
+			+ "the first layer that contain geometries of the second. When both layers have an RTree index, the "
+			+ "two trees are traversed together, otherwise the second layer is searched for each geometry of the first")
+	public Stream<NodePairResult> joinLayers(
+			@Name(value = "layerA", description = DOC_LAYER_NAME) String nameA,
+			@Name(value = "layerB", description = DOC_LAYER_NAME) String nameB,
+			@Name(value = "predicate", description = "One of 'intersects', 'contains', 'within' or 'dwithin'") String predicateName,
+			@Name(value = "distance", defaultValue = "0.0", description = "The distance for 'dwithin', in the units of the layer CRS") double distance) {
+		Layer layerA = getLayerOrThrow(tx, spatial(), nameA, true);
+		Layer layerB = getLayerOrThrow(tx, spatial(), nameB, true);
+		JoinPredicate predicate = JoinPredicate.fromName(predicateName);
+		double envelopeDistance = predicate == JoinPredicate.DWITHIN ? distance : 0.0;
+		JoinMatcher matcher = new JoinMatcher(layerA, layerB, predicate, distance);
+		if (layerA.getIndex() instanceof RTreeIndex indexA && layerB.getIndex() instanceof RTreeIndex indexB) {
+			Iterator<RTreeIndex.NodePair> pairs = indexA.joinIndex(tx, indexB, envelopeDistance);
+			return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pairs, Spliterator.ORDERED), false)
+					.filter(pair -> matcher.matches(pair.left(), pair.right()))
+					.map(pair -> new NodePairResult(pair.left(), pair.right()));
+		}
+		return StreamSupport.stream(layerA.getIndex().getAllIndexedNodes(tx).spliterator(), false)
+				.flatMap(nodeA -> {
+					Envelope window = new Envelope(matcher.geometryA(nodeA).getGeometry().getEnvelopeInternal());
+					window.expandBy(envelopeDistance);
+					SearchFilter filter = new SearchIntersectWindow(layerB, window);
+					return StreamSupport.stream(layerB.getIndex().search(tx, filter).spliterator(), false)
+							.map(SpatialRecord::getGeomNode)
+							.filter(nodeB -> matcher.matches(nodeA, nodeB))
+							.map(nodeB -> new NodePairResult(nodeA, nodeB));
+				});
+	}
+
+	private enum JoinPredicate {
+		INTERSECTS, CONTAINS, WITHIN, DWITHIN;
+
+		private static JoinPredicate fromName(String name) {
+			for (JoinPredicate predicate : values()) {
+				if (predicate.name().equalsIgnoreCase(name)) {
+					return predicate;
+				}
+			}
+			throw new IllegalArgumentException(
+					"Unknown join predicate '" + name + "', expected one of intersects, contains, within or dwithin");
+		}
+	}
+
+	/**
+	 * Tests the candidate pairs of a join. Candidates arrive grouped by the geometry of the first layer, so only the
+	 * last one of those is kept, prepared for the repeated tests, while the most recently used geometries of the
+	 * second layer are kept in a bounded cache.
+	 */
+	private static final class JoinMatcher {
+
+		private static final int CACHED_GEOMETRIES = 1000;
+
+		private final Layer layerA;
+		private final Layer layerB;
+		private final JoinPredicate predicate;
+		private final double distance;
+		private final Map<Node, Geometry> geometriesB = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Node, Geometry> eldest) {
+				return size() > CACHED_GEOMETRIES;
+			}
+		};
+		private Node lastNodeA;
+		private PreparedGeometry lastGeometryA;
+
+		private JoinMatcher(Layer layerA, Layer layerB, JoinPredicate predicate, double distance) {
+			this.layerA = layerA;
+			this.layerB = layerB;
+			this.predicate = predicate;
+			this.distance = distance;
+		}
+
+		private PreparedGeometry geometryA(Node nodeA) {
+			if (!nodeA.equals(lastNodeA)) {
+				lastNodeA = nodeA;
+				lastGeometryA = PreparedGeometryFactory.prepare(layerA.getGeometryEncoder().decodeGeometry(nodeA));
+			}
+			return lastGeometryA;
+		}
+
+		private boolean matches(Node nodeA, Node nodeB) {
+			PreparedGeometry geometryA = geometryA(nodeA);
+			Geometry geometryB = geometriesB.computeIfAbsent(nodeB, layerB.getGeometryEncoder()::decodeGeometry);
+			return switch (predicate) {
+				case INTERSECTS -> geometryA.intersects(geometryB);
+				case CONTAINS -> geometryA.contains(geometryB);
+				case WITHIN -> geometryA.within(geometryB);
+				case DWITHIN -> geometryA.getGeometry().isWithinDistance(geometryB, distance);
+			};
+		}
+	}
+
 	@Deprecated
 	@Procedure("spatial.asGeometry")
 	@Description("Returns a geometry object as the Neo4j geometry type, to be passed to other procedures or returned to a client")
@@ -905,9 +1125,16 @@ public class SpatialProcedures extends SpatialApiBase {
 			@Name(value = "geometry", description = DOC_JTS_GEOMETRY) Object geometry) {
 
 		Layer layer = getLayerOrThrow(tx, spatial(), name, true);
-		return GeoPipeline
-				.startIntersectSearch(tx, layer, toJTSGeometry(layer, geometry))
-				.stream().map(GeoPipeFlow::getGeomNode).map(NodeResult::new);
+		return searchNodes(layer, new SearchIntersect(layer, toJTSGeometry(layer, geometry)));
+	}
+
+	/**
+	 * Stream the nodes found by the index of the layer straight into the results. Starting a GeoPipeline would wrap
+	 * every node in a record and a flow, which only pays off when pipes process the geometries of the results.
+	 */
+	private Stream<NodeResult> searchNodes(Layer layer, SearchFilter filter) {
+		return StreamSupport.stream(layer.getIndex().searchIndex(tx, filter).spliterator(), false)
+				.map(NodeResult::new);
 	}
 
 	private static Geometry toJTSGeometry(Layer layer, Object value) {
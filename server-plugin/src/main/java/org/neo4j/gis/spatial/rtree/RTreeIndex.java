@@ -19,7 +19,9 @@
  */
 package org.neo4j.gis.spatial.rtree;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -28,7 +30,12 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToDoubleFunction;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -80,6 +87,10 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 	public static final String KEY_MAX_NODE_REFERENCES = "maxNodeReferences";
 	public static final String KEY_SHOULD_MERGE_TREES = "shouldMergeTrees";
 	public static final String REFERENCE_RELATIONSHIP_TYPE = "referenceRelationshipType";
+	public static final String KEY_CACHE_INDEX_NODES = "cacheIndexNodes";
+	public static final String KEY_SEARCH_PARALLELISM = "searchParallelism";
+	public static final String KEY_ORDERED_SEARCH = "orderedSearch";
+	public static final String INDEX_PROP_STRUCTURE_VERSION = "structureVersion";
 	public static final int MIN_MAX_NODE_REFERENCES = 10;
 	public static final int MAX_MAX_NODE_REFERENCES = 1000000;
 	public static final int DEFAULT_MAX_NODE_REFERENCES = 100;
@@ -92,6 +103,9 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 	private String splitMode = GREENES_SPLIT;
 	private boolean shouldMergeTrees = false;
 	private RelationshipType referenceRelationshipType = RTreeRelationshipTypes.RTREE_REFERENCE;
+	private boolean cacheIndexNodes = false;
+	private int searchParallelism = 1;
+	private boolean orderedSearch = true;
 
 	private int totalGeometryCount = 0;
 	private boolean countSaved = false;
@@ -141,6 +155,9 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 		config.put(KEY_MAX_NODE_REFERENCES, this.maxNodeReferences);
 		config.put(KEY_SHOULD_MERGE_TREES, this.shouldMergeTrees);
 		config.put(REFERENCE_RELATIONSHIP_TYPE, this.referenceRelationshipType.name());
+		config.put(KEY_CACHE_INDEX_NODES, this.cacheIndexNodes);
+		config.put(KEY_SEARCH_PARALLELISM, this.searchParallelism);
+		config.put(KEY_ORDERED_SEARCH, this.orderedSearch);
 		return JSONObject.toJSONString(config);
 	}
 
@@ -178,6 +195,19 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 				case REFERENCE_RELATIONSHIP_TYPE:
 					this.referenceRelationshipType = RelationshipType.withName(rawValue.toString());
 					break;
+				case KEY_CACHE_INDEX_NODES:
+					this.cacheIndexNodes = Boolean.parseBoolean(rawValue.toString());
+					break;
+				case KEY_SEARCH_PARALLELISM:
+					int parallelism = Integer.parseInt(rawValue.toString());
+					if (parallelism < 1) {
+						throw new IllegalArgumentException("RTreeIndex does not allow " + key + " less than 1");
+					}
+					this.searchParallelism = parallelism;
+					break;
+				case KEY_ORDERED_SEARCH:
+					this.orderedSearch = Boolean.parseBoolean(rawValue.toString());
+					break;
 				default:
 					throw new IllegalArgumentException("No such RTreeIndex configuration key: " + key);
 			}
@@ -232,7 +262,8 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 	 * This is based on the Paper "Bulk Insertion for R-trees by seeded clustering" by T.Lee, S.Lee & B Moon.
 	 * Repeated use of this strategy will lead to degraded query performance, especially if used for
 	 * many relatively small insertions compared to tree size. Though not worse than one by one insertion.
-	 * In practice, it should be fine for most uses.
+	 * In practice, it should be fine for most uses. To build a very large index from scratch in bounded memory, use
+	 * the STRBulkLoader instead.
 	 */
 	@Override
 	public void add(Transaction tx, List<Node> geomNodes) {
@@ -266,6 +297,7 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 			totalGeometryCount += geomNodes.size();
 			countSaved = false;
 		}
+		markStructureChanged(tx);
 	}
 
 	private List<NodeWithEnvelope> decodeGeometryNodeEnvelopes(List<Node> nodes) {
@@ -511,6 +543,26 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 		}
 	}
 
+	int getMaxNodeReferences() {
+		return maxNodeReferences;
+	}
+
+	RelationshipType getReferenceRelationshipType() {
+		return referenceRelationshipType;
+	}
+
+	/**
+	 * Called by the STRBulkLoader once it has written the tree below the index root, to bring the geometry count
+	 * and structure version in line with the new tree.
+	 */
+	void finishBulkLoad(Transaction tx, int geometryCount) {
+		checkWritable();
+		totalGeometryCount = geometryCount;
+		countSaved = false;
+		saveCount(tx);
+		markStructureChanged(tx);
+	}
+
 	private int expectedHeight(double loadingFactor, int size) {
 		if (size == 1) {
 			return 1;
@@ -645,6 +697,7 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 				}
 
 				adjustPathBoundingBox(indexNode);
+				markStructureChanged(tx);
 
 				countSaved = false;
 				totalGeometryCount--;
@@ -722,6 +775,7 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 		Node metadataNode = metadataNodeRelationship.getEndNode();
 		metadataNodeRelationship.delete();
 		metadataNode.delete();
+		RTreeIndexNodeCache.invalidate(rootNodeId);
 
 		countSaved = false;
 		totalGeometryCount = 0;
@@ -832,8 +886,23 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 		}
 	}
 
+	/**
+	 * Search the tree using the given filter. Read-only indexes configured with cacheIndexNodes search an in-memory
+	 * copy of the index nodes, and those configured with a searchParallelism above one filter the subtrees of that
+	 * copy in up to that many parallel tasks. Since the envelope tests then run on other threads, only the built-in
+	 * filters whose envelope tests are thread-safe are searched in parallel, and all others are searched
+	 * sequentially. With orderedSearch disabled, a parallel search returns the results of each task as soon as it
+	 * has finished, rather than in the order of the sequential search.
+	 */
 	@Override
 	public SearchResults searchIndex(Transaction tx, SearchFilter filter) {
+		if (readOnly && searchParallelism > 1 && RTreeIndexNodeCache.supportsParallelSearch(filter)) {
+			return new SearchResults(() -> getIndexNodeCache(tx).searchParallel(tx, filter, referenceRelationshipType,
+					monitor, searchParallelism, orderedSearch));
+		}
+		if (readOnly && usesIndexNodeCache()) {
+			return new SearchResults(() -> getIndexNodeCache(tx).search(tx, filter, referenceRelationshipType, monitor));
+		}
 		SearchEvaluator searchEvaluator = new SearchEvaluator(tx, filter);
 		MonoDirectionalTraversalDescription traversal = new MonoDirectionalTraversalDescription();
 		TraversalDescription td = traversal
@@ -846,6 +915,326 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 		return new SearchResults(traverser.nodes());
 	}
 
+	/**
+	 * Search the tree with many filters in a single traversal. Each index node is read once and its envelope is
+	 * tested against the filters still interested in it, so queries covering the same parts of the tree share the
+	 * reads of those index nodes. The geometry nodes matching each filter are passed to the consumer together with
+	 * the position of that filter in the list, in the order of the traversal rather than grouped by filter.
+	 */
+	public void searchIndexBatch(Transaction tx, List<? extends SearchFilter> filters, ObjIntConsumer<Node> consumer) {
+		int[] active = new int[filters.size()];
+		for (int i = 0; i < active.length; i++) {
+			active[i] = i;
+		}
+		if (active.length > 0) {
+			searchIndexBatch(tx, getIndexRoot(tx), filters, active, new boolean[active.length], consumer);
+		}
+	}
+
+	private void searchIndexBatch(Transaction tx, Node indexNode, List<? extends SearchFilter> filters, int[] active,
+			boolean[] includeAll, ObjIntConsumer<Node> consumer) {
+		try (var relationships = indexNode.getRelationships(Direction.OUTGOING, RTreeRelationshipTypes.RTREE_CHILD)) {
+			for (Relationship rel : relationships) {
+				Node child = rel.getEndNode();
+				Envelope envelope = getIndexNodeEnvelope(child);
+				int[] childActive = new int[active.length];
+				boolean[] childIncludeAll = new boolean[active.length];
+				int count = 0;
+				for (int i = 0; i < active.length; i++) {
+					SearchFilter.EnvelopFilterResult result = includeAll[i]
+							? SearchFilter.EnvelopFilterResult.INCLUDE_ALL
+							: filters.get(active[i]).needsToVisitExtended(envelope);
+					if (result != SearchFilter.EnvelopFilterResult.EXCLUDE_ALL) {
+						childActive[count] = active[i];
+						childIncludeAll[count++] = result == SearchFilter.EnvelopFilterResult.INCLUDE_ALL;
+					}
+				}
+				monitor.addCase(count > 0 ? "Index Matches" : "Index Does NOT Match");
+				if (count > 0) {
+					searchIndexBatch(tx, child, filters, Arrays.copyOf(childActive, count),
+							Arrays.copyOf(childIncludeAll, count), consumer);
+				}
+			}
+		}
+		try (var relationships = indexNode.getRelationships(Direction.OUTGOING, referenceRelationshipType)) {
+			for (Relationship rel : relationships) {
+				Node geomNode = rel.getEndNode();
+				for (int i = 0; i < active.length; i++) {
+					boolean found = includeAll[i] || filters.get(active[i]).geometryMatches(tx, geomNode);
+					monitor.addCase(found ? "Geometry Matches" : "Geometry Does NOT Match");
+					if (found) {
+						consumer.accept(geomNode, active[i]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A geometry node found by a nearest neighbour search, together with its distance to the search point.
+	 */
+	public record NodeWithDistance(Node node, double distance) {
+
+	}
+
+	/**
+	 * Best-first nearest neighbour search based on "Distance Browsing in Spatial Databases" by G.R. Hjaltason
+	 * and H. Samet. Index nodes and geometry nodes are kept in a single priority queue ordered by their minimum
+	 * distance (MINDIST) to the search point. Index nodes are only expanded when they reach the head of the queue,
+	 * so the traversal touches just the part of the tree needed to produce the next closest geometry.
+	 * <p>
+	 * Geometry nodes are first queued using the distance to their envelope, and only when they reach the head of
+	 * the queue is the exact distance calculated, using the supplied function, and the node re-queued. This means
+	 * the geometry is only decoded for candidates that could really be amongst the nearest. If the function is
+	 * null, the envelope distance is considered exact, which is correct for point layers.
+	 * <p>
+	 * The returned iterator is lazy, so consuming only the first k results will stop the search after k exact
+	 * hits.
+	 *
+	 * @param tx               the transaction to read the index in
+	 * @param point            the search point, in the coordinates of the layer
+	 * @param geometryDistance function calculating the exact distance from the search point to a geometry node
+	 * @return iterator of geometry nodes in order of increasing distance
+	 */
+	public Iterator<NodeWithDistance> searchNearest(Transaction tx, double[] point,
+			ToDoubleFunction<Node> geometryDistance) {
+		return new NearestNeighbourIterator(getIndexRoot(tx), point, geometryDistance);
+	}
+
+	/**
+	 * The minimum distance from the point to any point inside the envelope, which is zero if the point is
+	 * inside the envelope.
+	 */
+	static double minDistance(Envelope envelope, double[] point) {
+		double dx = Math.max(0.0, Math.max(envelope.getMinX() - point[0], point[0] - envelope.getMaxX()));
+		double dy = Math.max(0.0, Math.max(envelope.getMinY() - point[1], point[1] - envelope.getMaxY()));
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private class NearestNeighbourIterator implements Iterator<NodeWithDistance> {
+
+		private enum EntryType {
+			// Order matters, on equal distance exact results are returned before anything is expanded
+			GEOMETRY, GEOMETRY_ENVELOPE, INDEX_NODE
+		}
+
+		private record Entry(EntryType type, Node node, double distance) {
+
+		}
+
+		private final PriorityQueue<Entry> queue = new PriorityQueue<>(
+				Comparator.comparingDouble(Entry::distance).thenComparing(Entry::type));
+		private final double[] point;
+		private final ToDoubleFunction<Node> geometryDistance;
+		private NodeWithDistance next;
+
+		private NearestNeighbourIterator(Node indexRoot, double[] point, ToDoubleFunction<Node> geometryDistance) {
+			this.point = point;
+			this.geometryDistance = geometryDistance;
+			Envelope rootEnvelope = getIndexNodeEnvelope(indexRoot);
+			if (rootEnvelope != null) {
+				queue.add(new Entry(EntryType.INDEX_NODE, indexRoot, minDistance(rootEnvelope, point)));
+			}
+			prefetch();
+		}
+
+		private void prefetch() {
+			next = null;
+			while (next == null && !queue.isEmpty()) {
+				Entry entry = queue.poll();
+				switch (entry.type) {
+					case GEOMETRY:
+						next = new NodeWithDistance(entry.node, entry.distance);
+						break;
+					case GEOMETRY_ENVELOPE:
+						if (geometryDistance == null) {
+							next = new NodeWithDistance(entry.node, entry.distance);
+						} else {
+							monitor.addCase("Nearest Geometry Decoded");
+							queue.add(new Entry(EntryType.GEOMETRY, entry.node,
+									geometryDistance.applyAsDouble(entry.node)));
+						}
+						break;
+					case INDEX_NODE:
+						monitor.addCase("Nearest Index Node Expanded");
+						expand(entry.node);
+						break;
+				}
+			}
+		}
+
+		private void expand(Node indexNode) {
+			try (var relationships = indexNode.getRelationships(Direction.OUTGOING,
+					RTreeRelationshipTypes.RTREE_CHILD)) {
+				for (Relationship rel : relationships) {
+					Node child = rel.getEndNode();
+					Envelope envelope = getIndexNodeEnvelope(child);
+					if (envelope != null) {
+						queue.add(new Entry(EntryType.INDEX_NODE, child, minDistance(envelope, point)));
+					}
+				}
+			}
+			try (var relationships = indexNode.getRelationships(Direction.OUTGOING, referenceRelationshipType)) {
+				for (Relationship rel : relationships) {
+					Node geomNode = rel.getEndNode();
+					queue.add(new Entry(EntryType.GEOMETRY_ENVELOPE, geomNode,
+							minDistance(getLeafNodeEnvelope(geomNode), point)));
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public NodeWithDistance next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			NodeWithDistance result = next;
+			prefetch();
+			return result;
+		}
+	}
+
+	/**
+	 * A pair of geometry nodes found by joining two indexes.
+	 */
+	public record NodePair(Node left, Node right) {
+
+	}
+
+	/**
+	 * Join this index with another one by traversing both trees together, depth first. A pair of index nodes is
+	 * only expanded when their envelopes are within the given distance of each other, and then their children are
+	 * paired in turn. When one tree is higher than the other, only the side that has not reached its leaves yet is
+	 * descended. The pairs of geometry nodes whose envelopes are within the distance are returned as candidates,
+	 * which still have to be tested against the exact geometries.
+	 * <p>
+	 * The returned iterator is lazy and only keeps the pairs of index nodes still to be expanded and the candidates
+	 * of the current pair of leaves, so its memory use depends on the height and fan-out of the trees rather than on
+	 * the number of results.
+	 *
+	 * @param tx       the transaction to read both indexes in
+	 * @param other    the index to join with, its geometry nodes are the right of each pair
+	 * @param distance the maximum distance between the envelopes of joined nodes, zero for intersecting envelopes
+	 * @return iterator of candidate pairs, grouped by the left geometry node within each pair of leaves
+	 */
+	public Iterator<NodePair> joinIndex(Transaction tx, RTreeIndex other, double distance) {
+		return new JoinIterator(getIndexRoot(tx), other, other.getIndexRoot(tx), distance);
+	}
+
+	/**
+	 * The minimum distance between any two points inside the envelopes, which is zero if they intersect.
+	 */
+	static double minDistance(Envelope envelope, Envelope other) {
+		double dx = Math.max(0.0, Math.max(envelope.getMinX() - other.getMaxX(), other.getMinX() - envelope.getMaxX()));
+		double dy = Math.max(0.0, Math.max(envelope.getMinY() - other.getMaxY(), other.getMinY() - envelope.getMaxY()));
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private class JoinIterator implements Iterator<NodePair> {
+
+		private record Entry(Node node, Envelope envelope) {
+
+		}
+
+		private record Pending(Entry left, Entry right) {
+
+		}
+
+		private final RTreeIndex other;
+		private final double distance;
+		private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+		private final ArrayDeque<NodePair> candidates = new ArrayDeque<>();
+
+		private JoinIterator(Node indexRoot, RTreeIndex other, Node otherRoot, double distance) {
+			this.other = other;
+			this.distance = distance;
+			Envelope envelope = getIndexNodeEnvelope(indexRoot);
+			Envelope otherEnvelope = getIndexNodeEnvelope(otherRoot);
+			if (envelope != null && otherEnvelope != null && minDistance(envelope, otherEnvelope) <= distance) {
+				pending.push(new Pending(new Entry(indexRoot, envelope), new Entry(otherRoot, otherEnvelope)));
+			}
+		}
+
+		private void prefetch() {
+			while (candidates.isEmpty() && !pending.isEmpty()) {
+				Pending pair = pending.pop();
+				monitor.addCase("Join Index Nodes Expanded");
+				boolean leftIsLeaf = isLeaf(pair.left.node);
+				boolean rightIsLeaf = isLeaf(pair.right.node);
+				if (leftIsLeaf && rightIsLeaf) {
+					List<Entry> rights = geometryChildren(other, pair.right.node);
+					for (Entry left : geometryChildren(RTreeIndex.this, pair.left.node)) {
+						for (Entry right : rights) {
+							if (minDistance(left.envelope, right.envelope) <= distance) {
+								candidates.add(new NodePair(left.node, right.node));
+							}
+						}
+					}
+				} else {
+					List<Entry> lefts = leftIsLeaf ? List.of(pair.left) : indexChildren(pair.left.node);
+					List<Entry> rights = rightIsLeaf ? List.of(pair.right) : indexChildren(pair.right.node);
+					for (Entry left : lefts) {
+						for (Entry right : rights) {
+							if (minDistance(left.envelope, right.envelope) <= distance) {
+								pending.push(new Pending(left, right));
+							}
+						}
+					}
+				}
+			}
+		}
+
+		private boolean isLeaf(Node indexNode) {
+			return !indexNode.hasRelationship(Direction.OUTGOING, RTreeRelationshipTypes.RTREE_CHILD);
+		}
+
+		private List<Entry> indexChildren(Node indexNode) {
+			List<Entry> children = new ArrayList<>();
+			try (var relationships = indexNode.getRelationships(Direction.OUTGOING,
+					RTreeRelationshipTypes.RTREE_CHILD)) {
+				for (Relationship rel : relationships) {
+					Node child = rel.getEndNode();
+					Envelope envelope = getIndexNodeEnvelope(child);
+					if (envelope != null) {
+						children.add(new Entry(child, envelope));
+					}
+				}
+			}
+			return children;
+		}
+
+		private List<Entry> geometryChildren(RTreeIndex index, Node indexNode) {
+			List<Entry> children = new ArrayList<>();
+			try (var relationships = indexNode.getRelationships(Direction.OUTGOING,
+					index.referenceRelationshipType)) {
+				for (Relationship rel : relationships) {
+					Node geomNode = rel.getEndNode();
+					children.add(new Entry(geomNode, index.getLeafNodeEnvelope(geomNode)));
+				}
+			}
+			return children;
+		}
+
+		@Override
+		public boolean hasNext() {
+			prefetch();
+			return !candidates.isEmpty();
+		}
+
+		@Override
+		public NodePair next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return candidates.poll();
+		}
+	}
+
 	public void visit(Transaction tx, SpatialIndexVisitor visitor, Node indexNode) {
 		if (!visitor.needsToVisit(getIndexNodeEnvelope(indexNode))) {
 			return;
@@ -962,6 +1351,7 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 			layerNode.createRelationshipTo(metadataNode, RTreeRelationshipTypes.RTREE_METADATA);
 
 			metadataNode.setProperty("maxNodeReferences", maxNodeReferences);
+			metadataNode.setProperty(INDEX_PROP_STRUCTURE_VERSION, ThreadLocalRandom.current().nextLong());
 		}
 
 		saveCount(tx);
@@ -982,6 +1372,34 @@ public abstract class RTreeIndex implements SpatialIndexWriter, Configurable {
 				.getEndNode();
 	}
 
+	/**
+	 * Give the tree a new structure version, so that any cached copy of the index nodes built by readers is no
+	 * longer used once this transaction commits. The version is random rather than incremented, so concurrent
+	 * writers and rolled back transactions can never produce a version that matches a stale cache. Indexes that
+	 * never search a cached copy skip the extra property write, which is safe because the settings that enable the
+	 * cache are part of the index configuration stored with the layer, and so are shared by all its readers and
+	 * writers.
+	 */
+	private void markStructureChanged(Transaction tx) {
+		if (usesIndexNodeCache()) {
+			getMetadataNode(tx).setProperty(INDEX_PROP_STRUCTURE_VERSION, ThreadLocalRandom.current().nextLong());
+		}
+		RTreeIndexNodeCache.invalidate(rootNodeId);
+	}
+
+	private boolean usesIndexNodeCache() {
+		return cacheIndexNodes || searchParallelism > 1;
+	}
+
+	/**
+	 * Get the in-memory copy of the index nodes matching the tree as seen by this transaction, building it if the
+	 * tree has changed since the cached copy was made.
+	 */
+	RTreeIndexNodeCache getIndexNodeCache(Transaction tx) {
+		long version = (long) getMetadataNode(tx).getProperty(INDEX_PROP_STRUCTURE_VERSION, 0L);
+		return RTreeIndexNodeCache.getOrBuild(rootNodeId, version, getIndexRoot(tx));
+	}
+
 	/**
 	 * Save the geometry count to the database if it has not been saved yet.
 	 * However, if the count is zero, first do an exhaustive search of the
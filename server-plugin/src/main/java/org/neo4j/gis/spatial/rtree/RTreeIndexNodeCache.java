@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.gis.spatial.rtree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.IntStream;
+import org.neo4j.gis.spatial.filter.SearchIntersect;
+import org.neo4j.gis.spatial.filter.SearchIntersectWindow;
+import org.neo4j.gis.spatial.filter.SearchWithin;
+import org.neo4j.gis.spatial.rtree.filter.SearchAll;
+import org.neo4j.gis.spatial.rtree.filter.SearchCoveredByEnvelope;
+import org.neo4j.gis.spatial.rtree.filter.SearchEqualEnvelopes;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.spatial.api.Envelope;
+import org.neo4j.spatial.api.SearchFilter;
+import org.neo4j.spatial.api.SearchFilter.EnvelopFilterResult;
+import org.neo4j.spatial.api.monitoring.TreeMonitor;
+
+/**
+ * An in-memory mirror of the index nodes of an RTreeIndex, used to answer read queries without reading the
+ * bounding boxes of the index nodes from the graph. The tree is stored in depth-first pre-order in parallel
+ * primitive arrays, where each entry knows where its subtree ends. This allows a search to skip an entire
+ * subtree with a single jump, and only the leaf index nodes that survive the filtering are read from the
+ * graph to find the geometry nodes they reference.
+ * <p>
+ * Caches are shared between all RTreeIndex instances for the same layer, and are tagged with the structure
+ * version stored in the index metadata node. Every write to an index configured to use the cache changes that
+ * version in the writing transaction, so a cache is only ever used by readers that see exactly the tree it was
+ * built from. Only the caches of the most recently searched layers are kept, and the cache of a layer is dropped
+ * when its index is removed.
+ */
+class RTreeIndexNodeCache {
+
+	private static final int MAX_CACHED_INDEXES = 16;
+
+	private static final Map<String, RTreeIndexNodeCache> CACHES = Collections.synchronizedMap(
+			new LinkedHashMap<>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, RTreeIndexNodeCache> eldest) {
+					return size() > MAX_CACHED_INDEXES;
+				}
+			});
+
+	/**
+	 * The filters whose envelope tests read nothing but their immutable reference envelope, and so can be called
+	 * from several threads at once. Searches using any other filter are never run in parallel.
+	 */
+	private static final Set<Class<? extends SearchFilter>> THREAD_SAFE_FILTERS = Set.of(SearchAll.class,
+			SearchEqualEnvelopes.class, SearchCoveredByEnvelope.class, SearchIntersectWindow.class,
+			SearchIntersect.class, SearchWithin.class);
+
+	private final long version;
+	private final int size;
+	// minX, minY, maxX, maxY for each index node
+	private final double[] envelopes;
+	// position after the last index node in the subtree of each index node
+	private final int[] subtreeEnd;
+	private final String[] elementIds;
+
+	private RTreeIndexNodeCache(long version, int size, double[] envelopes, int[] subtreeEnd, String[] elementIds) {
+		this.version = version;
+		this.size = size;
+		this.envelopes = envelopes;
+		this.subtreeEnd = subtreeEnd;
+		this.elementIds = elementIds;
+	}
+
+	/**
+	 * Find the cache for the index identified by the layer node, building it from the current transaction if
+	 * there is none yet, or if the cached tree is from a different structure version.
+	 */
+	static RTreeIndexNodeCache getOrBuild(String layerNodeId, long version, Node indexRoot) {
+		RTreeIndexNodeCache cache = CACHES.get(layerNodeId);
+		if (cache == null || cache.version != version) {
+			cache = build(version, indexRoot);
+			CACHES.put(layerNodeId, cache);
+		}
+		return cache;
+	}
+
+	static boolean supportsParallelSearch(SearchFilter filter) {
+		return THREAD_SAFE_FILTERS.contains(filter.getClass());
+	}
+
+	static void invalidate(String layerNodeId) {
+		CACHES.remove(layerNodeId);
+	}
+
+	private static RTreeIndexNodeCache build(long version, Node indexRoot) {
+		Builder builder = new Builder();
+		builder.add(indexRoot);
+		return new RTreeIndexNodeCache(version, builder.size, builder.envelopes, builder.subtreeEnd,
+				builder.elementIds);
+	}
+
+	private static class Builder {
+
+		private int size = 0;
+		private double[] envelopes = new double[64];
+		private int[] subtreeEnd = new int[16];
+		private String[] elementIds = new String[16];
+
+		private void add(Node indexNode) {
+			int position = size++;
+			if (position == subtreeEnd.length) {
+				subtreeEnd = Arrays.copyOf(subtreeEnd, position * 2);
+				elementIds = Arrays.copyOf(elementIds, position * 2);
+				envelopes = Arrays.copyOf(envelopes, position * 8);
+			}
+			elementIds[position] = indexNode.getElementId();
+			double[] bbox = (double[]) indexNode.getProperty(RTreeIndex.INDEX_PROP_BBOX, null);
+			if (bbox == null) {
+				// an empty index node can never match a search
+				Arrays.fill(envelopes, position * 4, position * 4 + 4, Double.NaN);
+			} else {
+				System.arraycopy(bbox, 0, envelopes, position * 4, 4);
+			}
+			try (var relationships = indexNode.getRelationships(Direction.OUTGOING,
+					RTreeRelationshipTypes.RTREE_CHILD)) {
+				for (Relationship rel : relationships) {
+					add(rel.getEndNode());
+				}
+			}
+			subtreeEnd[position] = size;
+		}
+	}
+
+	long getVersion() {
+		return version;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private Envelope getEnvelope(int position) {
+		int offset = position * 4;
+		return new Envelope(envelopes[offset], envelopes[offset + 2], envelopes[offset + 1], envelopes[offset + 3]);
+	}
+
+	private boolean isEmpty(int position) {
+		return Double.isNaN(envelopes[position * 4]);
+	}
+
+	private boolean isLeaf(int position) {
+		return subtreeEnd[position] == position + 1;
+	}
+
+	/**
+	 * Search the cached tree with the given filter. This follows the same rules as the graph traversal in
+	 * RTreeIndex.searchIndex: the root is always visited, child index nodes are pruned using the filter, and an
+	 * INCLUDE_ALL result makes the whole subtree match without testing the geometries. Like the traversal, the tree
+	 * is only filtered as far as needed to return the next result.
+	 */
+	Iterator<Node> search(Transaction tx, SearchFilter filter, RelationshipType referenceRelationshipType,
+			TreeMonitor monitor) {
+		Iterator<LeafSource> sources = List.<LeafSource>of(new SubtreeScan(0, false, false, filter)).iterator();
+		return new LeafIterator(tx, filter, referenceRelationshipType, monitor, sources);
+	}
+
+	/**
+	 * Search the cached tree, filtering the subtrees below the root, or below the second level if the root has too
+	 * few children, in up to the given number of tasks running in the shared search pool. Only the envelope tests
+	 * run in the pool, since they use nothing but this immutable copy of the tree and a filter from
+	 * {@link #supportsParallelSearch(SearchFilter)}. The geometry nodes are read, and tested against the filter, by
+	 * the calling thread because a transaction can only be used by the thread that owns it.
+	 *
+	 * @param ordered if true, results are returned in the same order as the sequential search, otherwise each task
+	 *                returns its results as soon as it has finished filtering
+	 */
+	Iterator<Node> searchParallel(Transaction tx, SearchFilter filter, RelationshipType referenceRelationshipType,
+			TreeMonitor monitor, int parallelism, boolean ordered) {
+		if (isLeaf(0) || !supportsParallelSearch(filter)) {
+			return search(tx, filter, referenceRelationshipType, monitor);
+		}
+		List<SubtreeScan> subtrees = new ArrayList<>();
+		LeafScan rootScan = new LeafScan();
+		boolean expandSecondLevel = countChildren(0) < parallelism;
+		for (int child = 1; child < size; child = subtreeEnd[child]) {
+			if (!expandSecondLevel || isLeaf(child)) {
+				subtrees.add(new SubtreeScan(child, false, true, filter));
+				continue;
+			}
+			EnvelopFilterResult result = rootScan.filter(child, filter);
+			if (result == EnvelopFilterResult.INCLUDE_ALL) {
+				subtrees.add(new SubtreeScan(child, true, false, filter));
+			} else if (result == EnvelopFilterResult.FILTER) {
+				for (int grandChild = child + 1; grandChild < subtreeEnd[child]; grandChild = subtreeEnd[grandChild]) {
+					subtrees.add(new SubtreeScan(grandChild, false, true, filter));
+				}
+			}
+		}
+		// each task scans a contiguous run of subtrees, so that joining the tasks in order keeps the search order
+		int taskCount = Math.min(parallelism, subtrees.size());
+		List<CompletableFuture<LeafScan>> futures = new ArrayList<>(taskCount + 1);
+		futures.add(CompletableFuture.completedFuture(rootScan));
+		LinkedBlockingQueue<CompletableFuture<LeafScan>> completed = new LinkedBlockingQueue<>();
+		completed.add(futures.get(0));
+		for (int task = 0; task < taskCount; task++) {
+			List<SubtreeScan> group = subtrees.subList(subtrees.size() * task / taskCount,
+					subtrees.size() * (task + 1) / taskCount);
+			CompletableFuture<LeafScan> future = CompletableFuture.supplyAsync(() -> scanAll(group), SearchPool.POOL);
+			future.whenComplete((scan, error) -> completed.add(future));
+			futures.add(future);
+		}
+		Iterator<LeafSource> sources = ordered ?
+				futures.stream().<LeafSource>map(CompletableFuture::join).iterator() :
+				IntStream.range(0, futures.size()).<LeafSource>mapToObj(i -> takeCompleted(completed)).iterator();
+		return new LeafIterator(tx, filter, referenceRelationshipType, monitor, sources);
+	}
+
+	private LeafScan scanAll(List<SubtreeScan> subtrees) {
+		LeafScan scan = new LeafScan();
+		for (SubtreeScan subtree : subtrees) {
+			scan.addAll(subtree);
+		}
+		return scan;
+	}
+
+	private static LeafScan takeCompleted(LinkedBlockingQueue<CompletableFuture<LeafScan>> completed) {
+		try {
+			return completed.take().join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for parallel index search", e);
+		}
+	}
+
+	private int countChildren(int position) {
+		int count = 0;
+		for (int child = position + 1; child < subtreeEnd[position]; child = subtreeEnd[child]) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Parallel searches of all indexes share one pool with a thread per processor, while the searchParallelism of
+	 * each index limits how many tasks a single search submits. The worker threads are daemon threads that exit
+	 * when idle, so the pool does not need to be shut down with the database.
+	 */
+	private static final class SearchPool {
+
+		private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * The leaf index nodes that pass the envelope filter, with counts of the index nodes tested so far, so that the
+	 * monitor can be updated by the calling thread.
+	 */
+	private abstract class LeafSource {
+
+		int indexMatches = 0;
+		int indexMisses = 0;
+
+		EnvelopFilterResult filter(int position, SearchFilter filter) {
+			EnvelopFilterResult result = isEmpty(position) ?
+					EnvelopFilterResult.EXCLUDE_ALL :
+					filter.needsToVisitExtended(getEnvelope(position));
+			if (result == EnvelopFilterResult.EXCLUDE_ALL) {
+				indexMisses++;
+			} else {
+				indexMatches++;
+			}
+			return result;
+		}
+
+		/**
+		 * @return the position of the next leaf shifted left by one, with the lowest bit set if all its geometries
+		 * are included, or -1 if there are no more leaves
+		 */
+		abstract int nextLeaf();
+
+		void report(TreeMonitor monitor) {
+			for (int i = 0; i < indexMatches; i++) {
+				monitor.addCase("Index Matches");
+			}
+			for (int i = 0; i < indexMisses; i++) {
+				monitor.addCase("Index Does NOT Match");
+			}
+			indexMatches = 0;
+			indexMisses = 0;
+		}
+	}
+
+	/**
+	 * Walks the subtree starting at the given position, testing index nodes only until the next matching leaf is
+	 * found.
+	 */
+	private class SubtreeScan extends LeafSource {
+
+		private final SearchFilter searchFilter;
+		private final int start;
+		private final int end;
+		private final boolean filterStart;
+		private int includeAllUntil;
+		private int position;
+
+		private SubtreeScan(int start, boolean includeAll, boolean filterStart, SearchFilter filter) {
+			this.searchFilter = filter;
+			this.start = start;
+			this.end = subtreeEnd[start];
+			this.filterStart = filterStart;
+			this.includeAllUntil = includeAll ? end : 0;
+			this.position = start;
+		}
+
+		@Override
+		int nextLeaf() {
+			while (position < end) {
+				boolean included = position < includeAllUntil;
+				if (!included && (position > start || filterStart)) {
+					EnvelopFilterResult result = filter(position, searchFilter);
+					if (result == EnvelopFilterResult.EXCLUDE_ALL) {
+						position = subtreeEnd[position];
+						continue;
+					}
+					if (result == EnvelopFilterResult.INCLUDE_ALL) {
+						includeAllUntil = subtreeEnd[position];
+						included = true;
+					}
+				}
+				int current = position++;
+				if (isLeaf(current)) {
+					return current << 1 | (included ? 1 : 0);
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * The leaves found by scanning one or more subtrees up front, as done by the tasks of a parallel search.
+	 */
+	private class LeafScan extends LeafSource {
+
+		private int[] leaves = new int[16];
+		private int leafCount = 0;
+		private int next = 0;
+
+		private void addAll(SubtreeScan scan) {
+			for (int leaf = scan.nextLeaf(); leaf >= 0; leaf = scan.nextLeaf()) {
+				if (leafCount == leaves.length) {
+					leaves = Arrays.copyOf(leaves, leafCount * 2);
+				}
+				leaves[leafCount++] = leaf;
+			}
+			indexMatches += scan.indexMatches;
+			indexMisses += scan.indexMisses;
+		}
+
+		@Override
+		int nextLeaf() {
+			return next < leafCount ? leaves[next++] : -1;
+		}
+	}
+
+	/**
+	 * Reads the geometry nodes of the leaves found by one or more sources, in the calling thread.
+	 */
+	private class LeafIterator implements Iterator<Node> {
+
+		private final Transaction tx;
+		private final SearchFilter filter;
+		private final RelationshipType referenceRelationshipType;
+		private final TreeMonitor monitor;
+		private final Iterator<LeafSource> sources;
+		private final ArrayDeque<Node> leafMatches = new ArrayDeque<>();
+		private LeafSource source;
+		private Node next;
+
+		private LeafIterator(Transaction tx, SearchFilter filter, RelationshipType referenceRelationshipType,
+				TreeMonitor monitor, Iterator<LeafSource> sources) {
+			this.tx = tx;
+			this.filter = filter;
+			this.referenceRelationshipType = referenceRelationshipType;
+			this.monitor = monitor;
+			this.sources = sources;
+			prefetch();
+		}
+
+		private void prefetch() {
+			while (leafMatches.isEmpty()) {
+				if (source == null) {
+					if (!sources.hasNext()) {
+						break;
+					}
+					source = sources.next();
+				}
+				int leaf = source.nextLeaf();
+				source.report(monitor);
+				if (leaf < 0) {
+					source = null;
+				} else {
+					visitLeaf(leaf >>> 1, (leaf & 1) == 1);
+				}
+			}
+			next = leafMatches.poll();
+		}
+
+		private void visitLeaf(int position, boolean includeAll) {
+			Node indexNode = tx.getNodeByElementId(elementIds[position]);
+			try (ResourceIterator<Relationship> relationships = indexNode.getRelationships(Direction.OUTGOING,
+					referenceRelationshipType).iterator()) {
+				while (relationships.hasNext()) {
+					Node geomNode = relationships.next().getEndNode();
+					boolean found = includeAll || filter.geometryMatches(tx, geomNode);
+					monitor.addCase(found ? "Geometry Matches" : "Geometry Does NOT Match");
+					if (found) {
+						leafMatches.add(geomNode);
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Node next() {
+			Node node = next;
+			if (node == null) {
+				throw new NoSuchElementException();
+			}
+			prefetch();
+			return node;
+		}
+	}
+}
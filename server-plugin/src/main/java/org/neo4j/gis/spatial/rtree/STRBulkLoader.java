@@ -0,0 +1,535 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.gis.spatial.rtree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.logging.Logger;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.spatial.api.Envelope;
+
+/**
+ * Builds an RTreeIndex from scratch using the Sort-Tile-Recursive algorithm from "STR: A Simple and Efficient
+ * Algorithm for R-Tree Packing" by S. Leutenegger, M. Lopez and J. Edgington.
+ * <p>
+ * Unlike RTreeIndex.add, which keeps all envelopes on the heap and writes the whole tree in the caller's
+ * transaction, this loader works in bounded memory and commits its own transactions. Envelopes are sorted
+ * externally, spilling sorted runs to temporary files when more than maxEntriesInMemory have been collected, and
+ * the tree is written one level at a time, from the leaves up, committing every batchSize entries. Only a single
+ * vertical slice of one level is held in memory at any time.
+ * <p>
+ * The index must be empty and writable, and the geometry nodes must not already be in another RTree. If loading
+ * fails part-way, the index nodes already committed are removed again, leaving the index empty.
+ */
+public class STRBulkLoader {
+
+	private static final Logger LOGGER = Logger.getLogger(STRBulkLoader.class.getName());
+
+	public static final int DEFAULT_BATCH_SIZE = 10000;
+	public static final int DEFAULT_MAX_ENTRIES_IN_MEMORY = 1000000;
+	public static final double DEFAULT_LOADING_FACTOR = 0.7;
+
+	private final GraphDatabaseService database;
+	private final RTreeIndex index;
+	private final int batchSize;
+	private final int maxEntriesInMemory;
+	private final double loadingFactor;
+	private final Path tempDirectory;
+
+	public STRBulkLoader(GraphDatabaseService database, RTreeIndex index) {
+		this(database, index, DEFAULT_BATCH_SIZE, DEFAULT_MAX_ENTRIES_IN_MEMORY, DEFAULT_LOADING_FACTOR, null);
+	}
+
+	/**
+	 * @param loadingFactor  how full to make each index node, between 0.1 and 1. Use 1 for trees that will not be
+	 *                       added to afterwards, and lower values to leave room for subsequent inserts.
+	 * @param tempDirectory  where to spill sorted runs, or null to use the default temporary-file directory
+	 */
+	public STRBulkLoader(GraphDatabaseService database, RTreeIndex index, int batchSize, int maxEntriesInMemory,
+			double loadingFactor, Path tempDirectory) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least one: " + batchSize);
+		}
+		if (loadingFactor < 0.1 || loadingFactor > 1.0) {
+			throw new IllegalArgumentException("Loading factor must be between 0.1 and 1: " + loadingFactor);
+		}
+		this.database = database;
+		this.index = index;
+		this.batchSize = batchSize;
+		this.maxEntriesInMemory = Math.max(maxEntriesInMemory, 1000);
+		this.loadingFactor = loadingFactor;
+		this.tempDirectory = tempDirectory;
+	}
+
+	/**
+	 * Index all the geometry nodes with the given element ids.
+	 *
+	 * @return the number of geometry nodes indexed
+	 */
+	public int load(Iterable<String> geomNodeIds) {
+		int nodeCapacity;
+		try (Transaction tx = database.beginTx()) {
+			index.checkWritable();
+			if (!index.isEmpty(tx)) {
+				throw new IllegalStateException("STR bulk loading requires an empty RTree index");
+			}
+			nodeCapacity = Math.max(2, (int) Math.round(index.getMaxNodeReferences() * loadingFactor));
+			tx.commit();
+		}
+		try (ExternalSorter sorter = decodeEnvelopes(geomNodeIds); CreatedNodes created = new CreatedNodes()) {
+			int geometryCount = (int) sorter.size();
+			try {
+				buildLevels(sorter, nodeCapacity, created);
+				try (Transaction tx = database.beginTx()) {
+					index.finishBulkLoad(tx, geometryCount);
+					tx.commit();
+				}
+			} catch (IOException | RuntimeException e) {
+				removeCreatedNodes(created, e);
+				throw e;
+			}
+			return geometryCount;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to bulk load RTree index: " + e.getMessage(), e);
+		}
+	}
+
+	private ExternalSorter decodeEnvelopes(Iterable<String> geomNodeIds) throws IOException {
+		ExternalSorter sorter = new ExternalSorter(CENTER_X);
+		try (Batch batch = new Batch()) {
+			for (String geomNodeId : geomNodeIds) {
+				Node geomNode = batch.tx().getNodeByElementId(geomNodeId);
+				Envelope envelope = index.getEnvelopeDecoder().decodeEnvelope(geomNode);
+				sorter.add(new Entry(envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY(),
+						geomNodeId));
+				batch.worked();
+			}
+			batch.commit();
+		} catch (IOException | RuntimeException e) {
+			sorter.close();
+			throw e;
+		}
+		return sorter;
+	}
+
+	/**
+	 * Pack one level at a time, starting with the geometries, until the remaining entries fit in the index root.
+	 * Each level is sorted by the x-coordinate of the entry centers and cut into vertical slices, each slice is
+	 * sorted by the y-coordinate and cut into index nodes, and the envelopes of these index nodes form the next
+	 * level.
+	 */
+	private void buildLevels(ExternalSorter level, int nodeCapacity, CreatedNodes created) throws IOException {
+		RelationshipType childType = index.getReferenceRelationshipType();
+		int depth = 0;
+		while (level.size() > nodeCapacity) {
+			long entryCount = level.size();
+			long leafCount = (entryCount + nodeCapacity - 1) / nodeCapacity;
+			int sliceCount = (int) Math.ceil(Math.sqrt(leafCount));
+			long sliceSize = (long) sliceCount * nodeCapacity;
+			LOGGER.fine(() -> "Packing " + entryCount + " entries into " + leafCount + " index nodes");
+			ExternalSorter nextLevel = new ExternalSorter(CENTER_X);
+			try (Batch batch = new Batch(); EntryReader reader = level.sorted()) {
+				List<Entry> slice = new ArrayList<>((int) Math.min(sliceSize, maxEntriesInMemory));
+				while (reader.hasNext()) {
+					slice.add(reader.next());
+					if (slice.size() == sliceSize || !reader.hasNext()) {
+						slice.sort(CENTER_Y);
+						for (int start = 0; start < slice.size(); start += nodeCapacity) {
+							List<Entry> children = slice.subList(start, Math.min(start + nodeCapacity, slice.size()));
+							nextLevel.add(writeIndexNode(batch.tx(), children, childType, created));
+							batch.worked(children.size());
+						}
+						slice.clear();
+					}
+				}
+				batch.commit();
+			} catch (IOException | RuntimeException e) {
+				nextLevel.close();
+				throw e;
+			} finally {
+				level.close();
+			}
+			level = nextLevel;
+			childType = RTreeRelationshipTypes.RTREE_CHILD;
+			depth++;
+		}
+		try (Transaction tx = database.beginTx(); EntryReader reader = level.sorted()) {
+			Node indexRoot = index.getIndexRoot(tx);
+			List<Entry> children = new ArrayList<>(nodeCapacity);
+			while (reader.hasNext()) {
+				children.add(reader.next());
+			}
+			if (!children.isEmpty()) {
+				linkChildren(tx, indexRoot, children, childType);
+			}
+			tx.commit();
+		} finally {
+			level.close();
+		}
+		LOGGER.fine("Built RTree with " + (depth + 1) + " levels of index nodes");
+	}
+
+	private static Entry writeIndexNode(Transaction tx, List<Entry> children, RelationshipType childType,
+			CreatedNodes created) throws IOException {
+		Node indexNode = tx.createNode();
+		created.add(indexNode.getElementId());
+		double[] bbox = linkChildren(tx, indexNode, children, childType);
+		return new Entry(bbox[0], bbox[1], bbox[2], bbox[3], indexNode.getElementId());
+	}
+
+	private static double[] linkChildren(Transaction tx, Node indexNode, List<Entry> children,
+			RelationshipType childType) {
+		double[] bbox = new double[]{Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+		for (Entry child : children) {
+			indexNode.createRelationshipTo(tx.getNodeByElementId(child.id), childType);
+			bbox[0] = Math.min(bbox[0], child.minX);
+			bbox[1] = Math.min(bbox[1], child.minY);
+			bbox[2] = Math.max(bbox[2], child.maxX);
+			bbox[3] = Math.max(bbox[3], child.maxY);
+		}
+		indexNode.setProperty(RTreeIndex.INDEX_PROP_BBOX, bbox);
+		return bbox;
+	}
+
+	/**
+	 * Undo a failed load by deleting every index node written so far, together with its relationships to the
+	 * index root, to other index nodes and to the geometry nodes. Index nodes from the batch that failed were
+	 * never committed and are skipped. A failure while cleaning up is added to the original failure.
+	 */
+	private void removeCreatedNodes(CreatedNodes created, Exception failure) {
+		int removed = 0;
+		try (Batch batch = new Batch(); DataInputStream in = created.read()) {
+			for (String id = readId(in); id != null; id = readId(in)) {
+				Node indexNode;
+				try {
+					indexNode = batch.tx().getNodeByElementId(id);
+				} catch (NotFoundException e) {
+					continue;
+				}
+				int deleted = 0;
+				try (var relationships = indexNode.getRelationships()) {
+					for (Relationship rel : relationships) {
+						rel.delete();
+						deleted++;
+					}
+				}
+				indexNode.delete();
+				batch.worked(deleted + 1);
+				removed++;
+			}
+			batch.commit();
+		} catch (IOException | RuntimeException e) {
+			failure.addSuppressed(e);
+		}
+		int count = removed;
+		LOGGER.fine(() -> "Removed " + count + " index nodes after failing to bulk load RTree");
+	}
+
+	private static String readId(DataInputStream in) throws IOException {
+		try {
+			return in.readUTF();
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * The element ids of all index nodes created by a load, kept in a temporary file rather than on the heap so
+	 * that they can be removed again if the load fails.
+	 */
+	private class CreatedNodes implements Closeable {
+
+		private final Path file;
+		private final DataOutputStream out;
+
+		private CreatedNodes() throws IOException {
+			file = tempDirectory == null ?
+					Files.createTempFile("rtree-str-", ".nodes") :
+					Files.createTempFile(tempDirectory, "rtree-str-", ".nodes");
+			out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+		}
+
+		private void add(String id) throws IOException {
+			out.writeUTF(id);
+		}
+
+		private DataInputStream read() throws IOException {
+			out.flush();
+			return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				out.close();
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	/**
+	 * A transaction that is committed and replaced after every batchSize units of work. Work done since the last
+	 * batch boundary is only committed by an explicit call to commit.
+	 */
+	private class Batch implements AutoCloseable {
+
+		private Transaction tx = database.beginTx();
+		private int worked = 0;
+
+		private Transaction tx() {
+			return tx;
+		}
+
+		private void worked() {
+			worked(1);
+		}
+
+		private void worked(int units) {
+			worked += units;
+			if (worked >= batchSize) {
+				tx.commit();
+				tx.close();
+				tx = database.beginTx();
+				worked = 0;
+			}
+		}
+
+		private void commit() {
+			tx.commit();
+		}
+
+		@Override
+		public void close() {
+			tx.close();
+		}
+	}
+
+	private record Entry(double minX, double minY, double maxX, double maxY, String id) {
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeDouble(minX);
+			out.writeDouble(minY);
+			out.writeDouble(maxX);
+			out.writeDouble(maxY);
+			out.writeUTF(id);
+		}
+
+		private static Entry read(DataInputStream in) throws IOException {
+			double minX;
+			try {
+				minX = in.readDouble();
+			} catch (EOFException e) {
+				return null;
+			}
+			return new Entry(minX, in.readDouble(), in.readDouble(), in.readDouble(), in.readUTF());
+		}
+	}
+
+	private static final Comparator<Entry> CENTER_X = Comparator.comparingDouble(e -> e.minX + e.maxX);
+	private static final Comparator<Entry> CENTER_Y = Comparator.comparingDouble(e -> e.minY + e.maxY);
+
+	private interface EntryReader extends Closeable {
+
+		boolean hasNext() throws IOException;
+
+		Entry next() throws IOException;
+	}
+
+	/**
+	 * Sorts entries in bounded memory. Entries are buffered until maxEntriesInMemory is reached, at which point
+	 * the buffer is sorted and written to a temporary file as a run. Reading the sorted entries merges all runs
+	 * with the remaining buffer.
+	 */
+	private class ExternalSorter implements Closeable {
+
+		private final Comparator<Entry> comparator;
+		private final List<Path> runs = new ArrayList<>();
+		private List<Entry> buffer = new ArrayList<>();
+		private long size = 0;
+
+		private ExternalSorter(Comparator<Entry> comparator) {
+			this.comparator = comparator;
+		}
+
+		private long size() {
+			return size;
+		}
+
+		private void add(Entry entry) throws IOException {
+			buffer.add(entry);
+			size++;
+			if (buffer.size() >= maxEntriesInMemory) {
+				spill();
+			}
+		}
+
+		private void spill() throws IOException {
+			buffer.sort(comparator);
+			Path run = tempDirectory == null ?
+					Files.createTempFile("rtree-str-", ".run") :
+					Files.createTempFile(tempDirectory, "rtree-str-", ".run");
+			runs.add(run);
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+				for (Entry entry : buffer) {
+					entry.write(out);
+				}
+			}
+			buffer = new ArrayList<>();
+		}
+
+		private EntryReader sorted() throws IOException {
+			buffer.sort(comparator);
+			List<EntryReader> sources = new ArrayList<>(runs.size() + 1);
+			try {
+				for (Path run : runs) {
+					sources.add(new RunReader(run));
+				}
+			} catch (IOException e) {
+				for (EntryReader source : sources) {
+					source.close();
+				}
+				throw e;
+			}
+			sources.add(new BufferReader(buffer));
+			return sources.size() == 1 ? sources.get(0) : new MergingReader(sources, comparator);
+		}
+
+		@Override
+		public void close() throws IOException {
+			buffer = new ArrayList<>();
+			for (Path run : runs) {
+				Files.deleteIfExists(run);
+			}
+			runs.clear();
+		}
+	}
+
+	private static class BufferReader implements EntryReader {
+
+		private final List<Entry> entries;
+		private int position = 0;
+
+		private BufferReader(List<Entry> entries) {
+			this.entries = entries;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return position < entries.size();
+		}
+
+		@Override
+		public Entry next() {
+			return entries.get(position++);
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static class RunReader implements EntryReader {
+
+		private final DataInputStream in;
+		private Entry next;
+
+		private RunReader(Path run) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+			this.next = Entry.read(in);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Entry next() throws IOException {
+			Entry entry = next;
+			next = Entry.read(in);
+			return entry;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	private static class MergingReader implements EntryReader {
+
+		private record Head(Entry entry, EntryReader source) {
+
+		}
+
+		private final List<EntryReader> sources;
+		private final PriorityQueue<Head> heads;
+
+		private MergingReader(List<EntryReader> sources, Comparator<Entry> comparator) throws IOException {
+			this.sources = sources;
+			this.heads = new PriorityQueue<>(sources.size(), Comparator.comparing(Head::entry, comparator));
+			for (EntryReader source : sources) {
+				if (source.hasNext()) {
+					heads.add(new Head(source.next(), source));
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !heads.isEmpty();
+		}
+
+		@Override
+		public Entry next() throws IOException {
+			Head head = heads.poll();
+			if (head.source.hasNext()) {
+				heads.add(new Head(head.source.next(), head.source));
+			}
+			return head.entry;
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (EntryReader source : sources) {
+				source.close();
+			}
+		}
+	}
+}
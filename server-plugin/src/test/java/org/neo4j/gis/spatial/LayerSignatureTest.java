@@ -87,6 +87,13 @@ public class LayerSignatureTest extends Neo4jTestCase {
 				tx -> spatial.getOrCreateEditableLayer(tx, "test", "wkt", "wkt", null, true));
 	}
 
+	@Test
+	public void testCompactLayer() {
+		testLayerSignature(
+				"EditableLayer(name='test', encoder=CompactGeometryEncoder(geom='geometry', bbox='bbox', precision=7))",
+				tx -> spatial.getOrCreateEditableLayer(tx, "test", "compact", "geometry:bbox:7", null, true));
+	}
+
 	// TODO this is duplicated code
 	private Layer testLayerSignature(String signature, Function<Transaction, Layer> layerMaker) {
 		Layer layer;
@@ -20,10 +20,12 @@
 package org.neo4j.gis.spatial;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,11 +35,18 @@ import org.junit.jupiter.api.Test;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.CoordinateList;
 import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
 import org.neo4j.gis.spatial.encoders.NativePointEncoder;
 import org.neo4j.gis.spatial.encoders.SimpleGraphEncoder;
 import org.neo4j.gis.spatial.encoders.SimplePointEncoder;
 import org.neo4j.gis.spatial.encoders.SimplePropertyEncoder;
+import org.neo4j.gis.spatial.filter.AbstractSearchIntersection;
+import org.neo4j.gis.spatial.filter.SearchIntersect;
+import org.neo4j.gis.spatial.filter.SearchWithin;
 import org.neo4j.gis.spatial.functions.SpatialFunctions;
 import org.neo4j.gis.spatial.index.IndexManagerImpl;
 import org.neo4j.gis.spatial.index.LayerGeohashPointIndex;
@@ -218,6 +227,92 @@ public class LayersTest extends Neo4jTestCase {
 		}
 	}
 
+	@Test
+	public void testCompactGeometryLayer() throws ParseException {
+		SpatialDatabaseService spatial = new SpatialDatabaseService(
+				new IndexManagerImpl((GraphDatabaseAPI) graphDb(), SecurityContext.AUTH_DISABLED));
+		WKTReader reader = new WKTReader();
+		List<Geometry> geometries = List.of(
+				reader.read("POINT (15.3 56.2)"),
+				reader.read("LINESTRING (15.3 56.2, 15.30001 56.20002, -16.5 57)"),
+				reader.read("POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 2 3, 3 3, 2 2))"),
+				reader.read("MULTIPOINT ((1 2), (-3 -4))"),
+				reader.read("MULTILINESTRING ((0 0, 1 1), (-1.5 -2.25, -180 90))"),
+				reader.read("MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))"));
+		List<String> exact = new ArrayList<>();
+		List<String> preset = new ArrayList<>();
+		List<String> rounded = new ArrayList<>();
+		inTx(tx -> {
+			EditableLayer exactLayer = spatial.getOrCreateEditableLayer(tx, "exact", "compact", "geometry:bbox:-1",
+					null, false);
+			EditableLayer presetLayer = (EditableLayer) spatial.getOrCreateRegisteredTypeLayer(tx, "preset",
+					"Compact", null, null, false);
+			EditableLayer roundedLayer = spatial.getOrCreateEditableLayer(tx, "rounded", "compact",
+					"geometry:bbox:3", null, false);
+			for (Geometry geometry : geometries) {
+				exact.add(exactLayer.add(tx, geometry).getGeomNode().getElementId());
+				preset.add(presetLayer.add(tx, geometry).getGeomNode().getElementId());
+				rounded.add(roundedLayer.add(tx, geometry).getGeomNode().getElementId());
+			}
+		});
+		inTx(tx -> {
+			GeometryEncoder exactEncoder = spatial.getLayer(tx, "exact", true).getGeometryEncoder();
+			GeometryEncoder presetEncoder = spatial.getLayer(tx, "preset", true).getGeometryEncoder();
+			GeometryEncoder roundedEncoder = spatial.getLayer(tx, "rounded", true).getGeometryEncoder();
+			WKBWriter wkbWriter = new WKBWriter();
+			for (int i = 0; i < geometries.size(); i++) {
+				Geometry geometry = geometries.get(i);
+				Geometry decoded = exactEncoder.decodeGeometry(tx.getNodeByElementId(exact.get(i)));
+				assertTrue(geometry.equalsExact(decoded), "Expected " + geometry + " but got " + decoded);
+				Node presetNode = tx.getNodeByElementId(preset.get(i));
+				decoded = presetEncoder.decodeGeometry(presetNode);
+				assertTrue(geometry.equalsExact(decoded, 1e-7), "Expected " + geometry + " but got " + decoded);
+				// the default precision of 7 digits must take less space than WKB
+				int compactSize = ((byte[]) presetNode.getProperty("geometry")).length;
+				int wkbSize = wkbWriter.write(geometry).length;
+				assertThat("Size of " + geometry, compactSize, lessThan(wkbSize));
+				decoded = roundedEncoder.decodeGeometry(tx.getNodeByElementId(rounded.get(i)));
+				assertTrue(geometry.equalsExact(decoded, 0.001), "Expected " + geometry + " but got " + decoded);
+			}
+		});
+	}
+
+	@Test
+	public void testTwoPhaseSearchFilters() throws ParseException {
+		SpatialDatabaseService spatial = new SpatialDatabaseService(
+				new IndexManagerImpl((GraphDatabaseAPI) graphDb(), SecurityContext.AUTH_DISABLED));
+		// an L shaped polygon, whose envelope also covers the empty square at its top right
+		Geometry polygon = new WKTReader().read("POLYGON ((0 0, 10 0, 10 5, 5 5, 5 10, 0 10, 0 0))");
+		List<Geometry> lines = new ArrayList<>();
+		inTx(tx -> {
+			EditableLayer layer = spatial.getOrCreateEditableLayer(tx, "lines", "wkb", "geometry", null, false);
+			Random random = new Random(42);
+			for (int i = 0; i < 200; i++) {
+				double x = random.nextDouble() * 12 - 1;
+				double y = random.nextDouble() * 12 - 1;
+				LineString line = layer.getGeometryFactory().createLineString(new Coordinate[]{
+						new Coordinate(x, y), new Coordinate(x + random.nextDouble(), y + random.nextDouble())});
+				lines.add(line);
+				layer.add(tx, line);
+			}
+		});
+		try (Transaction tx = graphDb().beginTx()) {
+			Layer layer = spatial.getLayer(tx, "lines", true);
+			SearchIntersect intersect = new SearchIntersect(layer, polygon);
+			SearchWithin within = new SearchWithin(layer, polygon);
+			long intersecting = GeoPipeline.start(tx, layer, intersect).count();
+			long inside = GeoPipeline.start(tx, layer, within).count();
+			assertEquals(lines.stream().filter(polygon::intersects).count(), intersecting);
+			assertEquals(lines.stream().filter(line -> line.within(polygon)).count(), inside);
+			for (AbstractSearchIntersection filter : List.of(intersect, within)) {
+				assertTrue(filter.getEnvelopeMatches() > 0, "Some envelopes should be inside the polygon");
+				assertTrue(filter.getEnvelopeRejections() > 0, "Some envelopes should be disjoint from the polygon");
+				assertTrue(filter.getGeometryTests() > 0, "Some envelopes should cross the polygon boundary");
+			}
+			tx.commit();
+		}
+	}
+
 	@Test
 	public void testSnapToLine() {
 		SpatialDatabaseService spatial = new SpatialDatabaseService(
@@ -25,7 +25,9 @@ import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.neo4j.configuration.GraphDatabaseSettings.DEFAULT_DATABASE_NAME;
 import static org.neo4j.gis.spatial.rtree.RTreeIndex.DEFAULT_MAX_NODE_REFERENCES;
@@ -37,6 +39,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -74,11 +77,14 @@ import org.neo4j.gis.spatial.rtree.RTreeImageExporter;
 import org.neo4j.gis.spatial.rtree.RTreeIndex;
 import org.neo4j.gis.spatial.rtree.RTreeMonitor;
 import org.neo4j.gis.spatial.rtree.RTreeRelationshipTypes;
+import org.neo4j.gis.spatial.rtree.STRBulkLoader;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.ResourceIterable;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
@@ -816,6 +822,86 @@ public class RTreeBulkInsertTest {
 		insertManyNodesInBulk(RTreeIndex.GREENES_SPLIT, 5000, 100, testConfigs.get("large"));
 	}
 
+	/*
+	 * STR bulk loading, to compare with the seeded clustering used by the InBulk tests above
+	 */
+
+	@Test
+	public void shouldLoadManyNodesWithSTR_small_100() {
+		loadManyNodesWithSTR(100, testConfigs.get("small"));
+	}
+
+	@Test
+	public void shouldLoadManyNodesWithSTR_medium_100() {
+		loadManyNodesWithSTR(100, testConfigs.get("medium"));
+	}
+
+	@Disabled // takes too long, change to @Test when benchmarking
+	@Test
+	public void shouldLoadManyNodesWithSTR_large_100() {
+		loadManyNodesWithSTR(100, testConfigs.get("large"));
+	}
+
+	@Test
+	public void shouldRemoveIndexNodesWhenSTRLoadFails() {
+		EditableLayer layer = getOrCreateSimplePointLayer("Coordinates", "rtree", "lon", "lat");
+		List<String> nodes = new ArrayList<>();
+		try (Transaction tx = db.beginTx()) {
+			for (int i = 0; i < 500; i++) {
+				Node node = tx.createNode();
+				node.setProperty("lon", (double) i);
+				node.setProperty("lat", 0.0);
+				nodes.add(node.getElementId());
+			}
+			tx.commit();
+		}
+		long nodeCount = countNodes();
+		// Delete the node with the largest x-coordinate once all envelopes have been read, so that the loader fails
+		// while writing the last leaf, after the leaves before it have been committed.
+		String deletedId = nodes.get(nodes.size() - 1);
+		Iterable<String> geomNodeIds = () -> new Iterator<>() {
+			private final Iterator<String> ids = nodes.iterator();
+
+			@Override
+			public boolean hasNext() {
+				if (ids.hasNext()) {
+					return true;
+				}
+				try (Transaction tx = db.beginTx()) {
+					tx.getNodeByElementId(deletedId).delete();
+					tx.commit();
+				}
+				return false;
+			}
+
+			@Override
+			public String next() {
+				return ids.next();
+			}
+		};
+		STRBulkLoader loader = new STRBulkLoader(db, (RTreeIndex) layer.getIndex(), 10,
+				STRBulkLoader.DEFAULT_MAX_ENTRIES_IN_MEMORY, STRBulkLoader.DEFAULT_LOADING_FACTOR, null);
+		assertThrows(NotFoundException.class, () -> loader.load(geomNodeIds));
+
+		assertEquals(nodeCount - 1, countNodes(), "Expected all index nodes written by the failed load to be removed");
+		try (Transaction tx = db.beginTx()) {
+			assertTrue(layer.getIndex().isEmpty(tx));
+			try (ResourceIterable<Relationship> relationships = tx.getAllRelationships()) {
+				for (Relationship rel : relationships) {
+					assertNotEquals(RTreeRelationshipTypes.RTREE_REFERENCE.name(), rel.getType().name());
+					assertNotEquals(RTreeRelationshipTypes.RTREE_CHILD.name(), rel.getType().name());
+				}
+			}
+			tx.commit();
+		}
+	}
+
+	private long countNodes() {
+		try (Transaction tx = db.beginTx(); ResourceIterable<Node> nodes = tx.getAllNodes()) {
+			return nodes.stream().count();
+		}
+	}
+
 	/*
 	 * Private methods used by the above tests
 	 */
@@ -1043,6 +1129,28 @@ public class RTreeBulkInsertTest {
 		}
 	}
 
+	private void loadManyNodesWithSTR(int maxNodeReferences, IndexTestConfig config) {
+		IndexMaker indexMaker = new RTreeIndexMaker("Coordinates", RTreeIndex.GREENES_SPLIT, "STR", maxNodeReferences,
+				config);
+		TestStats stats = indexMaker.initStats(STRBulkLoader.DEFAULT_BATCH_SIZE);
+		EditableLayer layer = setupLayer(indexMaker);
+		RTreeMonitor monitor = new RTreeMonitor();
+		layer.getIndex().addMonitor(monitor);
+		long start = System.currentTimeMillis();
+		// Keep few entries in memory so that the sorting spills to disk even for the smaller data sets
+		STRBulkLoader loader = new STRBulkLoader(db, (RTreeIndex) layer.getIndex(), STRBulkLoader.DEFAULT_BATCH_SIZE,
+				(int) (config.totalCount / 5), STRBulkLoader.DEFAULT_LOADING_FACTOR, null);
+		int loaded = loader.load(indexMaker.nodes());
+		System.out.println(
+				"Took " + (System.currentTimeMillis() - start) + "ms to load " + loaded + " nodes to RTree using STR");
+		assertEquals(config.totalCount, loaded);
+		stats.setInsertTime(start);
+
+		monitor.reset();
+		queryRTree(layer, monitor, stats);
+		indexMaker.verifyStructure();
+	}
+
 	/*
 	 * Run this manually to generate images of RTree that can be used for animation.
 	 * ffmpeg -f image2 -r 12 -i rtree-single/rtree-%d.png -r 12 -s 1280x960 rtree-single2_12fps.mp4
@@ -192,6 +192,15 @@ public class TestSimplePointLayer extends Neo4jTestCase {
 			assertEquals(30, results.size());
 			checkPointOrder(results);
 
+			List<GeoPipeFlow> closest = GeoPipeline
+					.startNearestNeighborLatLonSearch(tx, layer, new Coordinate(centre[0] + 0.1, centre[1]), 5.0)
+					.sort(OrthodromicDistance.DISTANCE).limit(5).stream().toList();
+			assertEquals(5, closest.size());
+			checkPointOrder(closest);
+			for (int i = 0; i < closest.size(); i++) {
+				assertEquals(results.get(i).getId(), closest.get(i).getId());
+			}
+
 			// Now test the old API
 			results = layer.findClosestPointsTo(tx, new Coordinate(centre[0] + 0.1, centre[1]), 10.0);
 			assertEquals(71, results.size());
@@ -22,17 +22,23 @@ package org.neo4j.gis.spatial;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.List;
+import java.util.Random;
 import java.util.logging.Logger;
 import org.hamcrest.MatcherAssert;
 import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
 import org.neo4j.gis.spatial.functions.SpatialFunctions;
 import org.neo4j.gis.spatial.index.IndexManagerImpl;
+import org.neo4j.gis.spatial.pipes.AbstractGeoPipe;
+import org.neo4j.gis.spatial.pipes.GeoPipeFlow;
 import org.neo4j.gis.spatial.pipes.GeoPipeline;
 import org.neo4j.gis.spatial.procedures.SpatialProcedures;
 import org.neo4j.graphdb.Transaction;
@@ -161,4 +167,81 @@ public class TestSpatialQueries extends Neo4jTestCase {
 			tx.commit();
 		}
 	}
+
+	@Test
+	public void testSortWithLimitOrSpillMatchesFullSort() {
+		String layerName = "sorted";
+		SpatialDatabaseService spatial = new SpatialDatabaseService(
+				new IndexManagerImpl((GraphDatabaseAPI) graphDb(), SecurityContext.AUTH_DISABLED));
+		try (Transaction tx = graphDb().beginTx()) {
+			EditableLayer layer = spatial.getOrCreateEditableLayer(tx, layerName, "WKT", null, false);
+			GeometryFactory factory = layer.getGeometryFactory();
+			for (int i = 0; i < 50; i++) {
+				// every location occurs twice, to check that equal items keep their order
+				layer.add(tx, factory.createPoint(new Coordinate(16.0 + (i / 2) * 0.01, 48.0)));
+			}
+			layer.finalizeTransaction(tx);
+			tx.commit();
+		}
+
+		Coordinate origin = new Coordinate(16.0, 48.0);
+		try (Transaction tx = graphDb().beginTx()) {
+			Layer layer = spatial.getLayer(tx, layerName, true);
+			List<String> all = ids(GeoPipeline.startNearestNeighborSearch(tx, layer, origin, 1.0)
+					.sort("Distance"));
+			assertEquals(50, all.size());
+			assertEquals(all.subList(0, 10), ids(GeoPipeline.startNearestNeighborSearch(tx, layer, origin, 1.0)
+					.sort("Distance")
+					.range(0, 9)));
+			assertEquals(all.subList(5, 10), ids(GeoPipeline.startNearestNeighborSearch(tx, layer, origin, 1.0)
+					.sort("Distance")
+					.range(5, 9)));
+			assertEquals(all, ids(GeoPipeline.startNearestNeighborSearch(tx, layer, origin, 1.0)
+					.sort(tx, "Distance", true, 7)));
+			GeoPipeline unserializable = GeoPipeline.startNearestNeighborSearch(tx, layer, origin, 1.0)
+					.addPipe(new AbstractGeoPipe() {
+						@Override
+						protected GeoPipeFlow process(GeoPipeFlow flow) {
+							flow.getProperties().put("lock", new Object());
+							return flow;
+						}
+					})
+					.sort(tx, "Distance", true, 7);
+			assertThrows(IllegalArgumentException.class, unserializable::toList);
+			tx.commit();
+		}
+	}
+
+	@Test
+	public void testParallelUnionAllMatchesCascadedUnion() {
+		String layerName = "squares";
+		SpatialDatabaseService spatial = new SpatialDatabaseService(
+				new IndexManagerImpl((GraphDatabaseAPI) graphDb(), SecurityContext.AUTH_DISABLED));
+		try (Transaction tx = graphDb().beginTx()) {
+			EditableLayer layer = spatial.getOrCreateEditableLayer(tx, layerName, "WKB", null, false);
+			GeometryFactory factory = layer.getGeometryFactory();
+			Random random = new Random(42);
+			for (int i = 0; i < 1500; i++) {
+				// whole degree squares, so that every edge intersection is exact whatever order they are united in
+				int x = random.nextInt(60);
+				int y = random.nextInt(60);
+				int size = 2 + random.nextInt(3);
+				layer.add(tx, factory.toGeometry(new Envelope(x, x + size, y, y + size)));
+			}
+			layer.finalizeTransaction(tx);
+			tx.commit();
+		}
+		try (Transaction tx = graphDb().beginTx()) {
+			Layer layer = spatial.getLayer(tx, layerName, true);
+			Geometry cascaded = GeoPipeline.start(tx, layer).unionAll(1).next().getGeometry();
+			Geometry parallel = GeoPipeline.start(tx, layer).unionAll(4).next().getGeometry();
+			MatcherAssert.assertThat(parallel.equalsTopo(cascaded), is(true));
+			assertEquals(cascaded.getArea(), parallel.getArea(), 1e-9);
+			tx.commit();
+		}
+	}
+
+	private static List<String> ids(GeoPipeline pipeline) {
+		return pipeline.toList().stream().map(GeoPipeFlow::getId).toList();
+	}
 }
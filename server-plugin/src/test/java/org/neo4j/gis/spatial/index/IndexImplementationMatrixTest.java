@@ -33,6 +33,7 @@ import static org.neo4j.configuration.GraphDatabaseSettings.DEFAULT_DATABASE_NAM
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -257,6 +258,106 @@ public class IndexImplementationMatrixTest {
 		}
 	}
 
+	@Test
+	public void shouldCountHitsMissesAndSeeksOfPointIndexSearch() throws InterruptedException {
+		if (!(index instanceof ExplicitIndexBackedPointIndex<?> pointIndex)) {
+			return;
+		}
+		// both points lie in the envelope of the triangle, so the index finds both, but only the first is inside it
+		addSimplePoint((SpatialIndexWriter) index, 0.5, 0.5);
+		addSimplePoint((SpatialIndexWriter) index, 1.8, 1.8);
+		Polygon triangle = geometryFactory.createPolygon(new Coordinate[]{
+				new Coordinate(0, 0), new Coordinate(2, 0), new Coordinate(0, 2), new Coordinate(0, 0)});
+		ExplicitIndexBackedMonitor monitor = pointIndex.getMonitor();
+		monitor.reset();
+		try (Transaction tx = graph.beginTx()) {
+			assertThat("Should find one point", countIntersecting(tx, triangle), equalTo(1L));
+			tx.commit();
+		}
+		long seeks = monitor.getSeeks();
+		assertThat("Should count the matching point", monitor.getHits(), equalTo(1L));
+		assertThat("Should count the point outside the triangle", monitor.getMisses(), equalTo(1L));
+		assertThat("Should seek at least one range", seeks > 0, is(true));
+		assertThat(monitor.getHitRatio(), equalTo(0.5));
+
+		// the same search from several threads at once adds up to the same counts per search
+		monitor.reset();
+		int threadCount = 4;
+		int searches = 50;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < threadCount; i++) {
+			threads.add(new Thread(() -> {
+				for (int search = 0; search < searches; search++) {
+					try (Transaction tx = graph.beginTx()) {
+						countIntersecting(tx, triangle);
+						tx.commit();
+					}
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long total = (long) threadCount * searches;
+		assertThat(monitor.getHits(), equalTo(total));
+		assertThat(monitor.getMisses(), equalTo(total));
+		assertThat(monitor.getSeeks(), equalTo(total * seeks));
+
+		monitor.reset();
+		assertThat(monitor.getHits() + monitor.getMisses() + monitor.getSeeks(), equalTo(0L));
+		assertThat(monitor.getHitRatio(), equalTo(1.0));
+	}
+
+	@Test
+	public void shouldSeekOnlyNearSmallGeohashBoxInLargeLayer() {
+		if (!(index instanceof LayerGeohashPointIndex geohashIndex)) {
+			return;
+		}
+		// a one degree grid, with four more points around the origin, inside a box across the equator and the
+		// prime meridian that has no common geohash prefix
+		int total = 0;
+		try (Transaction tx = graph.beginTx()) {
+			for (int x = -20; x <= 20; x++) {
+				for (int y = -20; y <= 20; y++) {
+					addPoint(tx, x, y);
+					total++;
+				}
+			}
+			for (double[] point : new double[][]{{0.25, 0.25}, {-0.25, 0.25}, {0.25, -0.25}, {-0.25, -0.25}}) {
+				addPoint(tx, point[0], point[1]);
+				total++;
+			}
+			tx.commit();
+		}
+		Envelope box = new Envelope(-0.5, 0.5, -0.5, 0.5);
+		ExplicitIndexBackedMonitor monitor = geohashIndex.getMonitor();
+		monitor.reset();
+		try (Transaction tx = graph.beginTx()) {
+			SearchResults results = index.searchIndex(tx, new SearchIntersectWindow(index.getLayer(), box));
+			assertThat("Should find the origin and the four points around it",
+					StreamSupport.stream(results.spliterator(), false).count(), equalTo(5L));
+			tx.commit();
+		}
+		assertThat(monitor.getHits(), equalTo(5L));
+		assertThat("Should seek each covering prefix once", monitor.getSeeks(),
+				equalTo((long) LayerGeohashPointIndex.coveringPrefixes(
+						new org.neo4j.spatial.api.Envelope(box)).size()));
+		assertThat("Should touch a small part of the " + total + " points, not scan the layer",
+				monitor.getHits() + monitor.getMisses() < total / 20, is(true));
+	}
+
+	private void addPoint(Transaction tx, double x, double y) {
+		Node geomNode = tx.createNode();
+		encoder.encodeGeometry(tx, geometryFactory.createPoint(new Coordinate(x, y)), geomNode);
+		((SpatialIndexWriter) index).add(tx, geomNode);
+	}
+
+	private long countIntersecting(Transaction tx, Geometry geometry) {
+		SearchResults results = index.searchIndex(tx, new SearchIntersect(index.getLayer(), geometry));
+		return StreamSupport.stream(results.spliterator(), false).count();
+	}
+
 	private static Polygon makeTestPolygonInSquare(GeometryFactory geometryFactory, int length) {
 		if (length < 4) {
 			throw new IllegalArgumentException("Cannot create letter C in square smaller than 4x4");
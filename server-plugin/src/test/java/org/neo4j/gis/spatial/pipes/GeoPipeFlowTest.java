@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) "Neo4j"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j Spatial.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.gis.spatial.pipes;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.spatial.api.SpatialRecord;
+
+public class GeoPipeFlowTest {
+
+	private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+	/**
+	 * A record with a point geometry and fixed properties, which counts how often its geometry is decoded.
+	 */
+	private static class CountingRecord implements SpatialRecord {
+
+		private final String id;
+		private final Geometry geometry;
+		private final Map<String, Object> properties;
+		private int decoded = 0;
+
+		private CountingRecord(String id, double x, Map<String, Object> properties) {
+			this.id = id;
+			this.geometry = geometryFactory.createPoint(new Coordinate(x, 0.0));
+			this.properties = properties;
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+
+		@Override
+		public Geometry getGeometry() {
+			decoded++;
+			return geometry;
+		}
+
+		@Override
+		public boolean hasProperty(Transaction tx, String name) {
+			return properties.containsKey(name);
+		}
+
+		@Override
+		public Set<String> getPropertyNames(Transaction tx) {
+			return properties.keySet();
+		}
+
+		@Override
+		public Object getProperty(Transaction tx, String name) {
+			return properties.get(name);
+		}
+
+		@Override
+		public Map<String, Object> getProperties(Transaction tx) {
+			return properties;
+		}
+
+		@Override
+		public Node getGeomNode() {
+			return null;
+		}
+	}
+
+	private static List<CountingRecord> makeRecords(int count) {
+		List<CountingRecord> records = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			records.add(new CountingRecord("r" + i, i, Map.of("parity", i % 2 == 0 ? "even" : "odd")));
+		}
+		return records;
+	}
+
+	private static List<String> recordIds(GeoPipeFlow flow) {
+		return flow.getRecords().stream().map(SpatialRecord::getId).toList();
+	}
+
+	@Test
+	public void shouldNotDecodeGeometriesToCountOrFilterByProperty() {
+		List<CountingRecord> records = makeRecords(5);
+		List<SpatialRecord> start = new ArrayList<>(records);
+		assertThat(GeoPipeline.start(null, start).count(), equalTo(5L));
+		assertThat(GeoPipeline.start(null, start)
+				.copyDatabaseRecordProperties(null)
+				.propertyFilter("parity", "even")
+				.count(), equalTo(3L));
+		for (CountingRecord record : records) {
+			assertThat("Should not decode " + record.getId(), record.decoded, equalTo(0));
+		}
+	}
+
+	@Test
+	public void shouldKeepPropertiesOfCloneAndOriginalApart() {
+		CountingRecord record = makeRecords(1).get(0);
+		GeoPipeFlow flow = new GeoPipeFlow(record);
+		flow.getProperties().put("shared", 1);
+		GeoPipeFlow clone = flow.makeClone("clone");
+		clone.getProperties().put("clone", 2);
+		flow.getProperties().put("original", 3);
+		clone.getProperties().put("shared", 4);
+
+		assertThat(flow.getProperties(), equalTo(Map.of("shared", 1, "original", 3)));
+		assertThat(clone.getProperties(), equalTo(Map.of("shared", 4, "clone", 2)));
+		assertThat(record.decoded, equalTo(0));
+	}
+
+	@Test
+	public void shouldNotShareRecordsMergedAfterClone() {
+		List<CountingRecord> records = makeRecords(6);
+		GeoPipeFlow flow = new GeoPipeFlow(records.get(0));
+		flow.merge(new GeoPipeFlow(records.get(1)));
+		GeoPipeFlow clone = flow.makeClone("clone");
+		clone.merge(new GeoPipeFlow(records.get(2)));
+		flow.merge(new GeoPipeFlow(records.get(3)));
+
+		assertThat(recordIds(flow), equalTo(List.of("r0", "r1", "r3")));
+		assertThat(recordIds(clone), equalTo(List.of("r0", "r1", "r2")));
+
+		// a flow without records takes over the records of the first flow merged into it
+		GeoPipeFlow empty = GeoPipeFlow.restore("empty", List.of(), null, Map.of());
+		empty.merge(flow);
+		flow.merge(new GeoPipeFlow(records.get(4)));
+		empty.merge(new GeoPipeFlow(records.get(5)));
+
+		assertThat(recordIds(flow), equalTo(List.of("r0", "r1", "r3", "r4")));
+		assertThat(recordIds(empty), equalTo(List.of("r0", "r1", "r3", "r5")));
+	}
+
+	@Test
+	public void shouldReturnFirstOfChangedRecordsAsRecord() {
+		List<CountingRecord> records = makeRecords(3);
+		GeoPipeFlow flow = new GeoPipeFlow(records.get(0));
+		assertThat(flow.getRecord(), sameInstance(records.get(0)));
+
+		flow.getRecords().add(0, records.get(1));
+		assertThat(flow.getRecord(), sameInstance(flow.getRecords().get(0)));
+		assertThat(flow.getRecord(), sameInstance(records.get(1)));
+		assertThat(flow.getGeometry(), sameInstance(records.get(1).geometry));
+
+		flow.getRecords().set(0, records.get(2));
+		assertThat(flow.getRecord(), sameInstance(records.get(2)));
+
+		flow.getRecords().clear();
+		assertThat(flow.countRecords(), equalTo(0));
+		assertThrows(IndexOutOfBoundsException.class, flow::getRecord);
+
+		flow.merge(new GeoPipeFlow(records.get(0)));
+		assertThat(flow.getRecord(), sameInstance(records.get(0)));
+		assertThat(flow.getRecords(), equalTo(List.of(records.get(0))));
+	}
+}
@@ -19,18 +19,26 @@
  */
 package org.neo4j.gis.spatial.pipes;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.logging.Logger;
+import java.util.stream.StreamSupport;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
 import org.neo4j.gis.spatial.SimplePointLayer;
 import org.neo4j.gis.spatial.SpatialDatabaseRecord;
 import org.neo4j.gis.spatial.SpatialDatabaseService;
+import org.neo4j.gis.spatial.filter.SearchWithin;
 import org.neo4j.gis.spatial.functions.SpatialFunctions;
 import org.neo4j.gis.spatial.index.IndexManagerImpl;
 import org.neo4j.gis.spatial.procedures.SpatialProcedures;
@@ -195,4 +203,67 @@ public class GeoPipesPerformanceTest extends Neo4jTestCase {
 			tx.commit();
 		}
 	}
+
+	@Test
+	public void testPreparedFilterPerformanceOnLargePolygon() {
+		SpatialDatabaseService spatial = new SpatialDatabaseService(
+				new IndexManagerImpl((GraphDatabaseAPI) graphDb(), SecurityContext.AUTH_DISABLED));
+		try (Transaction tx = graphDb().beginTx()) {
+			Layer layer = spatial.getLayer(tx, "GeoPipesPerformanceTest", true);
+			Polygon polygon = makeJaggedPolygon(layer.getGeometryFactory(), new Coordinate(15.0, 15.0), 4.0, 50000);
+			LOGGER.info("Filtering " + records + " points with a polygon of " + polygon.getNumPoints() + " vertices");
+
+			long start = System.currentTimeMillis();
+			int rawCount = 0;
+			GeoPipeline flowList = GeoPipeline.start(tx, layer);
+			while (flowList.hasNext()) {
+				if (flowList.next().getGeometry().within(polygon)) {
+					rawCount++;
+				}
+			}
+			long rawTime = System.currentTimeMillis() - start;
+
+			start = System.currentTimeMillis();
+			long preparedCount = GeoPipeline.start(tx, layer).withinFilter(polygon).count();
+			long preparedTime = System.currentTimeMillis() - start;
+
+			LOGGER.info("\tUnprepared within: " + rawCount + " points in " + rawTime + "ms");
+			LOGGER.info("\tPrepared within:   " + preparedCount + " points in " + preparedTime + "ms");
+			assertEquals(rawCount, preparedCount);
+			tx.commit();
+		}
+	}
+
+	@Test
+	public void testWithinSearchMatchesBBoxProcedure() {
+		SpatialDatabaseService spatial = new SpatialDatabaseService(
+				new IndexManagerImpl((GraphDatabaseAPI) graphDb(), SecurityContext.AUTH_DISABLED));
+		try (Transaction tx = graphDb().beginTx()) {
+			Layer layer = spatial.getLayer(tx, "GeoPipesPerformanceTest", true);
+			Geometry box = layer.getGeometryFactory().toGeometry(new Envelope(12.0, 18.0, 12.0, 18.0));
+			long pipelineCount = GeoPipeline.startWithinSearch(tx, layer, box).stream()
+					.map(GeoPipeFlow::getGeomNode).count();
+			// the path spatial.bbox takes, straight from the index to the nodes
+			long directCount = StreamSupport.stream(
+					layer.getIndex().searchIndex(tx, new SearchWithin(layer, box)).spliterator(), false).count();
+			assertEquals(pipelineCount, directCount);
+			assertEquals(directCount, tx.execute(
+					"CALL spatial.bbox('GeoPipesPerformanceTest',{lon:12.0,lat:12.0},{lon:18.0,lat:18.0})"
+							+ " YIELD node RETURN count(node) AS count").next().get("count"));
+			tx.commit();
+		}
+	}
+
+	private static Polygon makeJaggedPolygon(GeometryFactory factory, Coordinate centre, double radius,
+			int vertices) {
+		Random random = new Random(42);
+		Coordinate[] shell = new Coordinate[vertices + 1];
+		for (int i = 0; i < vertices; i++) {
+			double angle = 2 * Math.PI * i / vertices;
+			double distance = radius * (0.8 + 0.4 * random.nextDouble());
+			shell[i] = new Coordinate(centre.x + distance * Math.cos(angle), centre.y + distance * Math.sin(angle));
+		}
+		shell[vertices] = shell[0];
+		return factory.createPolygon(shell);
+	}
 }
@@ -23,6 +23,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
@@ -40,7 +42,9 @@ import static org.neo4j.gis.spatial.Constants.PROP_LAYER_TYPE;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -51,6 +55,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.neo4j.exceptions.KernelException;
 import org.neo4j.gis.spatial.SpatialDatabaseService;
 import org.neo4j.gis.spatial.SpatialRelationshipTypes;
@@ -216,6 +221,55 @@ public class SpatialProceduresTest extends AbstractApiTest {
 				r -> assertEquals(node, r.get("node")));
 	}
 
+	@Test
+	public void add_nodes_and_search_bbox_and_distance_hilbert_with_index_config() {
+		execute("CALL spatial.addPointLayerHilbert('geom','{\"maxLevels\":16,\"bbox\":[14.0,59.0,16.0,61.0]}')");
+		// the last point is outside the bbox of the curve, and indexed on its border
+		execute("UNWIND [[60.1,15.2],[60.15,15.25],[60.5,15.9],[59.5,14.5],[62.0,17.0]] AS p"
+				+ " CREATE (n:Node {latitude:p[0],longitude:p[1]}) WITH n CALL spatial.addNode('geom',n) YIELD node"
+				+ " RETURN node");
+		assertEquals(2L, execute("CALL spatial.bbox('geom',{lon:15.0,lat:60.0},{lon:15.3, lat:60.2})"));
+		assertEquals(1L, execute("CALL spatial.bbox('geom',{lon:16.5,lat:61.5},{lon:17.5, lat:62.5})"));
+		assertEquals(3L, execute("CALL spatial.withinDistance('geom',{lon:15.5,lat:60.3},50)"));
+		testCall(db, "CALL spatial.getFeatureCount('geom')", r -> assertEquals(5L, r.get("count")));
+
+		Exception exception = assertThrows(QueryExecutionException.class,
+				() -> execute("CALL spatial.addPointLayerHilbert('bad','{\"maxLevels\":40}')"));
+		assertThat(exception.getMessage(), containsString("does not allow maxLevels outside 1 to 30"));
+	}
+
+	@Test
+	public void search_hilbert_layer_in_curve_order() {
+		execute("CALL spatial.addPointLayerHilbert('ordered','{\"orderedSearch\":true,\"rangePolicy\":\"standard\"}')");
+		execute("UNWIND range(0,9) AS x UNWIND range(0,9) AS y"
+				+ " CREATE (n:Node {longitude:15.0 + x * 0.1, latitude:60.0 + y * 0.1})"
+				+ " WITH n CALL spatial.addNode('ordered',n) YIELD node RETURN node");
+		testResult(db, "CALL spatial.bbox('ordered',{lon:15.05,lat:60.05},{lon:15.65, lat:60.45}) YIELD node"
+				+ " RETURN node._spatialindex_hilbert_ordered AS value", res -> {
+			long previous = Long.MIN_VALUE;
+			int count = 0;
+			while (res.hasNext()) {
+				long value = (Long) res.next().get("value");
+				assertThat("Expected results in curve order", value, greaterThanOrEqualTo(previous));
+				previous = value;
+				count++;
+			}
+			assertEquals(24, count);
+		});
+	}
+
+	@Test
+	public void search_geohash_layer_across_equator_and_prime_meridian() {
+		execute("CALL spatial.addPointLayerGeohash('geom')");
+		execute("UNWIND [[0.1,0.1],[-0.1,0.1],[0.1,-0.1],[-0.1,-0.1],[0.0,0.0],[1.0,1.0],[-1.0,-1.0],[45.0,0.05]] AS p"
+				+ " CREATE (n:Node {latitude:p[0],longitude:p[1]}) WITH n CALL spatial.addNode('geom',n) YIELD node"
+				+ " RETURN node");
+		assertEquals(5L, execute("CALL spatial.bbox('geom',{lon:-0.5,lat:-0.5},{lon:0.5, lat:0.5})"));
+		assertEquals(3L, execute("CALL spatial.bbox('geom',{lon:-0.5,lat:-0.05},{lon:0.5, lat:0.5})"));
+		assertEquals(7L, execute("CALL spatial.withinDistance('geom',{lon:0.0,lat:0.0},200)"));
+		assertEquals(8L, execute("CALL spatial.bbox('geom',{lon:-180.0,lat:-90.0},{lon:180.0, lat:90.0})"));
+	}
+
 	@Test
 	// This tests issue https://github.com/neo4j-contrib/spatial/issues/298
 	public void add_node_point_layer_and_search_multiple_points_precision() {
@@ -597,7 +651,7 @@ public class SpatialProceduresTest extends AbstractApiTest {
 			// Convert the result list to a Map keyed by 'id' for an easy lookup
 			Map<String, Map<String, Object>> layerTypes = res.stream()
 					.collect(Collectors.toMap(r -> r.get("id").toString(), r -> r));
-			Assertions.assertThat(layerTypes).hasSize(11);
+			Assertions.assertThat(layerTypes).hasSize(12);
 
 			assertLayerType(layerTypes, "SimplePoint", "SimplePointEncoder", "SimplePointLayer", "rtree",
 					"longitude:latitude");
@@ -607,6 +661,7 @@ public class SpatialProceduresTest extends AbstractApiTest {
 					"geometry");
 			assertLayerType(layerTypes, "WKT", "WKTGeometryEncoder", "EditableLayer", "rtree", "geometry");
 			assertLayerType(layerTypes, "WKB", "WKBGeometryEncoder", "EditableLayer", "rtree", "geometry");
+			assertLayerType(layerTypes, "Compact", "CompactGeometryEncoder", "EditableLayer", "rtree", "geometry");
 			assertLayerType(layerTypes, "Geohash", "SimplePointEncoder", "SimplePointLayer", "geohash",
 					"longitude:latitude");
 			assertLayerType(layerTypes, "ZOrder", "SimplePointEncoder", "SimplePointLayer", "zorder",
@@ -645,6 +700,77 @@ public class SpatialProceduresTest extends AbstractApiTest {
 		testCallFails(db, "CALL spatial.layer('badname')", null, "No such layer 'badname'");
 	}
 
+	@Test
+	public void find_recreated_layer_after_earlier_lookup() {
+		execute("CALL spatial.addPointLayer('geom')");
+		execute("CREATE (n:Node {latitude:60.1,longitude:15.2}) WITH n CALL spatial.addNode('geom',n) YIELD node RETURN node");
+		testCallCount(db, "CALL spatial.bbox('geom',{lon:15.0,lat:60.0},{lon:15.3, lat:61.0})", null, 1);
+		execute("CALL spatial.removeLayer('geom')");
+		testCallFails(db, "CALL spatial.layer('geom')", null, "No such layer 'geom'");
+
+		execute("CALL spatial.addPointLayerXY('geom','lon','lat')");
+		execute("CREATE (n:Node {lat:60.2,lon:15.1}),(m:Node {lat:60.3,lon:15.1}) WITH [n,m] AS nodes CALL spatial.addNodes('geom',nodes) YIELD count RETURN count");
+		testCallCount(db, "CALL spatial.bbox('geom',{lon:15.0,lat:60.0},{lon:15.3, lat:61.0})", null, 2);
+	}
+
+	@Test
+	public void find_nodes_added_after_earlier_lookup() {
+		execute("CALL spatial.addPointLayer('geom')");
+		execute("CREATE (n:Node {latitude:60.1,longitude:15.2}) WITH n CALL spatial.addNode('geom',n) YIELD node RETURN node");
+		testCallCount(db, "CALL spatial.bbox('geom',{lon:15.0,lat:60.0},{lon:15.3, lat:61.0})", null, 1);
+		execute("CREATE (n:Node {latitude:60.2,longitude:15.1}) WITH n CALL spatial.addNode('geom',n) YIELD node RETURN node");
+		testCallCount(db, "CALL spatial.bbox('geom',{lon:15.0,lat:60.0},{lon:15.3, lat:61.0})", null, 2);
+	}
+
+	@Test
+	public void find_layer_settings_changed_after_earlier_lookup() {
+		execute("CALL spatial.addWKTLayer('geom','wkt')");
+		testCallCount(db, "CALL spatial.getFeatureAttributes('geom')", null, 0);
+		execute("CALL spatial.setFeatureAttributes('geom',['name','type'])");
+		testCallCount(db, "CALL spatial.getFeatureAttributes('geom')", null, 2);
+
+		execute("CALL spatial.addPointLayerXY('points','lon','lat')");
+		testCallCount(db, "CALL spatial.bbox('points',{lon:15.0,lat:60.0},{lon:15.3, lat:61.0})", null, 0);
+		execute("MATCH (l:SpatialLayer {layer:'points'}) SET l.geomencoder_config = 'x:y'");
+		execute("CREATE (n:Node {y:60.1,x:15.2}) WITH n CALL spatial.addNode('points',n) YIELD node RETURN node");
+		testCallCount(db, "CALL spatial.bbox('points',{lon:15.0,lat:60.0},{lon:15.3, lat:61.0})", null, 1);
+	}
+
+	@Test
+	public void find_layer_changed_by_concurrent_writer() throws Exception {
+		execute("CALL spatial.addPointLayerXY('geom','lon','lat')");
+		try (Transaction tx = db.beginTx()) {
+			tx.execute("CALL spatial.layer('geom')").accept(v -> true);
+			CompletableFuture.runAsync(() -> execute(
+					"MATCH (l:SpatialLayer {layer:'geom'}) SET l.geomencoder_config = 'x:y'")).get();
+			tx.commit();
+		}
+		execute("CREATE (n:Node {y:60.1,x:15.2}) WITH n CALL spatial.addNode('geom',n) YIELD node RETURN node");
+		testCallCount(db, "CALL spatial.bbox('geom',{lon:15.0,lat:60.0},{lon:15.3, lat:61.0})", null, 1);
+
+		try (Transaction tx = db.beginTx()) {
+			tx.execute("CALL spatial.layer('geom')").accept(v -> true);
+			CompletableFuture.runAsync(() -> execute("CALL spatial.addPointLayer('other')")).get();
+			tx.commit();
+		}
+		testCall(db, "CALL spatial.layer('other')",
+				(r) -> assertEquals("other", ((Node) r.get("node")).getProperty(PROP_LAYER)));
+	}
+
+	@Test
+	public void find_layer_renamed_or_deleted_with_cypher() {
+		execute("CALL spatial.addPointLayer('geom')");
+		execute("CREATE (n:Node {latitude:60.1,longitude:15.2}) WITH n CALL spatial.addNode('geom',n) YIELD node RETURN node");
+		testCallCount(db, "CALL spatial.bbox('geom',{lon:15.0,lat:60.0},{lon:15.3, lat:61.0})", null, 1);
+
+		execute("MATCH (l:SpatialLayer {layer:'geom'}) SET l.layer = 'renamed'");
+		testCallFails(db, "CALL spatial.layer('geom')", null, "No such layer 'geom'");
+		testCallCount(db, "CALL spatial.bbox('renamed',{lon:15.0,lat:60.0},{lon:15.3, lat:61.0})", null, 1);
+
+		execute("MATCH (l:SpatialLayer {layer:'renamed'}) DETACH DELETE l");
+		testCallFails(db, "CALL spatial.layer('renamed')", null, "No such layer 'renamed'");
+	}
+
 	@Test
 	public void add_a_node_to_the_spatial_rtree_index_for_simple_points() {
 		execute("CALL spatial.addPointLayer('geom')");
@@ -888,6 +1014,71 @@ public class SpatialProceduresTest extends AbstractApiTest {
 		testRemoveNode("native_poi", count);
 	}
 
+	@Test
+	public void add_many_nodes_to_a_point_layer_with_cached_index_nodes() {
+		int count = 1000;
+		execute("CALL spatial.addPointLayer('cached_poi','rtree','wgs84','{\"cacheIndexNodes\":true,\"maxNodeReferences\":10}')");
+		String query = """
+				UNWIND range(1,$count) as i
+				CREATE (n:Point {id:i, latitude:(56.0+toFloat(i)/100.0),longitude:(12.0+toFloat(i)/100.0)})
+				WITH collect(n) as points
+				CALL spatial.addNodes('cached_poi',points) YIELD count
+				RETURN count""";
+		testCountQuery("addNodes", query, count, "count", Map.of("count", count));
+		testCountQuery("bbox",
+				"CALL spatial.bbox('cached_poi',{lon:12.0,lat:56.0},{lon:14.005,lat:58.005}) YIELD node RETURN count(node)",
+				200, "count(node)", null);
+		// removing nodes changes the tree, so the cached index nodes must not be used afterwards
+		testRemoveNodes("cached_poi", count);
+		testCountQuery("bbox",
+				"CALL spatial.bbox('cached_poi',{lon:10.0,lat:50.0},{lon:30.0,lat:70.0}) YIELD node RETURN count(node)",
+				count / 2, "count(node)", null);
+	}
+
+	@Test
+	public void add_many_nodes_to_a_point_layer_with_parallel_search() {
+		int count = 1000;
+		execute("CALL spatial.addPointLayer('parallel_poi','rtree','wgs84','{\"searchParallelism\":4,\"orderedSearch\":false,\"maxNodeReferences\":10}')");
+		String query = """
+				UNWIND range(1,$count) as i
+				CREATE (n:Point {id:i, latitude:(56.0+toFloat(i)/100.0),longitude:(12.0+toFloat(i)/100.0)})
+				WITH collect(n) as points
+				CALL spatial.addNodes('parallel_poi',points) YIELD count
+				RETURN count""";
+		testCountQuery("addNodes", query, count, "count", Map.of("count", count));
+		testResult(db,
+				"CALL spatial.bbox('parallel_poi',{lon:12.0,lat:56.0},{lon:14.005,lat:58.005}) YIELD node RETURN node.id AS id ORDER BY id",
+				res -> {
+					for (long id = 1; id <= 200; id++) {
+						assertEquals(id, res.next().get("id"));
+					}
+					assertFalse(res.hasNext());
+				});
+		testRemoveNodes("parallel_poi", count);
+	}
+
+	@Test
+	public void parallel_ordered_search_returns_results_in_sequential_order() {
+		// both layers get the same points in the same order, so they build identical trees
+		execute("CALL spatial.addPointLayer('sequential_poi','rtree','wgs84','{\"cacheIndexNodes\":true,\"maxNodeReferences\":10}')");
+		execute("CALL spatial.addPointLayer('ordered_poi','rtree','wgs84','{\"searchParallelism\":4,\"orderedSearch\":true,\"maxNodeReferences\":10}')");
+		execute("""
+				UNWIND range(1,1000) as i
+				CREATE (n:Point {id:i, latitude:(56.0+toFloat((i * 37) % 1000)/100.0),longitude:(12.0+toFloat(i)/100.0)})
+				WITH collect(n) as points
+				CALL spatial.addNodes('sequential_poi',points) YIELD count
+				CALL spatial.addNodes('ordered_poi',points) YIELD count AS ordered
+				RETURN count""");
+		List<Object> sequential = new ArrayList<>();
+		testResult(db, "CALL spatial.bbox('sequential_poi',{lon:12.5,lat:57.0},{lon:20.0,lat:65.0}) YIELD node"
+				+ " RETURN node.id AS id", res -> res.forEachRemaining(row -> sequential.add(row.get("id"))));
+		List<Object> ordered = new ArrayList<>();
+		testResult(db, "CALL spatial.bbox('ordered_poi',{lon:12.5,lat:57.0},{lon:20.0,lat:65.0}) YIELD node"
+				+ " RETURN node.id AS id", res -> res.forEachRemaining(row -> ordered.add(row.get("id"))));
+		assertThat("Expected the search to match many subtrees", sequential.size(), greaterThan(100));
+		assertEquals(sequential, ordered);
+	}
+
 	private void testRemoveNode(String layer, int count) {
 		// Check all nodes are there
 		testCountQuery("withinDistance",
@@ -1091,6 +1282,134 @@ public class SpatialProceduresTest extends AbstractApiTest {
 		testCallCount(db, "CALL spatial.closest('geom',{lon:15.2, lat:60.1}, 1.0)", null, 0);
 	}
 
+	@Test
+	public void find_nearest_geometries_to_a_point() {
+		execute("CALL spatial.addWKTLayer('geom','wkt')");
+		execute("UNWIND $wkts AS wkt CALL spatial.addWKT('geom',wkt) YIELD node RETURN node",
+				Map.of("wkts", List.of(
+						"POINT (15.2 60.1)", "POINT (15.6 60.1)", "LINESTRING (16.1 60.2, 16.1 61.3)",
+						"POINT (15.3 60.1)", "POINT (20.2 60.1)")));
+		testResult(db, "CALL spatial.nearest('geom',{lon:15.22, lat:60.1}, 3) YIELD node, distance"
+				+ " RETURN node.wkt AS wkt, distance", res -> {
+			assertEquals("POINT (15.2 60.1)", res.next().get("wkt"));
+			assertEquals("POINT (15.3 60.1)", res.next().get("wkt"));
+			Map<String, Object> third = res.next();
+			assertEquals("POINT (15.6 60.1)", third.get("wkt"));
+			assertThat((Double) third.get("distance"), closeTo(0.38, 0.0001));
+			assertFalse(res.hasNext());
+		});
+		testResult(db, "CALL spatial.nearest('geom',{lon:16.2, lat:60.5}, 1) YIELD node, distance"
+				+ " RETURN node.wkt AS wkt, distance", res -> {
+			Map<String, Object> row = res.next();
+			assertEquals("LINESTRING (16.1 60.2, 16.1 61.3)", row.get("wkt"));
+			assertThat((Double) row.get("distance"), closeTo(0.1, 0.0001));
+			assertFalse(res.hasNext());
+		});
+	}
+
+	@Test
+	public void find_nearest_geometries_to_a_point_geohash() {
+		execute("CALL spatial.addLayer('geom','geohash','lon:lat')");
+		execute("UNWIND $wkts AS wkt CALL spatial.addWKT('geom',wkt) YIELD node RETURN node",
+				Map.of("wkts", List.of("POINT (15.2 60.1)", "POINT (15.3 60.1)", "POINT (25.2 30.1)")));
+		testResult(db, "CALL spatial.nearest('geom',{lon:15.31, lat:60.1}, 2) YIELD node, distance"
+				+ " RETURN node.lon AS lon", res -> {
+			assertThat((Double) res.next().get("lon"), closeTo(15.3, 0.0001));
+			assertThat((Double) res.next().get("lon"), closeTo(15.2, 0.0001));
+			assertFalse(res.hasNext());
+		});
+	}
+
+	@Test
+	public void find_geometries_in_many_boxes_and_distances_at_once() {
+		execute("CALL spatial.addWKTLayer('geom','wkt')");
+		execute("UNWIND $wkts AS wkt CALL spatial.addWKT('geom',wkt) YIELD node RETURN node",
+				Map.of("wkts", List.of("POINT (15.2 60.1)", "POINT (15.3 60.1)", "POINT (25.2 30.1)",
+						"LINESTRING (15.1 60.05, 15.25 60.15)")));
+		testResult(db, "CALL spatial.bboxBatch('geom', [[{lon:15.0,lat:60.0},{lon:15.35,lat:60.2}],"
+				+ " {min:{lon:25.0,lat:30.0}, max:{lon:25.5,lat:30.5}}, [{lon:0.0,lat:0.0},{lon:1.0,lat:1.0}]])"
+				+ " YIELD queryIndex, node RETURN queryIndex, node.wkt AS wkt ORDER BY queryIndex, wkt", res -> {
+			assertEquals(Map.of("queryIndex", 0L, "wkt", "LINESTRING (15.1 60.05, 15.25 60.15)"), res.next());
+			assertEquals(Map.of("queryIndex", 0L, "wkt", "POINT (15.2 60.1)"), res.next());
+			assertEquals(Map.of("queryIndex", 0L, "wkt", "POINT (15.3 60.1)"), res.next());
+			assertEquals(Map.of("queryIndex", 1L, "wkt", "POINT (25.2 30.1)"), res.next());
+			assertFalse(res.hasNext());
+		});
+		testResult(db, "CALL spatial.withinDistanceBatch('geom', [{lon:15.31,lat:60.1}, {lon:25.2,lat:30.1}], 10)"
+				+ " YIELD queryIndex, node, distance RETURN queryIndex, node.wkt AS wkt, distance", res -> {
+			Map<String, Object> first = res.next();
+			assertEquals(0L, first.get("queryIndex"));
+			assertEquals("POINT (15.3 60.1)", first.get("wkt"));
+			double previous = (Double) first.get("distance");
+			for (int i = 0; i < 2; i++) {
+				Map<String, Object> row = res.next();
+				assertEquals(0L, row.get("queryIndex"));
+				assertThat((Double) row.get("distance"), greaterThanOrEqualTo(previous));
+				previous = (Double) row.get("distance");
+			}
+			Map<String, Object> last = res.next();
+			assertEquals(1L, last.get("queryIndex"));
+			assertEquals("POINT (25.2 30.1)", last.get("wkt"));
+			assertThat((Double) last.get("distance"), closeTo(0.0, 0.0001));
+			assertFalse(res.hasNext());
+		});
+		long single = execute("CALL spatial.withinDistance('geom',{lon:15.31,lat:60.1}, 10) YIELD node RETURN node");
+		long batched = execute("CALL spatial.withinDistanceBatch('geom', [{lon:15.31,lat:60.1}], 10) YIELD node"
+				+ " RETURN node");
+		assertEquals(single, batched);
+	}
+
+	@Test
+	public void join_two_rtree_layers() {
+		execute("CALL spatial.addWKTLayer('zones','wkt')");
+		execute("CALL spatial.addWKTLayer('places','wkt')");
+		execute("UNWIND $wkts AS wkt CALL spatial.addWKT('zones',wkt) YIELD node RETURN node",
+				Map.of("wkts", List.of("POLYGON ((15 60, 16 60, 16 61, 15 61, 15 60))",
+						"POLYGON ((20 50, 21 50, 21 51, 20 51, 20 50))")));
+		List<String> places = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			places.add("POINT (" + (14.51 + i * 0.02) + " 60.5)");
+		}
+		places.add("LINESTRING (20.5 49.5, 20.5 50.5)");
+		execute("UNWIND $wkts AS wkt CALL spatial.addWKT('places',wkt) YIELD node RETURN node",
+				Map.of("wkts", places));
+		String join = "CALL spatial.join($a, $b, $predicate, $distance) YIELD nodeA, nodeB"
+				+ " RETURN nodeA.wkt AS a, nodeB.wkt AS b";
+		// the 50 points from 15.01 to 15.99 are inside the first zone, the line crosses the edge of the second one
+		assertEquals(51L,
+				execute(join, Map.of("a", "zones", "b", "places", "predicate", "intersects", "distance", 0.0)));
+		assertEquals(50L, execute(join, Map.of("a", "zones", "b", "places", "predicate", "contains", "distance", 0.0)));
+		assertEquals(50L, execute(join, Map.of("a", "places", "b", "zones", "predicate", "within", "distance", 0.0)));
+		// with the 10 points from 14.91 to 14.99 and from 16.01 to 16.09 near the first zone
+		assertEquals(61L, execute(join, Map.of("a", "zones", "b", "places", "predicate", "dwithin", "distance", 0.1)));
+		testResult(db, "CALL spatial.join('zones', 'places', 'intersects') YIELD nodeA, nodeB"
+				+ " WITH nodeA, nodeB WHERE nodeB.wkt STARTS WITH 'LINESTRING'"
+				+ " RETURN nodeA.wkt AS a", res -> {
+			assertEquals("POLYGON ((20 50, 21 50, 21 51, 20 51, 20 50))", res.next().get("a"));
+			assertFalse(res.hasNext());
+		});
+	}
+
+	@Test
+	public void join_rtree_layer_with_point_index_layer() {
+		execute("CALL spatial.addWKTLayer('zones','wkt')");
+		execute("CALL spatial.addPointLayerGeohash('points')");
+		execute("CALL spatial.addWKT('zones','POLYGON ((15 60, 16 60, 16 61, 15 61, 15 60))')");
+		execute("UNWIND range(0, 9) AS i CREATE (n:Point {latitude: 60.5, longitude: 14.55 + i * 0.2})"
+				+ " WITH n CALL spatial.addNode('points', n) YIELD node RETURN node");
+		testCallCount(db, "CALL spatial.join('zones', 'points', 'contains')", null, 5);
+		testCallCount(db, "CALL spatial.join('points', 'zones', 'within')", null, 5);
+		Exception e = assertThrows(Exception.class,
+				() -> execute("CALL spatial.join('zones', 'points', 'overlaps')"));
+		assertThat(e.getMessage(), containsString("Unknown join predicate"));
+	}
+
+	@Test
+	public void find_no_geometries_using_nearest_on_empty_layer() {
+		execute("CALL spatial.addLayer('geom','WKT','wkt')");
+		testCallCount(db, "CALL spatial.nearest('geom',{lon:15.2, lat:60.1}, 5)", null, 0);
+	}
+
 	@Test
 	public void testNativePoints() {
 		execute("CREATE (node:Foo { points: [point({latitude: 5.0, longitude: 4.0}), point({latitude: 6.0, longitude: 5.0})]})");
@@ -1275,4 +1594,31 @@ public class SpatialProceduresTest extends AbstractApiTest {
 		testCallFails(db, "CALL spatial.getFeatureCount('non_existent_layer')", null,
 				"No such layer 'non_existent_layer'");
 	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"Geohash", "ZOrder", "Hilbert"})
+	public void test_spatial_getFeatureCount_and_bounding_box_of_point_index(String indexType) {
+		execute("CALL spatial.addPointLayer" + indexType + "('sfc_layer')");
+		assertEquals(0L, executeObject("CALL spatial.getFeatureCount('sfc_layer') YIELD count", "count"));
+
+		// every point extends the envelope, so the extent nodes get merged along the way
+		for (int i = 1; i <= 20; i++) {
+			execute("CREATE (n:Node {id: $i, latitude: 60.0 + $i * 0.05, longitude: 15.0 + $i * 0.1})"
+					+ " WITH n CALL spatial.addNode('sfc_layer', n) YIELD node RETURN node", Map.of("i", i));
+		}
+		assertEquals(20L, executeObject("CALL spatial.getFeatureCount('sfc_layer') YIELD count", "count"));
+		Consumer<Map<String, Object>> fullExtent = result -> {
+			assertThat((Double) result.get("minX"), closeTo(15.1, 0.000001));
+			assertThat((Double) result.get("minY"), closeTo(60.05, 0.000001));
+			assertThat((Double) result.get("maxX"), closeTo(17.0, 0.000001));
+			assertThat((Double) result.get("maxY"), closeTo(61.0, 0.000001));
+		};
+		testCall(db, "CALL spatial.getLayerBoundingBox('sfc_layer')", fullExtent);
+
+		execute("MATCH (n:Node) WHERE n.id <= 5 WITH collect(n) AS nodes"
+				+ " CALL spatial.removeNodes('sfc_layer', nodes) YIELD count RETURN count");
+		assertEquals(15L, executeObject("CALL spatial.getFeatureCount('sfc_layer') YIELD count", "count"));
+		// removing geometries does not shrink the envelope
+		testCall(db, "CALL spatial.getLayerBoundingBox('sfc_layer')", fullExtent);
+	}
 }